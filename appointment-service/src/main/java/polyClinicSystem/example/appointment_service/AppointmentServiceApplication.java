@@ -2,12 +2,13 @@ package polyClinicSystem.example.appointment_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.cloud.bus.jackson.RemoteApplicationEventScan;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import polyClinicSystem.example.appointment_service.dto.event.UserChangedEvent;
 
 @SpringBootApplication
 @EnableJpaAuditing
-@EnableFeignClients(basePackages = "polyClinicSystem.example.appointment_service")
+@RemoteApplicationEventScan(basePackageClasses = UserChangedEvent.class)
 public class AppointmentServiceApplication {
 
 	public static void main(String[] args) {
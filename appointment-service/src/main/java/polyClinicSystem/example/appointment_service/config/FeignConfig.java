@@ -2,13 +2,16 @@ package polyClinicSystem.example.appointment_service.config;
 
 import feign.RequestInterceptor;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 @Configuration
+@EnableFeignClients(basePackages = "polyClinicSystem.example.appointment_service")
 public class FeignConfig {
+    // Enables the @FeignClient interfaces, here and not on the application class so the test slices don't start them
 
     @Bean
     public RequestInterceptor authInterceptor() {
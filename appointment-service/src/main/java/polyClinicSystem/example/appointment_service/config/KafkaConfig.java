@@ -1,32 +1,74 @@
 package polyClinicSystem.example.appointment_service.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.util.StringUtils;
+import polyClinicSystem.example.appointment_service.model.enums.ProducerProfile;
+import polyClinicSystem.example.appointment_service.service.kafka.outboxPublisher.OutboxPublisherImpl;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 public class KafkaConfig {
 
+    /**
+     * Applies the outbox producer profile (linger.ms, batch.size, compression.type)
+     * and, in transactional mode, the transactional.id prefix of the relay producer.
+     * The prefix must be the same across restarts of a replica, so the broker fences the zombie producer
+     * of the previous run: it's transactional-id-prefix when set, else spring.application.name + instance-id,
+     * and startup fails in transactional mode when neither gives a stable prefix.
+     * It's set on the factory and not as spring.kafka.producer.transaction-id-prefix,
+     * so no KafkaTransactionManager is registered next to the JPA one.
+     */
     @Bean
-    public NewTopic appointmentPaymentCreatedTopic() {
-        return TopicBuilder.name("appointment-payment-created")
-                .partitions(3)
-                .replicas(1)
-                .build();
+    public DefaultKafkaProducerFactoryCustomizer outboxProducerFactoryCustomizer(
+            @Value("${appointment.outbox.producer-profile:BALANCED}") ProducerProfile producerProfile,
+            @Value("${appointment.outbox.transactional:false}") boolean transactional,
+            @Value("${appointment.outbox.transactional-id-prefix:}") String configuredPrefix,
+            @Value("${spring.application.name}") String applicationName,
+            @Value("${appointment.outbox.instance-id:}") String instanceId) {
+
+        String transactionalIdPrefix = transactional
+                ? stableTransactionalIdPrefix(configuredPrefix, applicationName, instanceId)
+                : null;
+
+        return producerFactory -> {
+            Map<String, Object> configs = new HashMap<>();
+            if (producerProfile.getLingerMs() != null) {
+                configs.put(ProducerConfig.LINGER_MS_CONFIG, producerProfile.getLingerMs());
+                configs.put(ProducerConfig.BATCH_SIZE_CONFIG, producerProfile.getBatchSize());
+                configs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producerProfile.getCompressionType());
+            }
+            producerFactory.updateConfigs(configs);
+
+            if (transactional) {
+                producerFactory.setTransactionIdPrefix(transactionalIdPrefix);
+            }
+        };
     }
 
-    @Bean
-    public NewTopic appointmentScheduledTopic() {
-        return TopicBuilder.name("appointment-scheduled")
-                .partitions(3)
-                .replicas(1)
-                .build();
+    private static String stableTransactionalIdPrefix(String configuredPrefix, String applicationName, String instanceId) {
+        if (StringUtils.hasText(configuredPrefix)) {
+            return configuredPrefix;
+        }
+        if (StringUtils.hasText(instanceId)) {
+            return applicationName + "-outbox-" + instanceId + "-";
+        }
+        throw new IllegalStateException("appointment.outbox.transactional needs a transactional.id prefix that is stable "
+                + "per replica: set appointment.outbox.instance-id (e.g. the pod name) "
+                + "or appointment.outbox.transactional-id-prefix");
     }
 
+    // every event type of an appointment, keyed by appointment id, see OutboxPublisherImpl.TOPIC
     @Bean
-    public NewTopic appointmentRejectedTopic() {
-        return TopicBuilder.name("appointment-rejected")
+    public NewTopic appointmentEventsTopic() {
+        return TopicBuilder.name(OutboxPublisherImpl.TOPIC)
                 .partitions(3)
                 .replicas(1)
                 .build();
@@ -5,9 +5,12 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import polyClinicSystem.example.appointment_service.dto.request.*;
+import polyClinicSystem.example.appointment_service.dto.response.AppointmentPageResponse;
 import polyClinicSystem.example.appointment_service.dto.response.AppointmentResponse;
 import polyClinicSystem.example.appointment_service.dto.response.AvailableSlotResponse;
 import polyClinicSystem.example.appointment_service.dto.response.ReservationResponse;
@@ -36,6 +39,18 @@ public class AppointmentController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/available-slots/calendar")
+    public ResponseEntity<List<AvailableSlotResponse>> getAvailabilityCalendar(
+            @RequestParam List<String> doctorKeycloakIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest request) {
+
+        String patientId = tokenService.extractUserId(request);
+        List<AvailableSlotResponse> response = appointmentService.getAvailabilityCalendar(doctorKeycloakIds, from, to, patientId, request);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/reserve")
     public ResponseEntity<ReservationResponse> reserveSlot(
             @Valid @RequestBody ReserveSlotRequest request,
@@ -103,11 +118,25 @@ public class AppointmentController {
     }
 
     @GetMapping("/my-appointments")
-    public ResponseEntity<List<AppointmentResponse>> getMyAppointments(HttpServletRequest request) {
+    public ResponseEntity<AppointmentPageResponse> getMyAppointments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request) {
         String keycloakId = tokenService.extractUserId(request);
         String role = tokenService.extractUserRole(request);
 
-        List<AppointmentResponse> appointments = appointmentService.getMyAppointments(keycloakId, role, request);
+        AppointmentPageResponse appointments = appointmentService.getMyAppointments(keycloakId, role, cursor, size, request);
         return ResponseEntity.ok(appointments);
     }
+
+    @GetMapping(value = "/my-appointments/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamMyAppointments(HttpServletRequest request) {
+        String keycloakId = tokenService.extractUserId(request);
+        String role = tokenService.extractUserRole(request);
+
+        StreamingResponseBody appointments = appointmentService.streamMyAppointments(keycloakId, role, request);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(appointments);
+    }
 }
\ No newline at end of file
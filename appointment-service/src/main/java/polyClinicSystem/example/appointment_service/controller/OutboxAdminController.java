@@ -0,0 +1,47 @@
+package polyClinicSystem.example.appointment_service.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import polyClinicSystem.example.appointment_service.dto.response.DeadLetterResponse;
+import polyClinicSystem.example.appointment_service.service.kafka.outboxDeadLetter.OutboxDeadLetterService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/appointments/admin/outbox")
+@RequiredArgsConstructor
+public class OutboxAdminController {
+
+    private final OutboxDeadLetterService outboxDeadLetterService;
+
+    @GetMapping("/dead-letters")
+    public ResponseEntity<List<DeadLetterResponse>> getDeadLetters(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest httpRequest) {
+
+        List<DeadLetterResponse> deadLetters = outboxDeadLetterService.getDeadLetters(afterId, size, httpRequest);
+        return ResponseEntity.ok(deadLetters);
+    }
+
+    @GetMapping("/dead-letters/{id}")
+    public ResponseEntity<DeadLetterResponse> getDeadLetter(
+            @PathVariable Long id,
+            HttpServletRequest httpRequest) {
+
+        DeadLetterResponse deadLetter = outboxDeadLetterService.getDeadLetter(id, httpRequest);
+        return ResponseEntity.ok(deadLetter);
+    }
+
+    @PostMapping("/dead-letters/{id}/replay")
+    public ResponseEntity<Void> replay(
+            @PathVariable Long id,
+            HttpServletRequest httpRequest) {
+
+        outboxDeadLetterService.replay(id, httpRequest);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    }
+}
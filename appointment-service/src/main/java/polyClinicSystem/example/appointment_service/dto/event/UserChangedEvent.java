@@ -0,0 +1,19 @@
+package polyClinicSystem.example.appointment_service.dto.event;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.cloud.bus.event.RemoteApplicationEvent;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserChangedEvent extends RemoteApplicationEvent {
+    /*
+    received from user-management over the Spring Cloud Bus when a user is updated or deleted,
+    same simple name and fields as the class user-management sends (the bus matches events by simple class name)
+     */
+
+    private String keycloakId;
+    private String change; // UPDATED | DELETED
+}
@@ -0,0 +1,18 @@
+package polyClinicSystem.example.appointment_service.dto.projection;
+
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+public interface BookedSlotView {
+    // only the columns needed to build the availability calendar, no entity is loaded
+    String getDoctorKeycloakId();
+    LocalDate getAppointmentDate();
+    Period getPeriod();
+    String getPatientKeycloakId();
+    String getReservationToken();
+    Instant getExpiresAt();
+    Status getStatus();
+}
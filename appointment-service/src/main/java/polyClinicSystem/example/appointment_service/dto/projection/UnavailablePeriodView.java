@@ -0,0 +1,11 @@
+package polyClinicSystem.example.appointment_service.dto.projection;
+
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+
+import java.time.LocalDate;
+
+public interface UnavailablePeriodView {
+    String getDoctorKeycloakId();
+    LocalDate getAppointmentDate();
+    Period getPeriod();
+}
@@ -0,0 +1,6 @@
+package polyClinicSystem.example.appointment_service.dto.projection;
+
+public interface VacationDayView {
+    String getDoctorKeycloakId();
+    String getDayOfWeek(); // e.g., "Monday"
+}
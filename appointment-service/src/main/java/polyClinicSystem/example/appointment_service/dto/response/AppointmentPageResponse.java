@@ -0,0 +1,14 @@
+package polyClinicSystem.example.appointment_service.dto.response;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentPageResponse {
+    private List<AppointmentResponse> appointments;
+    private String nextCursor; // Pass back as cursor to get the next page, null on the last page
+    private boolean hasNext;
+}
@@ -0,0 +1,23 @@
+package polyClinicSystem.example.appointment_service.dto.response;
+import lombok.*;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DeadLetterResponse {
+    private Long id;
+    private String aggregateType;
+    private String aggregateId;
+    private String eventType;
+    private String payload; // rendered as JSON whatever the stored format
+    private EventFormat payloadFormat;
+    private int schemaVersion;
+    private Instant createdAt;
+    private int retryCount;
+    private String lastError;
+    private Instant deadAt;
+}
@@ -20,14 +20,12 @@ import java.time.LocalDate;
 @EntityListeners(AuditingEntityListener.class)
 @Entity
 @Table(name = "appointments",
-        uniqueConstraints = @UniqueConstraint(
-                name = "uk_doctor_date_period",
-                columnNames = {"doctor_keycloak_id", "appointment_date", "period"}
-        ),
         indexes = {
                 @Index(name = "idx_doctor_date_status", columnList = "doctor_keycloak_id, appointment_date, status"),
-                @Index(name = "idx_patient_keycloak_id", columnList = "patient_keycloak_id"),
-                @Index(name = "idx_reservation_token", columnList = "reservation_token"),
+                @Index(name = "idx_patient_date_id", columnList = "patient_keycloak_id, appointment_date DESC, id DESC"),
+                @Index(name = "idx_doctor_date_id", columnList = "doctor_keycloak_id, appointment_date DESC, id DESC"),
+                @Index(name = "idx_nurse_date_id", columnList = "nurse_keycloak_id, appointment_date DESC, id DESC"),
+                @Index(name = "uk_reservation_token", columnList = "reservation_token, appointment_date", unique = true),
                 @Index(name = "idx_status_created_at", columnList = "status, created_at")
         })
 public class Appointment {
@@ -35,6 +33,11 @@ public class Appointment {
     * constrains prevent its table from having 2 raws with same constrain
       like in this case (there is no 2 appointments have date and period and doctor)
     * index optimize search or querying operation by just get the data it will search with
+    * the schema is owned by the flyway migrations in resources/db/migration, the slot constraint is
+      the partial unique index uk_doctor_date_period_active (doctor, date, period) WHERE status is
+      PENDING/PAID/SCHEDULED, so expired/cancelled/rejected rows don't block the slot from being booked again
+    * the table is range partitioned by month of appointment_date (V6), so the primary key is (id, appointment_date)
+      in the database and reservation_token is unique per appointment_date (a unique index must contain the partition key)
      */
 
     @Id
@@ -56,7 +59,7 @@ public class Appointment {
     @Column(name = "appointment_date", nullable = false)
     private LocalDate appointmentDate;
 
-    @Column(name = "reservation_token", unique = true)
+    @Column(name = "reservation_token")
     private String reservationToken;
 
     @Column(name = "payment_id")
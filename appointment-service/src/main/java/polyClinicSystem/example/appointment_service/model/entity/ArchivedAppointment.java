@@ -0,0 +1,77 @@
+package polyClinicSystem.example.appointment_service.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Reason;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Getter
+@NoArgsConstructor
+@Immutable
+@Entity
+@Table(name = "appointments_archive")
+public class ArchivedAppointment {
+    /*
+    read only view of the appointments moved out of the hot table by the retention job,
+    same columns as Appointment plus archivedAt, rows are only written by AppointmentArchiveRepository.archiveDetachedPartition
+     */
+
+    @Id
+    private Long id;
+
+    @Column(name = "doctor_keycloak_id", nullable = false)
+    private String doctorKeycloakId;
+
+    @Column(name = "nurse_keycloak_id")
+    private String nurseKeycloakId;
+
+    @Column(name = "patient_keycloak_id", nullable = false)
+    private String patientKeycloakId;
+
+    @Column(name = "room_id")
+    private Long roomId;
+
+    @Column(name = "appointment_date", nullable = false)
+    private LocalDate appointmentDate;
+
+    @Column(name = "reservation_token")
+    private String reservationToken;
+
+    @Column(name = "payment_id")
+    private Long paymentId;
+
+    @Column(name = "payment_intent_id")
+    private String paymentIntentId;
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+    private Long version;
+
+    @Column(name = "notes", length = 1000)
+    private String notes;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Enumerated(EnumType.STRING)
+    private Reason reason;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Period period;
+
+    @Column(nullable = false)
+    private Instant archivedAt;
+}
@@ -0,0 +1,15 @@
+package polyClinicSystem.example.appointment_service.model.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum EventFormat {
+    JSON("application/json"),
+    // Plain JSON text, readable from any Kafka tool
+    SMILE("application/x-jackson-smile");
+    // Binary JSON, field names are written once per payload and numbers/dates as raw values, smaller and faster to parse
+
+    private final String contentType;
+}
@@ -0,0 +1,21 @@
+package polyClinicSystem.example.appointment_service.model.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ProducerProfile {
+    LATENCY(0, 16384, "none"),
+    // Send each record right away, small batches, no compression
+    BALANCED(5, 65536, "lz4"),
+    // Wait up to 5 ms to fill 64 KB batches, cheap lz4 compression
+    THROUGHPUT(50, 262144, "zstd"),
+    // Wait up to 50 ms to fill 256 KB batches, zstd for the best ratio on the JSON payloads
+    CUSTOM(null, null, null);
+    // Leave linger.ms, batch.size and compression.type to spring.kafka.producer
+
+    private final Integer lingerMs;
+    private final Integer batchSize;
+    private final String compressionType;
+}
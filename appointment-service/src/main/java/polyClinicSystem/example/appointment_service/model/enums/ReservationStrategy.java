@@ -0,0 +1,8 @@
+package polyClinicSystem.example.appointment_service.model.enums;
+
+public enum ReservationStrategy {
+    LOCK,
+    // Redis lock per slot, then exists check and insert (waits for a busy slot)
+    OPTIMISTIC,
+    // Single INSERT ... ON CONFLICT DO NOTHING, no redis (fails right away on a taken slot)
+}
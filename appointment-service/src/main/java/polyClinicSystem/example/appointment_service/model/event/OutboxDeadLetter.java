@@ -0,0 +1,54 @@
+package polyClinicSystem.example.appointment_service.model.event;
+
+import jakarta.persistence.*;
+import lombok.*;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "outbox_dead_letter")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxDeadLetter {
+    /*
+    outbox events that failed max retries times, moved out of outbox_events by the relay
+    so they stop being claimed, they keep their outbox id and go back to outbox_events when an admin replays them
+     */
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String aggregateType;
+
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @Column(nullable = false)
+    private byte[] payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EventFormat payloadFormat;
+
+    @Column(nullable = false)
+    private int schemaVersion;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private int retryCount;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private Instant deadAt;
+}
@@ -3,21 +3,21 @@ package polyClinicSystem.example.appointment_service.model.event;
 
 import jakarta.persistence.*;
 import lombok.*;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
 
 import java.time.Instant;
 
 
 @Entity
-@Table(name = "outbox_events",
-        indexes = @Index(name = "idx_sent_created", columnList = "sent, created_at"))
+@Table(name = "outbox_events")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class OutboxEvent {
-    // we put created_at in the index cause
-    // each index should be unique and there can be more than one event not sent
+    // partitioned by day of created_at (V12 migration), the primary key is (id, created_at),
+    // the relay's indexes are partial on sent = false so they only hold the backlog
 
     /*
     we use outbox design pattern with kafka in this service which is :
@@ -36,13 +36,20 @@ public class OutboxEvent {
     private String aggregateType; // "appointment"
 
     @Column(nullable = false)
-    private String aggregateId; // appointment.id or reservationToken
+    private String aggregateId; // appointment.id, also the Kafka key
 
     @Column(nullable = false)
     private String eventType; // "appointment.payment.created", "appointment.scheduled"
 
-    @Column(nullable = false, columnDefinition = "TEXT")
-    private String payload; // JSON
+    @Column(nullable = false)
+    private byte[] payload; // encoded event, sent to Kafka as it is
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EventFormat payloadFormat; // codec the payload was encoded with
+
+    @Column(nullable = false)
+    private int schemaVersion; // EventCodec.SCHEMA_VERSION when the payload was encoded
 
     @Column(nullable = false)
     private boolean sent = false;
@@ -55,4 +62,16 @@ public class OutboxEvent {
 
     @Column
     private int retryCount = 0;
+
+    @Column
+    private String claimedBy; // relay instance currently publishing this event
+
+    @Column
+    private Instant claimedUntil; // claim lease, after it another instance may take the event over
+
+    @Column
+    private Instant nextAttemptAt; // set after a failure (exponential backoff), not claimed before it
+
+    @Column(length = 1000)
+    private String lastError;
 }
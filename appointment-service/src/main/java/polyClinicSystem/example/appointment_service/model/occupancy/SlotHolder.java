@@ -0,0 +1,62 @@
+package polyClinicSystem.example.appointment_service.model.occupancy;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import polyClinicSystem.example.appointment_service.model.entity.Appointment;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class SlotHolder {
+    // the active appointment holding a period, encoded in redis as "token|patientId|expiresAtMillis|status"
+
+    private static final String SEPARATOR = "|";
+
+    private final String reservationToken;
+    private final String patientKeycloakId;
+    private final Instant expiresAt;
+    private final Status status;
+
+    public static SlotHolder from(Appointment appointment) {
+        return new SlotHolder(
+                appointment.getReservationToken(),
+                appointment.getPatientKeycloakId(),
+                appointment.getExpiresAt(),
+                appointment.getStatus()
+        );
+    }
+
+    public boolean isHeldBy(String patientKeycloakId) {
+        return patientKeycloakId != null && patientKeycloakId.equals(this.patientKeycloakId);
+    }
+
+    public String encode() {
+        return nullToEmpty(reservationToken) + SEPARATOR
+                + nullToEmpty(patientKeycloakId) + SEPARATOR
+                + (expiresAt == null ? "" : String.valueOf(expiresAt.toEpochMilli())) + SEPARATOR
+                + status.name();
+    }
+
+    public static SlotHolder decode(String value) {
+        String[] parts = value.split("\\|", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        return new SlotHolder(
+                emptyToNull(parts[0]),
+                emptyToNull(parts[1]),
+                parts[2].isEmpty() ? null : Instant.ofEpochMilli(Long.parseLong(parts[2])),
+                Status.valueOf(parts[3])
+        );
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
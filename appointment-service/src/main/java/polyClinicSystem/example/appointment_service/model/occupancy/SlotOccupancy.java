@@ -0,0 +1,67 @@
+package polyClinicSystem.example.appointment_service.model.occupancy;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+
+import java.time.DayOfWeek;
+import java.time.format.TextStyle;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class SlotOccupancy {
+    /*
+    occupancy of one doctor on one day, each Period is one bit (H08_09 is bit 0 ... H16_17 is bit 8)
+    occupiedMask = booked periods | day unavailability | all periods if the day is a vacation weekday
+    holders keeps who is holding each booked period so the availability read doesn't need the DB
+     */
+
+    public static final int ALL_PERIODS_MASK = (1 << Period.values().length) - 1;
+
+    private final int occupiedMask;
+    private final Map<Period, SlotHolder> holders;
+
+    public boolean isOccupied(Period period) {
+        return (occupiedMask & bitOf(period)) != 0;
+    }
+
+    public static int bitOf(Period period) {
+        return 1 << period.ordinal();
+    }
+
+    public static int maskOf(Collection<Period> periods) {
+        int mask = 0;
+        for (Period period : periods) {
+            mask |= bitOf(period);
+        }
+        return mask;
+    }
+
+    public static int bitOf(DayOfWeek dayOfWeek) {
+        return 1 << (dayOfWeek.getValue() - 1);
+    }
+
+    /**
+     * Vacation days are stored as english day names ("Monday", "Tuesday", see dayNameOf),
+     * matched exactly like the booking check does, any other value never matches a date.
+     */
+    public static int dayMaskOf(Collection<String> daysOfWeek) {
+        int mask = 0;
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (daysOfWeek.contains(dayNameOf(dayOfWeek))) {
+                mask |= bitOf(dayOfWeek);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Stored form of a vacation day ("Monday")
+     */
+    public static String dayNameOf(DayOfWeek dayOfWeek) {
+        return dayOfWeek.getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+    }
+}
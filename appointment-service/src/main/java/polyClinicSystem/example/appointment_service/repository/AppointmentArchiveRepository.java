@@ -0,0 +1,136 @@
+package polyClinicSystem.example.appointment_service.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import polyClinicSystem.example.appointment_service.dto.response.AppointmentResponse;
+import polyClinicSystem.example.appointment_service.model.entity.ArchivedAppointment;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface AppointmentArchiveRepository extends JpaRepository<ArchivedAppointment, Long> {
+
+    /**
+     * Copy a detached monthly partition of appointments into the archive and drop it, in one statement.
+     * Used by the retention job after detachMonthlyPartition.
+     * @param monthStart Any day of the partition month
+     * @param archivedAt Timestamp stored on the archived rows
+     * @return number of archived rows
+     */
+    @Query(value = "SELECT archive_appointments_partition(:monthStart, :archivedAt)", nativeQuery = true)
+    long archiveDetachedPartition(LocalDate monthStart, Instant archivedAt);
+
+    /**
+     * Move a batch of finished appointments from the hot table to the archive in one statement,
+     * rows that changed status or date since the ids were read are left in place.
+     * Used by the retention job for the rows of appointments_default.
+     * @return number of moved rows
+     */
+    @Modifying
+    @Query(value = "WITH moved AS (DELETE FROM appointments WHERE id IN (:ids) " +
+            "AND appointment_date < :beforeDate AND status IN (:statuses) RETURNING *) " +
+            "INSERT INTO appointments_archive (id, doctor_keycloak_id, nurse_keycloak_id, patient_keycloak_id, " +
+            "room_id, appointment_date, reservation_token, payment_id, payment_intent_id, expires_at, version, " +
+            "notes, created_at, updated_at, status, reason, period, archived_at) " +
+            "SELECT id, doctor_keycloak_id, nurse_keycloak_id, patient_keycloak_id, " +
+            "room_id, appointment_date, reservation_token, payment_id, payment_intent_id, expires_at, version, " +
+            "notes, created_at, updated_at, status, reason, period, :archivedAt FROM moved",
+            nativeQuery = true)
+    int moveFinishedToArchive(List<Long> ids, LocalDate beforeDate, List<String> statuses, Instant archivedAt);
+
+    /**
+     * Delete the reservation token mappings (see V18 migration) of the appointments dated before a day
+     * that aren't in the hot table anymore.
+     * Used by the retention job once the months before beforeDate are archived.
+     * @return number of deleted mappings
+     */
+    @Modifying
+    @Query(value = "DELETE FROM appointment_reservation_tokens t WHERE t.appointment_date < :beforeDate " +
+            "AND NOT EXISTS (SELECT 1 FROM appointments a " +
+            "WHERE a.id = t.appointment_id AND a.appointment_date = t.appointment_date)",
+            nativeQuery = true)
+    int deleteArchivedReservationTokens(LocalDate beforeDate);
+
+    /**
+     * Delete the reservation lock fences (see V19 migration) of the slots dated before a day.
+     * Used by the retention job, nobody reserves those slots anymore.
+     * @return number of deleted fences
+     */
+    @Modifying
+    @Query(value = "DELETE FROM appointment_slot_fences WHERE appointment_date < :beforeDate", nativeQuery = true)
+    int deleteSlotFencesBefore(LocalDate beforeDate);
+
+    /**
+     * Find archived appointments by id, ordered by id.
+     * Used to export a batch archived row by row.
+     */
+    List<ArchivedAppointment> findByIdInOrderByIdAsc(List<Long> ids);
+
+    /**
+     * Get the next batch of archived appointments of a date range, after the last id of the previous batch.
+     * Used to export a freshly archived month.
+     */
+    List<ArchivedAppointment> findByAppointmentDateBetweenAndIdGreaterThanOrderByIdAsc(
+            LocalDate fromDate,
+            LocalDate toDate,
+            Long afterId,
+            Limit limit
+    );
+
+    /**
+     * Find an archived appointment by id as a response dto.
+     * Used by "get appointment" when the id isn't in the hot table anymore.
+     */
+    @Query(AppointmentRepository.RESPONSE_SELECT + "FROM ArchivedAppointment a WHERE a.id = :id")
+    Optional<AppointmentResponse> findResponseById(Long id);
+
+    /**
+     * Stream a patient's archived appointments older than the cursor, newest first.
+     * Merged with AppointmentRepository.streamPatientHistory for "My Appointments".
+     */
+    @Query(AppointmentRepository.RESPONSE_SELECT + "FROM ArchivedAppointment a WHERE a.patientKeycloakId = :keycloakId " +
+            AppointmentRepository.BEFORE_CURSOR)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppointmentRepository.HISTORY_FETCH_SIZE))
+    Stream<AppointmentResponse> streamPatientHistory(
+            String keycloakId,
+            LocalDate beforeDate,
+            Long beforeId,
+            Limit limit
+    );
+
+    /**
+     * Stream a doctor's archived appointments older than the cursor, newest first.
+     */
+    @Query(AppointmentRepository.RESPONSE_SELECT + "FROM ArchivedAppointment a WHERE a.doctorKeycloakId = :keycloakId " +
+            AppointmentRepository.BEFORE_CURSOR)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppointmentRepository.HISTORY_FETCH_SIZE))
+    Stream<AppointmentResponse> streamDoctorHistory(
+            String keycloakId,
+            LocalDate beforeDate,
+            Long beforeId,
+            Limit limit
+    );
+
+    /**
+     * Stream a nurse's archived appointments older than the cursor, newest first.
+     */
+    @Query(AppointmentRepository.RESPONSE_SELECT + "FROM ArchivedAppointment a WHERE a.nurseKeycloakId = :keycloakId " +
+            AppointmentRepository.BEFORE_CURSOR)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppointmentRepository.HISTORY_FETCH_SIZE))
+    Stream<AppointmentResponse> streamNurseHistory(
+            String keycloakId,
+            LocalDate beforeDate,
+            Long beforeId,
+            Limit limit
+    );
+}
@@ -0,0 +1,136 @@
+package polyClinicSystem.example.appointment_service.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class AppointmentJdbcRepository {
+    /*
+    the INSERT/UPDATE ... RETURNING statements of appointments: they write rows and read back a result set,
+    which a spring data @Query can only do as a "read" and @Modifying can't return, so they're plain jdbc here.
+    they run on the connection of the current JPA transaction, the persistence context is flushed first
+    (like hibernate does before a native query) so pending entity changes are visible to the statement.
+    the rows they change are not refreshed in the persistence context, callers don't read them back as entities.
+     */
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    /**
+     * Insert a PENDING reservation unless an active appointment already holds the slot.
+     * Used by the OPTIMISTIC reservation strategy instead of the redis lock + exists check.
+     * @return the new appointment id (RETURNING id, one row), empty if the slot is taken (no row)
+     */
+    public Optional<Long> insertIfSlotFree(
+            String doctorKeycloakId,
+            String patientKeycloakId,
+            LocalDate appointmentDate,
+            String period,
+            String status,
+            String reason,
+            String reservationToken,
+            Instant expiresAt,
+            String notes,
+            Instant now
+    ) {
+        entityManager.flush();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("doctorKeycloakId", doctorKeycloakId)
+                .addValue("patientKeycloakId", patientKeycloakId)
+                .addValue("appointmentDate", appointmentDate)
+                .addValue("period", period)
+                .addValue("status", status)
+                .addValue("reason", reason)
+                .addValue("reservationToken", reservationToken)
+                .addValue("expiresAt", toTimestamp(expiresAt))
+                .addValue("notes", notes)
+                .addValue("now", toTimestamp(now));
+
+        List<Long> ids = jdbcTemplate.queryForList(
+                "INSERT INTO appointments (doctor_keycloak_id, patient_keycloak_id, appointment_date, period, " +
+                        "status, reason, reservation_token, expires_at, notes, version, created_at, updated_at) " +
+                        "VALUES (:doctorKeycloakId, :patientKeycloakId, :appointmentDate, :period, " +
+                        ":status, :reason, :reservationToken, :expiresAt, :notes, 0, :now, :now) " +
+                        "ON CONFLICT (doctor_keycloak_id, appointment_date, period) " +
+                        "WHERE status IN ('PENDING', 'PAID', 'SCHEDULED') DO NOTHING " +
+                        "RETURNING id",
+                params, Long.class);
+
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Raise the fence of a slot (see V19 migration) to the fence of the reservation lock token,
+     * unless the slot already has this fence or a higher one.
+     * Used by the LOCK reservation strategy before writing, the slot row stays locked until the transaction ends.
+     * @return true if the fence was raised (RETURNING fence, one row), false if a newer lock holder wrote first
+     */
+    public boolean claimSlotFence(
+            String doctorKeycloakId,
+            LocalDate appointmentDate,
+            String period,
+            long fence
+    ) {
+        entityManager.flush();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("doctorKeycloakId", doctorKeycloakId)
+                .addValue("appointmentDate", appointmentDate)
+                .addValue("period", period)
+                .addValue("fence", fence);
+
+        List<Long> fences = jdbcTemplate.queryForList(
+                "INSERT INTO appointment_slot_fences (doctor_keycloak_id, appointment_date, period, fence) " +
+                        "VALUES (:doctorKeycloakId, :appointmentDate, :period, :fence) " +
+                        "ON CONFLICT (doctor_keycloak_id, appointment_date, period) " +
+                        "DO UPDATE SET fence = EXCLUDED.fence WHERE appointment_slot_fences.fence < EXCLUDED.fence " +
+                        "RETURNING fence",
+                params, Long.class);
+
+        return !fences.isEmpty();
+    }
+
+    /**
+     * Expire one chunk of PENDING reservations past their TTL in a single statement.
+     * Rows locked by a concurrent payment confirmation are skipped and picked up by the next run.
+     * @param batchSize Max rows to expire in this chunk
+     * @return ids of the expired appointments (RETURNING id, one row per expired appointment)
+     */
+    public List<Long> expirePendingBatch(
+            Instant cutoffTime,
+            Instant now,
+            int batchSize
+    ) {
+        entityManager.flush();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoffTime", toTimestamp(cutoffTime))
+                .addValue("now", toTimestamp(now))
+                .addValue("batchSize", batchSize);
+
+        return jdbcTemplate.queryForList(
+                "UPDATE appointments SET status = 'EXPIRED', updated_at = :now, version = COALESCE(version, 0) + 1 " +
+                        "WHERE id IN (SELECT id FROM appointments " +
+                        "WHERE status = 'PENDING' AND expires_at < :cutoffTime " +
+                        "ORDER BY expires_at LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING id",
+                params, Long.class);
+    }
+
+    // timestamptz parameters, the postgres driver binds OffsetDateTime but not Instant
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant == null ? null : instant.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -1,8 +1,14 @@
 package polyClinicSystem.example.appointment_service.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import polyClinicSystem.example.appointment_service.dto.projection.BookedSlotView;
+import polyClinicSystem.example.appointment_service.dto.response.AppointmentResponse;
 import polyClinicSystem.example.appointment_service.model.entity.Appointment;
 import polyClinicSystem.example.appointment_service.model.enums.Period;
 import polyClinicSystem.example.appointment_service.model.enums.Status;
@@ -11,17 +17,45 @@ import java.time.Instant;
 import java.util.Optional;
 import java.util.List;
 import java.time.LocalDate;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+
+    // "my appointments" rows are read straight into the response dto, the entities are never loaded
+    String RESPONSE_SELECT = "SELECT new polyClinicSystem.example.appointment_service.dto.response.AppointmentResponse(" +
+            "a.id, a.doctorKeycloakId, a.nurseKeycloakId, a.patientKeycloakId, a.roomId, a.status, a.appointmentDate, " +
+            "a.period, a.reservationToken, a.paymentId, a.expiresAt, a.createdAt, a.updatedAt, a.reason, a.notes) ";
+
+    // keyset position (appointment_date, id) newest first, the first condition lets the index range start at the cursor
+    String BEFORE_CURSOR = "AND a.appointmentDate <= :beforeDate " +
+            "AND (a.appointmentDate < :beforeDate OR a.id < :beforeId) " +
+            "ORDER BY a.appointmentDate DESC, a.id DESC";
+
+    String HISTORY_FETCH_SIZE = "500";
+
     /**
      * Find an appointment by its unique reservation token.
      * Used during payment confirmation step.
+     * The token is resolved to its (id, appointment_date) key in appointment_reservation_tokens (see V18 migration),
+     * so only the partition of the appointment's month is read.
      * @param reservationToken The UUID token returned during reservation
      * @return Optional containing appointment if found
      */
+    @Query(value = "SELECT a.* FROM appointments a WHERE (a.id, a.appointment_date) IN " +
+            "(SELECT t.appointment_id, t.appointment_date FROM appointment_reservation_tokens t " +
+            "WHERE t.reservation_token = :reservationToken) " +
+            "AND a.reservation_token = :reservationToken",
+            nativeQuery = true)
     Optional<Appointment> findByReservationToken(String reservationToken);
 
+    /**
+     * Find an appointment by id as a response dto, without loading the managed entity.
+     * Used by the read only "get appointment" view.
+     */
+    @Query(RESPONSE_SELECT + "FROM Appointment a WHERE a.id = :id")
+    Optional<AppointmentResponse> findResponseById(Long id);
+
     /**
      * Find all appointments for a specific doctor on a specific date.
      * Used to calculate available time slots.
@@ -32,10 +66,21 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             LocalDate appointmentDate
     );
 
+    /**
+     * Find the active appointments for a doctor on a specific date.
+     * Used to build the slot occupancy index when it's not cached yet.
+     * @param statuses List of statuses to include (typically PENDING, PAID, SCHEDULED)
+     */
+    List<Appointment> findByDoctorKeycloakIdAndAppointmentDateAndStatusIn(
+            String doctorKeycloakId,
+            LocalDate appointmentDate,
+            List<Status> statuses
+    );
+
     /**
      * Find appointments by doctor, date, and period (time slot).
      * Used to check if a specific slot is available.
-     * @return List of appointments matching criteria (should be 0 or 1 due to unique constraint)
+     * @return List of appointments matching criteria (any status, at most 1 active due to the partial unique index)
      */
     List<Appointment> findByDoctorKeycloakIdAndAppointmentDateAndPeriod(
             String doctorKeycloakId,
@@ -101,6 +146,43 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             String nurseKeycloakId
     );
 
+    /**
+     * Stream a patient's appointments older than the cursor, newest first.
+     * Used for the paged and NDJSON "My Appointments" views, must be consumed inside a transaction.
+     */
+    @Query(RESPONSE_SELECT + "FROM Appointment a WHERE a.patientKeycloakId = :keycloakId " + BEFORE_CURSOR)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = HISTORY_FETCH_SIZE))
+    Stream<AppointmentResponse> streamPatientHistory(
+            String keycloakId,
+            LocalDate beforeDate,
+            Long beforeId,
+            Limit limit
+    );
+
+    /**
+     * Stream a doctor's appointments older than the cursor, newest first.
+     */
+    @Query(RESPONSE_SELECT + "FROM Appointment a WHERE a.doctorKeycloakId = :keycloakId " + BEFORE_CURSOR)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = HISTORY_FETCH_SIZE))
+    Stream<AppointmentResponse> streamDoctorHistory(
+            String keycloakId,
+            LocalDate beforeDate,
+            Long beforeId,
+            Limit limit
+    );
+
+    /**
+     * Stream a nurse's appointments older than the cursor, newest first.
+     */
+    @Query(RESPONSE_SELECT + "FROM Appointment a WHERE a.nurseKeycloakId = :keycloakId " + BEFORE_CURSOR)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = HISTORY_FETCH_SIZE))
+    Stream<AppointmentResponse> streamNurseHistory(
+            String keycloakId,
+            LocalDate beforeDate,
+            Long beforeId,
+            Limit limit
+    );
+
     /**
      * Find all appointments with a specific status, ordered by date (ascending).
      * Used by admin to see pending approvals or scheduled appointments.
@@ -163,4 +245,100 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             LocalDate date,
             List<Status> statuses
     );
-}
\ No newline at end of file
+
+    /**
+     * Get the booked slots of many doctors over a date range in one query.
+     * Used to build the availability calendar in memory.
+     */
+    @Query("SELECT a.doctorKeycloakId AS doctorKeycloakId, a.appointmentDate AS appointmentDate, " +
+            "a.period AS period, a.patientKeycloakId AS patientKeycloakId, " +
+            "a.reservationToken AS reservationToken, a.expiresAt AS expiresAt, a.status AS status " +
+            "FROM Appointment a " +
+            "WHERE a.doctorKeycloakId IN :doctorKeycloakIds " +
+            "AND a.appointmentDate BETWEEN :fromDate AND :toDate " +
+            "AND a.status IN :statuses")
+    List<BookedSlotView> findBookedSlotsInRange(
+            List<String> doctorKeycloakIds,
+            LocalDate fromDate,
+            LocalDate toDate,
+            List<Status> statuses
+    );
+
+    /**
+     * Get the slot columns of some appointments without loading the entities.
+     * Used to update the occupancy cache after a bulk status change.
+     */
+    @Query("SELECT a.doctorKeycloakId AS doctorKeycloakId, a.appointmentDate AS appointmentDate, " +
+            "a.period AS period, a.patientKeycloakId AS patientKeycloakId, " +
+            "a.reservationToken AS reservationToken, a.expiresAt AS expiresAt, a.status AS status " +
+            "FROM Appointment a " +
+            "WHERE a.id IN :ids")
+    List<BookedSlotView> findSlotsByIdIn(List<Long> ids);
+
+    /**
+     * Get the next batch of appointments with a status dated before a day, after the last id of the previous batch.
+     * Used to mark past SCHEDULED appointments as COMPLETED batch by batch.
+     */
+    @Query("SELECT a FROM Appointment a " +
+            "WHERE a.status = :status " +
+            "AND a.appointmentDate < :beforeDate " +
+            "AND a.id > :afterId " +
+            "ORDER BY a.id ASC")
+    List<Appointment> findBatchByStatusBefore(
+            Status status,
+            LocalDate beforeDate,
+            Long afterId,
+            Limit limit
+    );
+
+    /**
+     * Move the rows of a detached monthly partition that aren't finished back into appointments,
+     * they land in appointments_default (see V13 migration). Called in the transaction of the detach.
+     * @param finishedStatuses Comma separated finished statuses (CANCELLED,EXPIRED,COMPLETED,REJECTED)
+     * @return number of moved rows
+     */
+    @Query(value = "SELECT move_unfinished_appointments(:monthStart, string_to_array(:finishedStatuses, ','))",
+            nativeQuery = true)
+    long moveUnfinishedFromDetachedPartition(LocalDate monthStart, String finishedStatuses);
+
+    /**
+     * Get the next batch of ids of finished appointments in appointments_default dated before a day,
+     * after the last id of the previous batch.
+     * Used by the retention job to archive the rows that were left over by a monthly partition row by row.
+     */
+    @Query(value = "SELECT id FROM appointments_default " +
+            "WHERE appointment_date < :beforeDate AND status IN (:statuses) AND id > :afterId " +
+            "ORDER BY id LIMIT :batchSize",
+            nativeQuery = true)
+    List<Long> findFinishedIdsInDefaultPartition(
+            LocalDate beforeDate,
+            List<String> statuses,
+            Long afterId,
+            int batchSize
+    );
+
+    /**
+     * Create the monthly partition of appointments for the month of monthStart (see V6 migration).
+     * @return false if the partition already exists
+     */
+    @Query(value = "SELECT create_appointments_partition(:monthStart)", nativeQuery = true)
+    boolean createMonthlyPartition(LocalDate monthStart);
+
+    /**
+     * Detach the monthly partition of the month of monthStart, the table stays until it's archived (see V17 migration).
+     * Fails with a lock timeout instead of queueing the booking transactions when the lock isn't granted in time.
+     * @param lockWaitMillis Max wait for the exclusive lock on appointments
+     * @return false if the partition isn't attached
+     */
+    @Query(value = "SELECT detach_appointments_partition(:monthStart, :lockWaitMillis)", nativeQuery = true)
+    boolean detachMonthlyPartition(LocalDate monthStart, int lockWaitMillis);
+
+    /**
+     * Get the names of all monthly partition tables (attached or detached and not archived yet), oldest first.
+     */
+    @Query(value = "SELECT c.relname FROM pg_class c " +
+            "WHERE c.relkind = 'r' AND c.relname ~ '^appointments_y[0-9]{4}m[0-9]{2}$' " +
+            "ORDER BY c.relname",
+            nativeQuery = true)
+    List<String> findMonthlyPartitionNames();
+}
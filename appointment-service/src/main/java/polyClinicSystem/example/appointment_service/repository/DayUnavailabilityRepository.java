@@ -4,6 +4,7 @@ package polyClinicSystem.example.appointment_service.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import polyClinicSystem.example.appointment_service.dto.projection.UnavailablePeriodView;
 import polyClinicSystem.example.appointment_service.model.entity.unavailability.DayUnavailability;
 import polyClinicSystem.example.appointment_service.model.enums.Period;
 
@@ -35,4 +36,18 @@ public interface DayUnavailabilityRepository extends JpaRepository<DayUnavailabi
             LocalDate date,
             Period period
     );
-}
\ No newline at end of file
+
+    /**
+     * Get the unavailable periods of many doctors over a date range in one query
+     * Used to build the availability calendar in memory
+     */
+    @Query("SELECT d.doctorKeycloakId AS doctorKeycloakId, d.appointmentDate AS appointmentDate, p AS period " +
+            "FROM DayUnavailability d JOIN d.periods p " +
+            "WHERE d.doctorKeycloakId IN :doctorKeycloakIds " +
+            "AND d.appointmentDate BETWEEN :fromDate AND :toDate")
+    List<UnavailablePeriodView> findUnavailablePeriodsInRange(
+            List<String> doctorKeycloakIds,
+            LocalDate fromDate,
+            LocalDate toDate
+    );
+}
@@ -0,0 +1,57 @@
+package polyClinicSystem.example.appointment_service.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import polyClinicSystem.example.appointment_service.model.event.OutboxDeadLetter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository for OutboxDeadLetter entity.
+ * Holds the outbox events that exhausted their retries.
+ */
+
+@Repository
+public interface OutboxDeadLetterRepository extends JpaRepository<OutboxDeadLetter, Long> {
+
+    /**
+     * Move the events of a failed batch that reached maxRetries to the dead letter table in one statement.
+     * Used by the relay right after counting the failed attempt.
+     * createdFrom and createdTo bound the created_at of the batch, so only the daily partitions of its events are scanned.
+     * @return number of moved events
+     */
+    @Modifying
+    @Query(value = "WITH dead AS (DELETE FROM outbox_events " +
+            "WHERE id IN (:ids) AND created_at BETWEEN :createdFrom AND :createdTo " +
+            "AND sent = false AND retry_count >= :maxRetries RETURNING *) " +
+            "INSERT INTO outbox_dead_letter (id, aggregate_type, aggregate_id, event_type, payload, " +
+            "payload_format, schema_version, created_at, retry_count, last_error, dead_at) " +
+            "SELECT id, aggregate_type, aggregate_id, event_type, payload, payload_format, schema_version, " +
+            "created_at, retry_count, last_error, :deadAt FROM dead",
+            nativeQuery = true)
+    int moveToDeadLetter(List<Long> ids, Instant createdFrom, Instant createdTo, int maxRetries, Instant deadAt);
+
+    /**
+     * Put a dead event back in the outbox with a fresh retry count, keeping its id and creation time.
+     * Used by the admin replay API.
+     * @return 1 if the event was replayed, 0 if it doesn't exist
+     */
+    @Modifying
+    @Query(value = "WITH replayed AS (DELETE FROM outbox_dead_letter WHERE id = :id RETURNING *) " +
+            "INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, payload, " +
+            "payload_format, schema_version, sent, created_at, retry_count) " +
+            "SELECT id, aggregate_type, aggregate_id, event_type, payload, " +
+            "payload_format, schema_version, false, created_at, 0 FROM replayed",
+            nativeQuery = true)
+    int replay(Long id);
+
+    /**
+     * Get the next page of dead events after the last id of the previous page.
+     * Used by the admin API.
+     */
+    List<OutboxDeadLetter> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+}
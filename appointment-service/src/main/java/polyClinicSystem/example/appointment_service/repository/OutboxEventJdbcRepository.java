@@ -0,0 +1,99 @@
+package polyClinicSystem.example.appointment_service.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+import polyClinicSystem.example.appointment_service.model.event.OutboxEvent;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxEventJdbcRepository {
+    /*
+    the UPDATE ... RETURNING statements of outbox_events, plain jdbc for the same reason as AppointmentJdbcRepository.
+    the returned rows are mapped to detached OutboxEvent objects, they're only read by the relay
+    (which then updates them by id with the OutboxEventRepository bulk statements), never saved back.
+     */
+
+    private static final RowMapper<OutboxEvent> OUTBOX_EVENT_MAPPER = OutboxEventJdbcRepository::mapOutboxEvent;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    /**
+     * Claim the oldest unsent events that no other relay instance holds, at most batchSize of them.
+     * Rows locked by another instance's claim are skipped, so concurrent claims never overlap.
+     * Only the oldest unsent event of each aggregate is claimable, so events of one appointment
+     * are sent one after the other in creation order, whatever instance relays them
+     * (consumers see that order, all of them go to one topic, see OutboxPublisherImpl.TOPIC).
+     * The claimed rows are updated by their whole primary key (id, created_at), not by id across every daily partition.
+     * @param owner Id of the claiming relay instance
+     * @param claimedUntil End of the claim lease
+     * @return the claimed events (RETURNING *, in no particular order)
+     */
+    public List<OutboxEvent> claimBatch(
+            String owner,
+            Instant now,
+            Instant claimedUntil,
+            int batchSize
+    ) {
+        entityManager.flush();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("owner", owner)
+                .addValue("now", toTimestamp(now))
+                .addValue("claimedUntil", toTimestamp(claimedUntil))
+                .addValue("batchSize", batchSize);
+
+        return jdbcTemplate.query(
+                "UPDATE outbox_events SET claimed_by = :owner, claimed_until = :claimedUntil " +
+                        "WHERE (id, created_at) IN (SELECT e.id, e.created_at FROM outbox_events e " +
+                        "WHERE e.sent = false AND (e.claimed_until IS NULL OR e.claimed_until < :now) " +
+                        "AND (e.next_attempt_at IS NULL OR e.next_attempt_at <= :now) " +
+                        "AND NOT EXISTS (SELECT 1 FROM outbox_events older " +
+                        "WHERE older.aggregate_id = e.aggregate_id AND older.sent = false AND older.id < e.id) " +
+                        "ORDER BY e.created_at LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING *",
+                params, OUTBOX_EVENT_MAPPER);
+    }
+
+    private static OutboxEvent mapOutboxEvent(ResultSet rs, int rowNum) throws SQLException {
+        return OutboxEvent.builder()
+                .id(rs.getLong("id"))
+                .aggregateType(rs.getString("aggregate_type"))
+                .aggregateId(rs.getString("aggregate_id"))
+                .eventType(rs.getString("event_type"))
+                .payload(rs.getBytes("payload"))
+                .payloadFormat(EventFormat.valueOf(rs.getString("payload_format")))
+                .schemaVersion(rs.getInt("schema_version"))
+                .sent(rs.getBoolean("sent"))
+                .createdAt(toInstant(rs, "created_at"))
+                .sentAt(toInstant(rs, "sent_at"))
+                .retryCount(rs.getInt("retry_count"))
+                .claimedBy(rs.getString("claimed_by"))
+                .claimedUntil(toInstant(rs, "claimed_until"))
+                .nextAttemptAt(toInstant(rs, "next_attempt_at"))
+                .lastError(rs.getString("last_error"))
+                .build();
+    }
+
+    // timestamptz columns, the postgres driver reads and binds OffsetDateTime but not Instant
+    private static Instant toInstant(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+        return value == null ? null : value.toInstant();
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant == null ? null : instant.atOffset(ZoneOffset.UTC);
+    }
+}
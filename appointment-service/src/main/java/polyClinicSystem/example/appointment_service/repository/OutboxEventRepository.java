@@ -1,10 +1,13 @@
 package polyClinicSystem.example.appointment_service.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import polyClinicSystem.example.appointment_service.model.event.OutboxEvent;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
 
 /**
@@ -26,22 +29,93 @@ public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>
     List<OutboxEvent> findTop100BySentOrderByCreatedAtAsc(boolean sent);
 
     /**
-     * Find events by aggregate ID and event type.
-     * Used for idempotency check - prevent duplicate events for same action.
+     * Claim the (aggregate, event type) pair of a new event in outbox_event_keys (see V16 migration).
+     * Used for idempotency check - a retried action doesn't queue the same event again, sent or not.
+     * A concurrent claim of the same pair waits until the first transaction ends.
      *
-     * @param aggregateId The entity ID (appointment ID or reservation token)
-     * @param eventType The event type ("appointment.scheduled")
-     * @return List of matching events
+     * @param aggregateId The appointment ID
+     * @param eventType The event type ("appointment.payment.created")
+     * @return 0 if the pair was already claimed
      */
-    List<OutboxEvent> findByAggregateIdAndEventType(
-            String aggregateId,
-            String eventType
+    @Modifying
+    @Query(value = "INSERT INTO outbox_event_keys (aggregate_id, event_type, created_at) " +
+            "VALUES (:aggregateId, :eventType, :createdAt) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int claimEventKey(String aggregateId, String eventType, Instant createdAt);
+
+    /**
+     * Delete the event keys older than the retention period of the events.
+     * @return number of deleted keys
+     */
+    @Modifying
+    @Query(value = "DELETE FROM outbox_event_keys WHERE created_at < :cutoffTime", nativeQuery = true)
+    int deleteEventKeysBefore(Instant cutoffTime);
+
+    /**
+     * Mark a batch of claimed events as sent in one statement.
+     * Events whose claim was taken over by another instance are left alone.
+     * createdFrom and createdTo bound the created_at of the batch, so only the daily partitions of its events are scanned.
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.sent = true, e.sentAt = :sentAt, e.claimedBy = null, e.claimedUntil = null " +
+            "WHERE e.id IN :ids AND e.createdAt BETWEEN :createdFrom AND :createdTo AND e.claimedBy = :owner")
+    int markSent(List<Long> ids, Instant createdFrom, Instant createdTo, String owner, Instant sentAt);
+
+    /**
+     * Count one more failed publish attempt for a batch of claimed events, release them
+     * and push their next attempt back by baseMillis * 2^retryCount (capped at maxMillis) with 50% jitter,
+     * in one statement, bounded by the created_at range of the batch like markSent.
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET retry_count = retry_count + 1, last_error = :lastError, " +
+            "claimed_by = NULL, claimed_until = NULL, " +
+            "next_attempt_at = CAST(:now AS TIMESTAMPTZ) + make_interval(secs => " +
+            "LEAST(:baseMillis * power(2, retry_count), :maxMillis) * (0.5 + random() / 2) / 1000.0) " +
+            "WHERE id IN (:ids) AND created_at BETWEEN :createdFrom AND :createdTo AND claimed_by = :owner",
+            nativeQuery = true)
+    int releaseFailed(
+            List<Long> ids,
+            Instant createdFrom,
+            Instant createdTo,
+            String owner,
+            String lastError,
+            Instant now,
+            long baseMillis,
+            long maxMillis
     );
 
-    List<OutboxEvent> findTop100BySentFalseOrderByCreatedAtAsc();
+    /**
+     * Create the partition of outbox_events for a UTC day (see V12 migration).
+     * @return false if the partition already exists
+     */
+    @Query(value = "SELECT create_outbox_partition(:day)", nativeQuery = true)
+    boolean createDailyPartition(LocalDate day);
+
+    /**
+     * Drop the partition of outbox_events of a UTC day with all its events (see V14 migration).
+     * Fails with a lock timeout instead of queueing the booking transactions when the lock isn't granted in time.
+     * @param lockWaitMillis Max wait for the exclusive lock on outbox_events
+     * @return false if the partition doesn't exist or still has unsent events
+     */
+    @Query(value = "SELECT drop_outbox_partition(:day, :lockWaitMillis)", nativeQuery = true)
+    boolean dropDailyPartition(LocalDate day, int lockWaitMillis);
+
+    /**
+     * Get the names of all daily partitions of outbox_events, oldest first.
+     */
+    @Query(value = "SELECT c.relname FROM pg_class c " +
+            "WHERE c.relkind = 'r' AND c.relname ~ '^outbox_events_y[0-9]{4}m[0-9]{2}d[0-9]{2}$' " +
+            "ORDER BY c.relname",
+            nativeQuery = true)
+    List<String> findDailyPartitionNames();
 
     /**
-     * Find old sent events for cleanup
+     * Delete the old sent events that landed in the default partition (replayed events of dropped days).
+     * @return number of deleted events
      */
-    List<OutboxEvent> findBySentTrueAndSentAtBefore(Instant cutoffTime);
+    @Modifying
+    @Query(value = "DELETE FROM outbox_events_default WHERE sent = true AND sent_at < :cutoffTime", nativeQuery = true)
+    int deleteSentFromDefaultPartition(Instant cutoffTime);
 }
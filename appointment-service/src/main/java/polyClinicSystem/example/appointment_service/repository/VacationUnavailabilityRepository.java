@@ -3,6 +3,7 @@ package polyClinicSystem.example.appointment_service.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import polyClinicSystem.example.appointment_service.dto.projection.VacationDayView;
 import polyClinicSystem.example.appointment_service.model.entity.unavailability.VacationUnavailability;
 
 import java.util.List;
@@ -27,4 +28,13 @@ public interface VacationUnavailabilityRepository extends JpaRepository<Vacation
             String doctorKeycloakId,
             String dayOfWeek
     );
-}
\ No newline at end of file
+
+    /**
+     * Get the vacation days of many doctors in one query
+     * Used to build the availability calendar in memory
+     */
+    @Query("SELECT v.doctorKeycloakId AS doctorKeycloakId, d AS dayOfWeek " +
+            "FROM VacationUnavailability v JOIN v.daysOfWeek d " +
+            "WHERE v.doctorKeycloakId IN :doctorKeycloakIds")
+    List<VacationDayView> findVacationDays(List<String> doctorKeycloakIds);
+}
@@ -1,7 +1,9 @@
 package polyClinicSystem.example.appointment_service.service.Appointment;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import polyClinicSystem.example.appointment_service.dto.request.*;
+import polyClinicSystem.example.appointment_service.dto.response.AppointmentPageResponse;
 import polyClinicSystem.example.appointment_service.dto.response.AppointmentResponse;
 import polyClinicSystem.example.appointment_service.dto.response.AvailableSlotResponse;
 import polyClinicSystem.example.appointment_service.dto.response.ReservationResponse;
@@ -11,6 +13,7 @@ import java.util.List;
 public interface AppointmentService {
 
     AvailableSlotResponse getAvailableSlots(String doctorKeycloakId, LocalDate date, String requestingPatientId, HttpServletRequest request);
+    List<AvailableSlotResponse> getAvailabilityCalendar(List<String> doctorKeycloakIds, LocalDate fromDate, LocalDate toDate, String requestingPatientId, HttpServletRequest request);
     ReservationResponse reserveSlot(ReserveSlotRequest request, HttpServletRequest httpRequest);
     ReservationResponse rescheduleAppointment(RescheduleAppointmentRequest request, HttpServletRequest httpRequest);
     void createDayUnavailability(DayUnavailabilityRequest request, HttpServletRequest httpRequest);
@@ -18,5 +21,6 @@ public interface AppointmentService {
     void confirmPayment(ConfirmPaymentRequest request, HttpServletRequest httpRequest);
     AppointmentResponse adminApproval(AdminApprovalRequest request, HttpServletRequest httpRequest);
     AppointmentResponse getAppointmentById(Long id, HttpServletRequest httpRequest);
-    List<AppointmentResponse> getMyAppointments(String keycloakId, String role, HttpServletRequest httpRequest);
+    AppointmentPageResponse getMyAppointments(String keycloakId, String role, String cursor, Integer size, HttpServletRequest httpRequest);
+    StreamingResponseBody streamMyAppointments(String keycloakId, String role, HttpServletRequest httpRequest);
 }
\ No newline at end of file
@@ -1,38 +1,59 @@
 package polyClinicSystem.example.appointment_service.service.Appointment;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import polyClinicSystem.example.appointment_service.client.PaymentClient;
-import polyClinicSystem.example.appointment_service.client.UserClient;
+import polyClinicSystem.example.appointment_service.dto.projection.BookedSlotView;
+import polyClinicSystem.example.appointment_service.dto.projection.UnavailablePeriodView;
+import polyClinicSystem.example.appointment_service.dto.projection.VacationDayView;
 import polyClinicSystem.example.appointment_service.dto.request.*;
+import polyClinicSystem.example.appointment_service.dto.response.AppointmentPageResponse;
 import polyClinicSystem.example.appointment_service.dto.response.AppointmentResponse;
 import polyClinicSystem.example.appointment_service.dto.response.AvailableSlotResponse;
 import polyClinicSystem.example.appointment_service.dto.response.ReservationResponse;
-import polyClinicSystem.example.appointment_service.dto.response.UserResponse;
 import polyClinicSystem.example.appointment_service.exception.customExceptions.*;
 import polyClinicSystem.example.appointment_service.model.entity.Appointment;
 import polyClinicSystem.example.appointment_service.model.entity.unavailability.DayUnavailability;
 import polyClinicSystem.example.appointment_service.model.entity.unavailability.VacationUnavailability;
 import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.ReservationStrategy;
 import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.model.occupancy.SlotHolder;
+import polyClinicSystem.example.appointment_service.model.occupancy.SlotOccupancy;
+import polyClinicSystem.example.appointment_service.repository.AppointmentArchiveRepository;
+import polyClinicSystem.example.appointment_service.repository.AppointmentJdbcRepository;
 import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
 import polyClinicSystem.example.appointment_service.repository.DayUnavailabilityRepository;
 import polyClinicSystem.example.appointment_service.repository.VacationUnavailabilityRepository;
 import polyClinicSystem.example.appointment_service.service.ReservationLock.ReservationLockService;
+import polyClinicSystem.example.appointment_service.service.SlotOccupancy.SlotOccupancyService;
 import polyClinicSystem.example.appointment_service.service.kafka.outboxService.OutboxService;
 import polyClinicSystem.example.appointment_service.service.token.TokenService;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 @RequiredArgsConstructor
@@ -40,31 +61,50 @@ import java.util.stream.Collectors;
 public class AppointmentServiceImpl implements AppointmentService {
 
     private final AppointmentRepository appointmentRepository;
+    private final AppointmentJdbcRepository appointmentJdbcRepository;
+    private final AppointmentArchiveRepository appointmentArchiveRepository;
     private final DayUnavailabilityRepository dayUnavailabilityRepository;
     private final VacationUnavailabilityRepository vacationUnavailabilityRepository;
     private final OutboxService outboxService;
     private final PaymentClient paymentService;
     private final ReservationLockService reservationLockService;
+    private final SlotOccupancyService slotOccupancyService;
     private final TokenService tokenService;
-    private final UserClient userClient;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    // newest first order of "my appointments", the keyset cursor is the (appointmentDate, id) of the last row
+    private static final Comparator<AppointmentResponse> NEWEST_FIRST = Comparator
+            .comparing(AppointmentResponse::getAppointmentDate)
+            .thenComparing(AppointmentResponse::getId)
+            .reversed();
+    private static final LocalDate HISTORY_START = LocalDate.of(9999, 12, 31);
+    private static final Set<String> HISTORY_ROLES = Set.of("PATIENT", "DOCTOR", "NURSE");
 
     @Value("${appointment.reservation.ttl-minutes:10}")
     private int reservationTtlMinutes;
-    private UserResponse getCurrentUser(HttpServletRequest request) throws NotFoundException {
-        String userId = tokenService.extractUserId(request);
-        log.debug("Fetching current user with ID: {}", userId);
 
-        try {
-            return userClient.getUserByKeycloakId(userId);
-        } catch (Exception e) {
-            log.error("Failed to fetch user with ID: {}", userId, e);
-            throw new NotFoundException("User not found with id: " + userId);
-        }
-    }
+    @Value("${appointment.reservation.strategy:LOCK}")
+    private ReservationStrategy reservationStrategy;
+
+    @Value("${appointment.reservation.lock-wait-millis:2000}")
+    private long lockWaitMillis;
+
+    @Value("${appointment.history.default-page-size:20}")
+    private int historyDefaultPageSize;
+
+    @Value("${appointment.history.max-page-size:100}")
+    private int historyMaxPageSize;
+
+    @Value("${appointment.calendar.max-days:31}")
+    private int calendarMaxDays;
+
+    @Value("${appointment.calendar.max-doctors:50}")
+    private int calendarMaxDoctors;
 
     private String extractUserRole(HttpServletRequest request) {
-        UserResponse currentUser = getCurrentUser(request);
-        return currentUser.getRole().name();
+        // read from the token, no call to user-management
+        return tokenService.extractUserRole(request);
     }
 
     private void checkAdminAccess(HttpServletRequest request) {
@@ -93,12 +133,18 @@ public class AppointmentServiceImpl implements AppointmentService {
     }
 
     private void checkAppointmentOwnership(HttpServletRequest request, Appointment appointment) {
+        checkAppointmentOwnership(request, appointment.getPatientKeycloakId(),
+                appointment.getDoctorKeycloakId(), appointment.getNurseKeycloakId());
+    }
+
+    private void checkAppointmentOwnership(HttpServletRequest request, String patientKeycloakId,
+                                           String doctorKeycloakId, String nurseKeycloakId) {
         String currentUserId = tokenService.extractUserId(request);
         String role = extractUserRole(request);
 
-        boolean isOwner = currentUserId.equals(appointment.getPatientKeycloakId()) ||
-                currentUserId.equals(appointment.getDoctorKeycloakId()) ||
-                currentUserId.equals(appointment.getNurseKeycloakId());
+        boolean isOwner = currentUserId.equals(patientKeycloakId) ||
+                currentUserId.equals(doctorKeycloakId) ||
+                currentUserId.equals(nurseKeycloakId);
 
         if (!"ADMIN".equals(role) && !isOwner) {
             throw new AccessDeniedException("You can only access your own appointments");
@@ -109,65 +155,80 @@ public class AppointmentServiceImpl implements AppointmentService {
     public AvailableSlotResponse getAvailableSlots(String doctorKeycloakId, LocalDate date, String requestingPatientId, HttpServletRequest request) {
         log.debug("Fetching available slots for doctor: {} on date: {}", doctorKeycloakId, date);
 
-        // Get all booked periods for this doctor/date
-        List<Status> bookedStatuses = Arrays.asList(Status.PENDING, Status.PAID, Status.SCHEDULED);
-        List<Period> bookedPeriods = appointmentRepository.findBookedPeriods(doctorKeycloakId, date, bookedStatuses);
+        // Booked periods, day unavailability and vacation days come from the occupancy index
+        SlotOccupancy occupancy = slotOccupancyService.getOccupancy(doctorKeycloakId, date);
+        AvailableSlotResponse response = toAvailableSlotResponse(doctorKeycloakId, date, occupancy, requestingPatientId);
 
-        // Get unavailable periods from DayUnavailability
-        List<Period> unavailablePeriods = getUnavailablePeriodsForDate(doctorKeycloakId, date);
+        log.info("Found {} available and {} booked slots for doctor {} on {}",
+                response.getAvailableSlots().size(), response.getBookedSlots().size(), doctorKeycloakId, date);
+
+        return response;
+    }
 
-        // Combine booked and unavailable periods
-        Set<Period> occupiedPeriods = new HashSet<>();
-        occupiedPeriods.addAll(bookedPeriods);
-        occupiedPeriods.addAll(unavailablePeriods);
+    @Override
+    @Transactional(readOnly = true)
+    public List<AvailableSlotResponse> getAvailabilityCalendar(List<String> doctorKeycloakIds, LocalDate fromDate, LocalDate toDate,
+                                                               String requestingPatientId, HttpServletRequest request) {
+        log.debug("Fetching availability calendar for {} doctors from {} to {}", doctorKeycloakIds.size(), fromDate, toDate);
+
+        List<String> doctorIds = doctorKeycloakIds.stream().distinct().toList();
+        if (doctorIds.isEmpty()) {
+            throw new BadRequestException("At least one doctor is required");
+        }
+        if (doctorIds.size() > calendarMaxDoctors) {
+            throw new BadRequestException("Calendar supports at most " + calendarMaxDoctors + " doctors");
+        }
+        if (toDate.isBefore(fromDate)) {
+            throw new BadRequestException("End date must not be before start date");
+        }
+        if (ChronoUnit.DAYS.between(fromDate, toDate) >= calendarMaxDays) {
+            throw new BadRequestException("Calendar supports at most " + calendarMaxDays + " days");
+        }
 
-        // Get all possible periods
-        List<Period> allPeriods = Arrays.asList(Period.values());
+        // One query per source for the whole range, the bitmaps are put together in memory
+        Map<String, Map<LocalDate, Integer>> bookedMasks = new HashMap<>();
+        Map<String, Map<LocalDate, Map<Period, SlotHolder>>> holders = new HashMap<>();
+        for (BookedSlotView slot : appointmentRepository.findBookedSlotsInRange(doctorIds, fromDate, toDate,
+                Arrays.asList(Status.PENDING, Status.PAID, Status.SCHEDULED))) {
+            bookedMasks.computeIfAbsent(slot.getDoctorKeycloakId(), k -> new HashMap<>())
+                    .merge(slot.getAppointmentDate(), SlotOccupancy.bitOf(slot.getPeriod()), (x, y) -> x | y);
+            holders.computeIfAbsent(slot.getDoctorKeycloakId(), k -> new HashMap<>())
+                    .computeIfAbsent(slot.getAppointmentDate(), k -> new EnumMap<>(Period.class))
+                    .put(slot.getPeriod(), new SlotHolder(slot.getReservationToken(), slot.getPatientKeycloakId(),
+                            slot.getExpiresAt(), slot.getStatus()));
+        }
 
-        // Calculate available periods
-        List<AvailableSlotResponse.SlotInfo> availableSlots = new ArrayList<>();
-        List<AvailableSlotResponse.SlotInfo> bookedSlots = new ArrayList<>();
+        for (UnavailablePeriodView unavailable : dayUnavailabilityRepository
+                .findUnavailablePeriodsInRange(doctorIds, fromDate, toDate)) {
+            bookedMasks.computeIfAbsent(unavailable.getDoctorKeycloakId(), k -> new HashMap<>())
+                    .merge(unavailable.getAppointmentDate(), SlotOccupancy.bitOf(unavailable.getPeriod()), (x, y) -> x | y);
+        }
 
-        for (Period period : allPeriods) {
-            boolean isOccupied = occupiedPeriods.contains(period);
+        Map<String, Integer> vacationDays = new HashMap<>();
+        for (VacationDayView vacation : vacationUnavailabilityRepository.findVacationDays(doctorIds)) {
+            vacationDays.merge(vacation.getDoctorKeycloakId(),
+                    SlotOccupancy.dayMaskOf(List.of(vacation.getDayOfWeek())), (x, y) -> x | y);
+        }
 
-            AvailableSlotResponse.SlotInfo slotInfo = AvailableSlotResponse.SlotInfo.builder()
-                    .period(period)
-                    .available(!isOccupied)
-                    .build();
+        List<AvailableSlotResponse> calendar = new ArrayList<>();
+        for (String doctorId : doctorIds) {
+            Map<LocalDate, Integer> doctorMasks = bookedMasks.getOrDefault(doctorId, Map.of());
+            Map<LocalDate, Map<Period, SlotHolder>> doctorHolders = holders.getOrDefault(doctorId, Map.of());
+            int doctorVacationDays = vacationDays.getOrDefault(doctorId, 0);
 
-            // If requesting patient has a pending reservation, include token
-            if (requestingPatientId != null && isOccupied) {
-                Optional<Appointment> patientReservation = appointmentRepository
-                        .findByDoctorKeycloakIdAndAppointmentDate(doctorKeycloakId, date)
-                        .stream()
-                        .filter(a -> a.getPatientKeycloakId().equals(requestingPatientId)
-                                && a.getPeriod() == period
-                                && (a.getStatus() == Status.PENDING || a.getStatus() == Status.PAID))
-                        .findFirst();
-
-                if (patientReservation.isPresent()) {
-                    slotInfo.setReservationToken(patientReservation.get().getReservationToken());
-                    slotInfo.setExpiresAt(patientReservation.get().getExpiresAt());
+            for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1)) {
+                int occupied = doctorMasks.getOrDefault(date, 0);
+                if ((doctorVacationDays & SlotOccupancy.bitOf(date.getDayOfWeek())) != 0) {
+                    occupied |= SlotOccupancy.ALL_PERIODS_MASK;
                 }
-            }
 
-            if (isOccupied) {
-                bookedSlots.add(slotInfo);
-            } else {
-                availableSlots.add(slotInfo);
+                SlotOccupancy occupancy = new SlotOccupancy(occupied, doctorHolders.getOrDefault(date, Map.of()));
+                calendar.add(toAvailableSlotResponse(doctorId, date, occupancy, requestingPatientId));
             }
         }
 
-        log.info("Found {} available and {} booked slots for doctor {} on {}",
-                availableSlots.size(), bookedSlots.size(), doctorKeycloakId, date);
-
-        return AvailableSlotResponse.builder()
-                .doctorKeycloakId(doctorKeycloakId)
-                .date(date)
-                .availableSlots(availableSlots)
-                .bookedSlots(bookedSlots)
-                .build();
+        log.info("Built availability calendar with {} doctor days", calendar.size());
+        return calendar;
     }
 
     @Override
@@ -189,22 +250,68 @@ public class AppointmentServiceImpl implements AppointmentService {
         // Check doctor unavailability
         checkDoctorAvailability(request.getDoctorKeycloakId(), request.getAppointmentDate(), request.getPeriod());
 
-        String lockKey = buildLockKey(request.getDoctorKeycloakId(), request.getAppointmentDate(), request.getPeriod());
+        // Create reservation
+        String reservationToken = UUID.randomUUID().toString();
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(reservationTtlMinutes));
+
+        Appointment appointment = Appointment.builder()
+                .doctorKeycloakId(request.getDoctorKeycloakId())
+                .patientKeycloakId(request.getPatientKeycloakId())
+                .appointmentDate(request.getAppointmentDate())
+                .period(request.getPeriod())
+                .status(Status.PENDING)
+                .reason(request.getReason())
+                .reservationToken(reservationToken)
+                .expiresAt(expiresAt)
+                .notes(request.getNotes())
+                .build();
+
+        Appointment saved = switch (reservationStrategy) {
+            case OPTIMISTIC -> reserveOptimistically(appointment);
+            case LOCK -> reserveWithLock(appointment);
+        };
+        slotOccupancyService.markBooked(saved);
+
+        log.info("Slot reserved successfully: appointmentId={}, token={}",
+                saved.getId(), reservationToken);
+
+        return ReservationResponse.builder()
+                .reservationToken(reservationToken)
+                .expiresAt(expiresAt)
+                .appointmentId(saved.getId())
+                .message("Slot reserved successfully. Please complete payment within " + reservationTtlMinutes + " minutes.")
+                .build();
+    }
+
+    /**
+     * Redis lock + fence check + exists check + insert, the lock serializes patients clicking the same slot
+     */
+    private Appointment reserveWithLock(Appointment appointment) {
+        String lockKey = buildLockKey(appointment.getDoctorKeycloakId(), appointment.getAppointmentDate(), appointment.getPeriod());
 
-        // Try to acquire distributed lock
-        boolean lockAcquired = reservationLockService.tryLock(lockKey, Duration.ofSeconds(5));
+        // Try to acquire distributed lock, waiting a bit if another patient is reserving the same slot
+        String lockToken = reservationLockService.tryLock(lockKey, Duration.ofSeconds(5),
+                Duration.ofMillis(lockWaitMillis));
 
-        if (!lockAcquired) {
+        if (lockToken == null) {
             log.warn("Could not acquire lock for slot reservation: {}", lockKey);
             throw new ConflictException("Slot is currently being reserved by another patient");
         }
 
         try {
+            // The lease may have run out while we were paused, a newer holder's fence wins the write
+            Long fence = reservationLockService.fenceOf(lockToken);
+            if (fence != null && !appointmentJdbcRepository.claimSlotFence(appointment.getDoctorKeycloakId(),
+                    appointment.getAppointmentDate(), appointment.getPeriod().name(), fence)) {
+                log.warn("Reservation lock {} was taken over by a newer holder (fence {})", lockKey, fence);
+                throw new ConflictException("Slot is currently being reserved by another patient");
+            }
+
             // Double-check slot availability
             boolean slotExists = appointmentRepository.existsByDoctorKeycloakIdAndAppointmentDateAndPeriodAndStatusIn(
-                    request.getDoctorKeycloakId(),
-                    request.getAppointmentDate(),
-                    request.getPeriod(),
+                    appointment.getDoctorKeycloakId(),
+                    appointment.getAppointmentDate(),
+                    appointment.getPeriod(),
                     Arrays.asList(Status.PENDING, Status.PAID, Status.SCHEDULED)
             );
 
@@ -212,45 +319,45 @@ public class AppointmentServiceImpl implements AppointmentService {
                 throw new ConflictException("Slot is already reserved");
             }
 
-            // Create reservation
-            String reservationToken = UUID.randomUUID().toString();
-            Instant expiresAt = Instant.now().plus(Duration.ofMinutes(reservationTtlMinutes));
-
-            Appointment appointment = Appointment.builder()
-                    .doctorKeycloakId(request.getDoctorKeycloakId())
-                    .patientKeycloakId(request.getPatientKeycloakId())
-                    .appointmentDate(request.getAppointmentDate())
-                    .period(request.getPeriod())
-                    .status(Status.PENDING)
-                    .reason(request.getReason())
-                    .reservationToken(reservationToken)
-                    .expiresAt(expiresAt)
-                    .notes(request.getNotes())
-                    .build();
-
             try {
-                Appointment saved = appointmentRepository.save(appointment);
-
-                log.info("Slot reserved successfully: appointmentId={}, token={}",
-                        saved.getId(), reservationToken);
-
-                return ReservationResponse.builder()
-                        .reservationToken(reservationToken)
-                        .expiresAt(expiresAt)
-                        .appointmentId(saved.getId())
-                        .message("Slot reserved successfully. Please complete payment within " + reservationTtlMinutes + " minutes.")
-                        .build();
-
+                return appointmentRepository.save(appointment);
             } catch (DataIntegrityViolationException e) {
                 log.error("Unique constraint violation while reserving slot", e);
                 throw new ConflictException("Slot is already reserved");
             }
 
         } finally {
-            reservationLockService.unlock(lockKey);
+            releaseLockAfterCompletion(lockKey, lockToken);
         }
     }
 
+    /**
+     * One insert-or-conflict statement, no redis round trips and no exists check.
+     * The unique index on (doctor, date, period) decides who gets the slot.
+     */
+    private Appointment reserveOptimistically(Appointment appointment) {
+        Instant now = Instant.now();
+
+        Long id = appointmentJdbcRepository.insertIfSlotFree(
+                appointment.getDoctorKeycloakId(),
+                appointment.getPatientKeycloakId(),
+                appointment.getAppointmentDate(),
+                appointment.getPeriod().name(),
+                appointment.getStatus().name(),
+                appointment.getReason() == null ? null : appointment.getReason().name(),
+                appointment.getReservationToken(),
+                appointment.getExpiresAt(),
+                appointment.getNotes(),
+                now
+        ).orElseThrow(() -> new ConflictException("Slot is already reserved"));
+
+        appointment.setId(id);
+        appointment.setVersion(0L);
+        appointment.setCreatedAt(now);
+        appointment.setUpdatedAt(now);
+        return appointment;
+    }
+
     @Override
     @Transactional
     public ReservationResponse rescheduleAppointment(RescheduleAppointmentRequest request, HttpServletRequest httpRequest) {
@@ -272,6 +379,7 @@ public class AppointmentServiceImpl implements AppointmentService {
         // Cancel old appointment
         oldAppointment.setStatus(Status.CANCELLED);
         appointmentRepository.save(oldAppointment);
+        slotOccupancyService.release(oldAppointment);
 
         // Publish cancellation event
         outboxService.publishAppointmentCancelledEvent(oldAppointment, "Rescheduled to new slot");
@@ -307,6 +415,7 @@ public class AppointmentServiceImpl implements AppointmentService {
         unavailability.setPeriods(request.getPeriods());
 
         dayUnavailabilityRepository.save(unavailability);
+        slotOccupancyService.markUnavailable(request.getDoctorKeycloakId(), request.getDate(), request.getPeriods());
 
         // Cancel existing appointments matching these periods
         List<Appointment> appointmentsToCancel = appointmentRepository
@@ -332,12 +441,16 @@ public class AppointmentServiceImpl implements AppointmentService {
 
         checkDoctorAccess(httpRequest, request.getDoctorKeycloakId());
 
+        // stored in the one form the booking check, the cancellation below and the occupancy cache all match
+        List<String> daysOfWeek = normalizeDaysOfWeek(request.getDaysOfWeek());
+
         // Create unavailability record
         VacationUnavailability unavailability = new VacationUnavailability();
         unavailability.setDoctorKeycloakId(request.getDoctorKeycloakId());
-        unavailability.setDaysOfWeek(request.getDaysOfWeek());
+        unavailability.setDaysOfWeek(daysOfWeek);
 
         vacationUnavailabilityRepository.save(unavailability);
+        slotOccupancyService.markVacation(request.getDoctorKeycloakId(), daysOfWeek);
 
         // Cancel existing appointments matching vacation days
         List<Appointment> allAppointments = appointmentRepository
@@ -345,11 +458,7 @@ public class AppointmentServiceImpl implements AppointmentService {
 
         List<Appointment> appointmentsToCancel = allAppointments.stream()
                 .filter(a -> a.getStatus() == Status.PAID || a.getStatus() == Status.SCHEDULED)
-                .filter(a -> {
-                    String dayName = a.getAppointmentDate().getDayOfWeek()
-                            .getDisplayName(TextStyle.FULL, Locale.ENGLISH);
-                    return request.getDaysOfWeek().contains(dayName);
-                })
+                .filter(a -> daysOfWeek.contains(SlotOccupancy.dayNameOf(a.getAppointmentDate().getDayOfWeek())))
                 .collect(Collectors.toList());
 
         for (Appointment appointment : appointmentsToCancel) {
@@ -400,6 +509,7 @@ public class AppointmentServiceImpl implements AppointmentService {
         appointment.setStatus(Status.PAID);
         appointment.setPaymentId(request.getPaymentId());
         appointmentRepository.save(appointment);
+        slotOccupancyService.markBooked(appointment);
 
         // Publish event to outbox
         outboxService.publishPaymentConfirmedEvent(appointment);
@@ -435,45 +545,174 @@ public class AppointmentServiceImpl implements AppointmentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public AppointmentResponse getAppointmentById(Long id, HttpServletRequest httpRequest) {
         log.debug("Fetching appointment: {}", id);
 
-        Appointment appointment = appointmentRepository.findById(id)
+        // read straight into the dto, archived appointments are still visible to their owners
+        AppointmentResponse appointment = appointmentRepository.findResponseById(id)
+                .or(() -> appointmentArchiveRepository.findResponseById(id))
                 .orElseThrow(() -> new NotFoundException("Appointment not found with id: " + id));
 
-        checkAppointmentOwnership(httpRequest, appointment);
+        checkAppointmentOwnership(httpRequest, appointment.getPatientKeycloakId(),
+                appointment.getDoctorKeycloakId(), appointment.getNurseKeycloakId());
+
+        return appointment;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AppointmentPageResponse getMyAppointments(String keycloakId, String role, String cursor, Integer size,
+                                                     HttpServletRequest httpRequest) {
+        log.debug("Fetching appointments page for user: {}, role: {}, cursor: {}", keycloakId, role, cursor);
 
-        return toResponse(appointment);
+        checkOwnHistory(keycloakId, role, httpRequest);
+
+        int pageSize = size == null ? historyDefaultPageSize : size;
+        if (pageSize < 1) {
+            throw new BadRequestException("Page size must be positive");
+        }
+        pageSize = Math.min(pageSize, historyMaxPageSize);
+
+        LocalDate beforeDate = HISTORY_START;
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            beforeDate = LocalDate.parse(position[0]);
+            beforeId = Long.parseLong(position[1]);
+        }
+
+        // one extra row tells if there is a next page
+        List<AppointmentResponse> rows;
+        try (Stream<AppointmentResponse> history = historyStream(keycloakId, role, beforeDate, beforeId, Limit.of(pageSize + 1))) {
+            rows = history.limit(pageSize + 1).collect(Collectors.toList());
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        List<AppointmentResponse> page = hasNext ? rows.subList(0, pageSize) : rows;
+        AppointmentResponse last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return AppointmentPageResponse.builder()
+                .appointments(page)
+                .nextCursor(hasNext ? encodeCursor(last) : null)
+                .hasNext(hasNext)
+                .build();
     }
 
     @Override
-    public List<AppointmentResponse> getMyAppointments(String keycloakId, String role, HttpServletRequest httpRequest) {
-        log.debug("Fetching appointments for user: {}, role: {}", keycloakId, role);
+    public StreamingResponseBody streamMyAppointments(String keycloakId, String role, HttpServletRequest httpRequest) {
+        log.debug("Streaming appointments for user: {}, role: {}", keycloakId, role);
+
+        // checked before the body is written, the stream itself runs on an async thread
+        checkOwnHistory(keycloakId, role, httpRequest);
+
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        return outputStream -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<AppointmentResponse> history =
+                         historyStream(keycloakId, role, HISTORY_START, Long.MAX_VALUE, Limit.unlimited())) {
+                Iterator<AppointmentResponse> rows = history.iterator();
+                while (rows.hasNext()) {
+                    outputStream.write(objectMapper.writeValueAsBytes(rows.next()));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to stream appointments", e);
+            }
+        });
+    }
 
+    private void checkOwnHistory(String keycloakId, String role, HttpServletRequest httpRequest) {
         String currentUserId = tokenService.extractUserId(httpRequest);
         if (!currentUserId.equals(keycloakId)) {
             throw new AccessDeniedException("You can only view your own appointments");
         }
 
-        List<Appointment> appointments;
+        if (!HISTORY_ROLES.contains(role.toUpperCase())) {
+            throw new BadRequestException("Invalid role: " + role);
+        }
+    }
 
+    /*
+    read paths run in readOnly transactions: spring switches the hibernate session to FlushMode.MANUAL and
+    read only entities there, and the queries select into AppointmentResponse so nothing enters the persistence context.
+    recent history lives in appointments, older history was moved to appointments_archive by the retention job.
+    both queries walk their (role column, appointment_date, id) index from the cursor and are merged lazily,
+    so only fetch size rows of each table are in memory at a time
+     */
+    private Stream<AppointmentResponse> historyStream(String keycloakId, String role, LocalDate beforeDate,
+                                                      Long beforeId, Limit limit) {
         switch (role.toUpperCase()) {
             case "PATIENT":
-                appointments = appointmentRepository.findByPatientKeycloakIdOrderByAppointmentDateDesc(keycloakId);
-                break;
+                return mergeNewestFirst(
+                        appointmentRepository.streamPatientHistory(keycloakId, beforeDate, beforeId, limit),
+                        appointmentArchiveRepository.streamPatientHistory(keycloakId, beforeDate, beforeId, limit));
             case "DOCTOR":
-                appointments = appointmentRepository.findByDoctorKeycloakIdOrderByAppointmentDateDesc(keycloakId);
-                break;
+                return mergeNewestFirst(
+                        appointmentRepository.streamDoctorHistory(keycloakId, beforeDate, beforeId, limit),
+                        appointmentArchiveRepository.streamDoctorHistory(keycloakId, beforeDate, beforeId, limit));
             case "NURSE":
-                appointments = appointmentRepository.findByNurseKeycloakIdOrderByAppointmentDateDesc(keycloakId);
-                break;
+                return mergeNewestFirst(
+                        appointmentRepository.streamNurseHistory(keycloakId, beforeDate, beforeId, limit),
+                        appointmentArchiveRepository.streamNurseHistory(keycloakId, beforeDate, beforeId, limit));
             default:
                 throw new BadRequestException("Invalid role: " + role);
         }
+    }
 
-        return appointments.stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    private static Stream<AppointmentResponse> mergeNewestFirst(Stream<AppointmentResponse> recent,
+                                                                Stream<AppointmentResponse> archived) {
+        Iterator<AppointmentResponse> recentRows = recent.iterator();
+        Iterator<AppointmentResponse> archivedRows = archived.iterator();
+
+        Iterator<AppointmentResponse> merged = new Iterator<>() {
+            private AppointmentResponse nextRecent = recentRows.hasNext() ? recentRows.next() : null;
+            private AppointmentResponse nextArchived = archivedRows.hasNext() ? archivedRows.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextRecent != null || nextArchived != null;
+            }
+
+            @Override
+            public AppointmentResponse next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                AppointmentResponse row;
+                if (nextArchived == null || (nextRecent != null && NEWEST_FIRST.compare(nextRecent, nextArchived) <= 0)) {
+                    row = nextRecent;
+                    nextRecent = recentRows.hasNext() ? recentRows.next() : null;
+                } else {
+                    row = nextArchived;
+                    nextArchived = archivedRows.hasNext() ? archivedRows.next() : null;
+                }
+                return row;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(recent::close)
+                .onClose(archived::close);
+    }
+
+    private String encodeCursor(AppointmentResponse last) {
+        String position = last.getAppointmentDate() + "_" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("_");
+            LocalDate.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
     }
 
 
@@ -489,6 +728,7 @@ public class AppointmentServiceImpl implements AppointmentService {
             appointment.setStatus(Status.CANCELLED);
             appointment.setNotes(reason);
             appointmentRepository.save(appointment);
+            slotOccupancyService.release(appointment);
 
             // Publish cancellation event
             outboxService.publishAppointmentCancelledEvent(appointment, reason);
@@ -538,6 +778,7 @@ public class AppointmentServiceImpl implements AppointmentService {
             appointment.setStatus(Status.SCHEDULED);
 
             Appointment saved = appointmentRepository.save(appointment);
+            slotOccupancyService.markBooked(saved);
 
             // Publish scheduled event to outbox
             outboxService.publishAppointmentScheduledEvent(saved);
@@ -564,6 +805,7 @@ public class AppointmentServiceImpl implements AppointmentService {
             appointment.setNotes(request.getRejectionReason());
 
             Appointment saved = appointmentRepository.save(appointment);
+            slotOccupancyService.release(saved);
 
             // Publish rejected event to outbox
             outboxService.publishAppointmentRejectedEvent(saved, request.getRejectionReason());
@@ -588,7 +830,7 @@ public class AppointmentServiceImpl implements AppointmentService {
         }
 
         // Check vacation unavailability
-        String dayOfWeek = date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+        String dayOfWeek = SlotOccupancy.dayNameOf(date.getDayOfWeek());
         boolean onVacation = vacationUnavailabilityRepository
                 .existsByDoctorAndDayOfWeek(doctorKeycloakId, dayOfWeek);
 
@@ -597,18 +839,85 @@ public class AppointmentServiceImpl implements AppointmentService {
         }
     }
 
-    private List<Period> getUnavailablePeriodsForDate(String doctorKeycloakId, LocalDate date) {
-        List<DayUnavailability> dayUnavailabilities = dayUnavailabilityRepository
-                .findByDoctorKeycloakIdAndAppointmentDate(doctorKeycloakId, date);
+    /**
+     * Turn the requested vacation days ("monday", " MONDAY ") into the stored form ("Monday")
+     */
+    private List<String> normalizeDaysOfWeek(List<String> daysOfWeek) {
+        List<String> normalized = new ArrayList<>();
+        for (String day : daysOfWeek) {
+            DayOfWeek dayOfWeek;
+            try {
+                dayOfWeek = DayOfWeek.valueOf(String.valueOf(day).trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Invalid day of week: " + day);
+            }
+            String dayName = SlotOccupancy.dayNameOf(dayOfWeek);
+            if (!normalized.contains(dayName)) {
+                normalized.add(dayName);
+            }
+        }
+        return normalized;
+    }
 
-        return dayUnavailabilities.stream()
-                .flatMap(u -> u.getPeriods().stream())
-                .distinct()
-                .collect(Collectors.toList());
+    private AvailableSlotResponse toAvailableSlotResponse(String doctorKeycloakId, LocalDate date,
+                                                          SlotOccupancy occupancy, String requestingPatientId) {
+        List<AvailableSlotResponse.SlotInfo> availableSlots = new ArrayList<>();
+        List<AvailableSlotResponse.SlotInfo> bookedSlots = new ArrayList<>();
+
+        for (Period period : Period.values()) {
+            boolean isOccupied = occupancy.isOccupied(period);
+
+            AvailableSlotResponse.SlotInfo slotInfo = AvailableSlotResponse.SlotInfo.builder()
+                    .period(period)
+                    .available(!isOccupied)
+                    .build();
+
+            // If requesting patient has a pending reservation, include token
+            if (requestingPatientId != null && isOccupied) {
+                SlotHolder holder = occupancy.getHolders().get(period);
+
+                if (holder != null && holder.isHeldBy(requestingPatientId)
+                        && (holder.getStatus() == Status.PENDING || holder.getStatus() == Status.PAID)) {
+                    slotInfo.setReservationToken(holder.getReservationToken());
+                    slotInfo.setExpiresAt(holder.getExpiresAt());
+                }
+            }
+
+            if (isOccupied) {
+                bookedSlots.add(slotInfo);
+            } else {
+                availableSlots.add(slotInfo);
+            }
+        }
+
+        return AvailableSlotResponse.builder()
+                .doctorKeycloakId(doctorKeycloakId)
+                .date(date)
+                .availableSlots(availableSlots)
+                .bookedSlots(bookedSlots)
+                .build();
+    }
+
+    /**
+     * The lock is released once the reservation is committed, so a patient
+     * who waited for it sees the new row instead of failing on the unique constraint
+     */
+    private void releaseLockAfterCompletion(String lockKey, String lockToken) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    reservationLockService.unlock(lockKey, lockToken);
+                }
+            });
+        } else {
+            reservationLockService.unlock(lockKey, lockToken);
+        }
     }
 
     private String buildLockKey(String doctorId, LocalDate date, Period period) {
-        return String.format("appointment:lock:%s:%s:%s", doctorId, date, period);
+        // {} keeps the lock and its fence counter on the same redis cluster slot
+        return String.format("appointment:lock:{%s:%s:%s}", doctorId, date, period);
     }
 
     private AppointmentResponse toResponse(Appointment appointment) {
@@ -630,4 +939,4 @@ public class AppointmentServiceImpl implements AppointmentService {
                 .notes(appointment.getNotes())
                 .build();
     }
-}
\ No newline at end of file
+}
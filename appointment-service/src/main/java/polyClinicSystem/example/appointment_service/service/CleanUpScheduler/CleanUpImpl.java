@@ -2,12 +2,18 @@ package polyClinicSystem.example.appointment_service.service.CleanUpScheduler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import polyClinicSystem.example.appointment_service.dto.projection.BookedSlotView;
 import polyClinicSystem.example.appointment_service.model.entity.Appointment;
 import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.repository.AppointmentJdbcRepository;
 import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
+import polyClinicSystem.example.appointment_service.service.Retention.RetentionService;
+import polyClinicSystem.example.appointment_service.service.SlotOccupancy.SlotOccupancyService;
 import polyClinicSystem.example.appointment_service.service.kafka.outboxService.OutboxService;
 
 import java.time.Instant;
@@ -21,75 +27,96 @@ import java.util.List;
 public class CleanUpImpl implements CleanUpService {
 
     private final AppointmentRepository appointmentRepository;
+    private final AppointmentJdbcRepository appointmentJdbcRepository;
     private final OutboxService outboxService;
+    private final SlotOccupancyService slotOccupancyService;
+    private final TransactionTemplate transactionTemplate;
+    private final RetentionService retentionService;
+
+    @Value("${appointment.cleanup.expiry-batch-size:500}")
+    private int expiryBatchSize;
+
+    @Value("${appointment.cleanup.completion-batch-size:500}")
+    private int completionBatchSize;
+
+    @Value("${appointment.retention.days:30}")
+    private int retentionDays;
 
     /**
      * Runs every 2 minutes to clean up expired PENDING reservations
+     * in chunks of expiryBatchSize, each chunk is its own short transaction
      */
     @Scheduled(fixedDelay = 120000, initialDelay = 60000) // 2 minutes
-    @Transactional
     public void cleanupExpiredReservations() {
         log.debug("Starting cleanup of expired reservations");
 
         try {
             Instant cutoffTime = Instant.now();
+            int expiredCount = 0;
+            int chunkSize;
 
-            List<Appointment> expiredReservations = appointmentRepository.findByStatusAndExpiresAtBefore(
-                    Status.PENDING,
-                    cutoffTime
-            );
+            do {
+                List<Long> expiredIds = transactionTemplate.execute(status -> expireChunk(cutoffTime));
+                chunkSize = expiredIds == null ? 0 : expiredIds.size();
+                expiredCount += chunkSize;
+            } while (chunkSize == expiryBatchSize);
 
-            if (!expiredReservations.isEmpty()) {
-                log.info("Found {} expired reservations to clean up", expiredReservations.size());
+            if (expiredCount > 0) {
+                log.info("Successfully cleaned up {} expired reservations", expiredCount);
+            }
 
-                for (Appointment appointment : expiredReservations) {
-                    appointment.setStatus(Status.EXPIRED);
-                    appointmentRepository.save(appointment);
+        } catch (Exception e) {
+            log.error("Error during reservation cleanup", e);
+        }
+    }
 
-                    log.debug("Marked appointment {} as EXPIRED", appointment.getId());
-                }
+    private List<Long> expireChunk(Instant cutoffTime) {
+        List<Long> expiredIds = appointmentJdbcRepository.expirePendingBatch(cutoffTime, Instant.now(), expiryBatchSize);
 
-                log.info("Successfully cleaned up {} expired reservations", expiredReservations.size());
+        if (!expiredIds.isEmpty()) {
+            // Free the slots in the occupancy cache once this chunk commits
+            for (BookedSlotView slot : appointmentRepository.findSlotsByIdIn(expiredIds)) {
+                slotOccupancyService.release(slot.getDoctorKeycloakId(), slot.getAppointmentDate(),
+                        slot.getPeriod(), slot.getReservationToken());
             }
 
-        } catch (Exception e) {
-            log.error("Error during reservation cleanup", e);
+            log.debug("Marked {} appointments as EXPIRED", expiredIds.size());
         }
+
+        return expiredIds;
     }
 
     /**
      * Runs every day at 1:00 AM to mark past SCHEDULED appointments as COMPLETED
+     * in batches of completionBatchSize, each batch is its own transaction
      */
     @Scheduled(cron = "0 0 1 * * *") // Every day at 1:00 AM
-    @Transactional
     public void markCompletedAppointments() {
         log.debug("Starting marking of completed appointments");
 
         try {
             LocalDate today = LocalDate.now();
+            long afterId = 0L;
+            int completedCount = 0;
 
-            // Find all SCHEDULED appointments with date before today
-            List<Appointment> scheduledAppointments = appointmentRepository
-                    .findByStatusOrderByAppointmentDateAsc(Status.SCHEDULED);
-
-            List<Appointment> pastAppointments = scheduledAppointments.stream()
-                    .filter(appointment -> appointment.getAppointmentDate().isBefore(today))
-                    .toList();
-
-            if (!pastAppointments.isEmpty()) {
-                log.info("Found {} past scheduled appointments to mark as completed", pastAppointments.size());
+            while (true) {
+                long lastId = afterId;
+                List<Long> completedIds = transactionTemplate.execute(status -> completeBatch(today, lastId));
 
-                for (Appointment appointment : pastAppointments) {
-                    appointment.setStatus(Status.COMPLETED);
-                    Appointment saved = appointmentRepository.save(appointment);
+                if (completedIds == null || completedIds.isEmpty()) {
+                    break;
+                }
 
-                    // Publish completed event
-                    outboxService.publishAppointmentCompletedEvent(saved);
+                completedCount += completedIds.size();
+                afterId = completedIds.get(completedIds.size() - 1);
 
-                    log.debug("Marked appointment {} as COMPLETED", appointment.getId());
+                if (completedIds.size() < completionBatchSize) {
+                    break;
                 }
+            }
 
-                log.info("Successfully marked {} appointments as COMPLETED", pastAppointments.size());
+            if (completedCount > 0) {
+                log.info("Successfully marked {} appointments as COMPLETED", completedCount);
             }
 
         } catch (Exception e) {
@@ -97,53 +124,54 @@ public class CleanUpImpl implements CleanUpService {
         }
     }
 
+    private List<Long> completeBatch(LocalDate today, long afterId) {
+        // Find the next SCHEDULED appointments with date before today
+        List<Appointment> pastAppointments = appointmentRepository.findBatchByStatusBefore(
+                Status.SCHEDULED, today, afterId, Limit.of(completionBatchSize));
+
+        for (Appointment appointment : pastAppointments) {
+            appointment.setStatus(Status.COMPLETED);
+            Appointment saved = appointmentRepository.save(appointment);
+            slotOccupancyService.release(saved);
+
+            // Publish completed event
+            outboxService.publishAppointmentCompletedEvent(saved);
+
+            log.debug("Marked appointment {} as COMPLETED", appointment.getId());
+        }
+
+        return pastAppointments.stream().map(Appointment::getId).toList();
+    }
+
     /**
-     * Runs every day at 2:00 AM to delete old appointments
-     * Deletes appointments that are CANCELLED, EXPIRED, COMPLETED, or REJECTED
-     * and are older than 30 days
+     * Runs every day at 2:00 AM to archive old appointments
+     * Moves the CANCELLED, EXPIRED, COMPLETED, or REJECTED appointments of the months that ended
+     * more than retentionDays (30 by default) ago to appointments_archive, the other rows stay in appointments
      */
     @Scheduled(cron = "0 0 2 * * *") // Every day at 2:00 AM
-    @Transactional
-    public void deleteOldAppointments() {
-        log.debug("Starting deletion of old appointments");
+    public void archiveOldAppointments() {
+        log.debug("Starting archiving of old appointments");
 
         try {
-            LocalDate cutoffDate = LocalDate.now().minusDays(30);
+            LocalDate cutoffDate = LocalDate.now().minusDays(retentionDays);
 
-            List<Status> statusesToDelete = Arrays.asList(
+            List<Status> statusesToArchive = Arrays.asList(
                     Status.CANCELLED,
                     Status.EXPIRED,
                     Status.COMPLETED,
                     Status.REJECTED
             );
 
-            int deletedCount = 0;
-
-            for (Status status : statusesToDelete) {
-                List<Appointment> oldAppointments = appointmentRepository
-                        .findByStatusOrderByAppointmentDateAsc(status)
-                        .stream()
-                        .filter(appointment -> appointment.getAppointmentDate().isBefore(cutoffDate))
-                        .toList();
-
-                if (!oldAppointments.isEmpty()) {
-                    log.info("Found {} old {} appointments to delete", oldAppointments.size(), status);
-
-                    appointmentRepository.deleteAll(oldAppointments);
-                    deletedCount += oldAppointments.size();
-
-                    log.debug("Deleted {} {} appointments", oldAppointments.size(), status);
-                }
-            }
+            long archivedCount = retentionService.archive(statusesToArchive, cutoffDate);
 
-            if (deletedCount > 0) {
-                log.info("Successfully deleted {} old appointments in total", deletedCount);
+            if (archivedCount > 0) {
+                log.info("Successfully archived {} old appointments in total", archivedCount);
             } else {
-                log.debug("No old appointments to delete");
+                log.debug("No old appointments to archive");
             }
 
         } catch (Exception e) {
-            log.error("Error during deletion of old appointments", e);
+            log.error("Error during archiving of old appointments", e);
         }
     }
-}
\ No newline at end of file
+}
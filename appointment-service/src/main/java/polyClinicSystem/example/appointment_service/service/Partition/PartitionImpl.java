@@ -0,0 +1,125 @@
+package polyClinicSystem.example.appointment_service.service.Partition;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.repository.AppointmentArchiveRepository;
+import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionImpl implements PartitionService {
+    /*
+    appointments is range partitioned by month of appointment_date (V6 migration), the partition of a month
+    is the table appointments_yYYYYmMM. the DDL lives in the sql functions of the migration,
+    this class only calls them: each call is its own short transaction because detaching takes
+    an exclusive lock on appointments until commit, and it waits at most detachLockWaitMillis for that lock.
+     */
+
+    private static final String PARTITION_PREFIX = "appointments_y";
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${appointment.partition.months-ahead:12}")
+    private int monthsAhead;
+
+    @Value("${appointment.partition.detach-lock-wait-millis:500}")
+    private int detachLockWaitMillis;
+
+    /**
+     * Runs every day at 1:00 AM to make sure the partitions of the next monthsAhead months exist,
+     * bookings beyond that land in appointments_default and are moved out when their month is created
+     */
+    @Scheduled(cron = "0 0 1 * * *") // Every day at 1:00 AM
+    @Override
+    public void createUpcomingPartitions() {
+        log.debug("Creating upcoming appointment partitions");
+
+        try {
+            YearMonth month = YearMonth.now();
+            int created = 0;
+
+            for (int i = 0; i <= monthsAhead; i++, month = month.plusMonths(1)) {
+                YearMonth partitionMonth = month;
+                Boolean isCreated = transactionTemplate.execute(status ->
+                        appointmentRepository.createMonthlyPartition(partitionMonth.atDay(1)));
+
+                if (Boolean.TRUE.equals(isCreated)) {
+                    log.info("Created appointments partition for {}", partitionMonth);
+                    created++;
+                }
+            }
+
+            log.debug("Created {} appointment partitions", created);
+
+        } catch (Exception e) {
+            log.error("Error while creating appointment partitions", e);
+        }
+    }
+
+    /**
+     * @return months of all partition tables, attached or detached and not archived yet, oldest first
+     */
+    @Override
+    public List<YearMonth> findPartitionMonths() {
+        return appointmentRepository.findMonthlyPartitionNames().stream()
+                .map(this::toMonth)
+                .toList();
+    }
+
+    /**
+     * Detach the partition of a month from appointments and, in the same transaction, move its rows
+     * that aren't in one of finishedStatuses back into appointments (they land in appointments_default),
+     * so the detached table only holds rows to archive and no booking is ever out of the hot table
+     *
+     * @return false if it wasn't attached
+     * @throws org.springframework.dao.PessimisticLockingFailureException if the lock on appointments
+     * wasn't granted within detachLockWaitMillis
+     */
+    @Override
+    public boolean detach(YearMonth month, List<Status> finishedStatuses) {
+        String statuses = finishedStatuses.stream()
+                .map(Status::name)
+                .collect(Collectors.joining(","));
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            boolean detached = appointmentRepository.detachMonthlyPartition(month.atDay(1), detachLockWaitMillis);
+            // also runs for a partition detached by an older run, it's a no-op once the leftovers are moved
+            long moved = appointmentRepository.moveUnfinishedFromDetachedPartition(month.atDay(1), statuses);
+            if (moved > 0) {
+                log.info("Moved {} unfinished appointments of {} to appointments_default", moved, month);
+            }
+            return detached;
+        }));
+    }
+
+    /**
+     * Copy a detached partition into appointments_archive and drop it
+     *
+     * @return number of archived appointments
+     */
+    @Override
+    public long archiveDetached(YearMonth month, Instant archivedAt) {
+        Long archived = transactionTemplate.execute(status ->
+                archiveRepository.archiveDetachedPartition(month.atDay(1), archivedAt));
+        return archived == null ? 0 : archived;
+    }
+
+    private YearMonth toMonth(String partitionName) {
+        // appointments_y2025m03
+        String suffix = partitionName.substring(PARTITION_PREFIX.length());
+        return YearMonth.of(Integer.parseInt(suffix.substring(0, 4)), Integer.parseInt(suffix.substring(5, 7)));
+    }
+}
@@ -0,0 +1,14 @@
+package polyClinicSystem.example.appointment_service.service.Partition;
+
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+
+public interface PartitionService {
+    void createUpcomingPartitions();
+    List<YearMonth> findPartitionMonths();
+    boolean detach(YearMonth month, List<Status> finishedStatuses);
+    long archiveDetached(YearMonth month, Instant archivedAt);
+}
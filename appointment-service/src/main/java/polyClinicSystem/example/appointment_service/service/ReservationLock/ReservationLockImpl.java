@@ -1,60 +1,183 @@
 package polyClinicSystem.example.appointment_service.service.ReservationLock;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class ReservationLockImpl implements ReservationLockService{
+public class ReservationLockImpl implements ReservationLockService, MessageListener {
+    /*
+    every acquisition gets its own token "ownerUuid:fence" (fence is a counter per lock key that only goes up),
+    the token is the lock value so only the owner can release it (compare and delete in one lua script),
+    a lock that expired and was taken by another node can't be deleted by the old owner anymore.
+    release publishes the key on RELEASE_CHANNEL so the waiters on this node (and the others) retry at once
+    instead of the patient getting a 409 and retrying from the client.
+    a holder paused past its lease still reaches the database, so the reservation checks the fence on its write
+    (AppointmentJdbcRepository.claimSlotFence). the fence never starts below the redis clock in microseconds,
+    so it keeps going up when the counter key expired or was lost and starts again.
+     */
+
+    private static final String RELEASE_CHANNEL = "appointment:lock:released";
+    private static final String UNFENCED_TOKEN = "unfenced";
+    private static final Duration FENCE_TTL = Duration.ofDays(1);
+
+    // KEYS: lock, fence | ARGV: owner, lease millis, fence ttl millis
+    // returns the fence on success or minus the remaining lease of the current holder
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                local ttl = redis.call('PTTL', KEYS[1])
+                if ttl < 1 then ttl = 1 end
+                return -ttl
+            end
+            local now = redis.call('TIME')
+            local floor = now[1] * 1000000 + now[2]
+            local fence = redis.call('INCR', KEYS[2])
+            if fence < floor then
+                fence = floor
+                redis.call('SET', KEYS[2], string.format('%d', fence))
+            end
+            redis.call('PEXPIRE', KEYS[2], ARGV[3])
+            redis.call('SET', KEYS[1], ARGV[1] .. ':' .. fence, 'PX', ARGV[2])
+            return fence
+            """, Long.class);
+
+    // KEYS: lock | ARGV: token, release channel
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('DEL', KEYS[1])
+                redis.call('PUBLISH', ARGV[2], KEYS[1])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
     private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    // one future per contended key, completed by the release message
+    private final Map<String, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Off by default: when redis is down tryLock fails and the reservation gets a 409.
+     * Opt-in to go on without the lock, the partial unique slot index is then the only safeguard
+     */
+    @Value("${appointment.lock.fail-open:false}")
+    private boolean failOpen;
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(RELEASE_CHANNEL));
+    }
+
     /**
-     * Try to acquire a distributed lock for slot reservation
+     * Try to acquire a distributed lock for slot reservation,
+     * waiting up to waitTime for the current holder to release it
      *
-     * @param lockKey The lock key (e.g., "appointment:lock:doctorId:date:period")
+     * @param lockKey The lock key (e.g., "appointment:lock:{doctorId:date:period}")
      *                it will be built in the AppointmentService
-     * @param timeout How long to hold the lock
-     * @return true if lock acquired, false otherwise
+     * @param leaseTime How long to hold the lock
+     * @param waitTime How long to wait for a held lock
+     * @return the lock token needed to unlock, null if the lock wasn't acquired
      */
-    public boolean tryLock(String lockKey, Duration timeout) {
+    public String tryLock(String lockKey, Duration leaseTime, Duration waitTime) {
+        String owner = UUID.randomUUID().toString();
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + waitTime.toNanos();
+        boolean waited = false;
+
         try {
-            String lockValue = Thread.currentThread().getName() + "-" + System.currentTimeMillis();
+            long result = acquire(lockKey, owner, leaseTime);
 
-            Boolean success = redisTemplate.opsForValue()
-                    .setIfAbsent(lockKey, lockValue, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            while (result <= 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    log.debug("Timed out waiting for lock: {}", lockKey);
+                    recordAcquire("timeout", startedAt);
+                    return null;
+                }
 
-            if (Boolean.TRUE.equals(success)) {
-                log.debug("Lock acquired: {}", lockKey);
-                return true;
-            } else {
-                log.debug("Lock already held: {}", lockKey);
-                return false;
+                CompletableFuture<Void> released = waiters.computeIfAbsent(lockKey, k -> new CompletableFuture<>());
+
+                // the lock may have been released before we started listening
+                result = acquire(lockKey, owner, leaseTime);
+                if (result > 0) {
+                    break;
+                }
+
+                waited = true;
+                long holderLease = TimeUnit.MILLISECONDS.toNanos(-result);
+                try {
+                    released.get(Math.min(remaining, holderLease), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // the holder's lease ran out without a release message
+                    waiters.remove(lockKey, released);
+                }
+
+                result = acquire(lockKey, owner, leaseTime);
             }
+
+            log.debug("Lock acquired: {} (fence {})", lockKey, result);
+            recordAcquire(waited ? "after_wait" : "immediate", startedAt);
+            return owner + ":" + result;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recordAcquire("interrupted", startedAt);
+            return null;
         } catch (Exception e) {
             log.error("Failed to acquire lock: {}", lockKey, e);
-            // In case of Redis failure, allow the operation to proceed
-            // The DB unique constraint will be the final safeguard
-            return true;
+            recordAcquire("error", startedAt);
+            return failOpen ? UNFENCED_TOKEN : null;
         }
     }
 
     /**
-     * Release the lock
+     * Release the lock if it's still held with this token
      *
      * @param lockKey The lock key to release
+     * @param lockToken The token returned by tryLock
      */
-    public void unlock(String lockKey) {
+    public void unlock(String lockKey, String lockToken) {
+        if (lockToken == null || UNFENCED_TOKEN.equals(lockToken)) {
+            return;
+        }
+
         try {
-            redisTemplate.delete(lockKey);
-            log.debug("Lock released: {}", lockKey);
+            Long released = redisTemplate.execute(RELEASE_SCRIPT, List.of(lockKey), lockToken, RELEASE_CHANNEL);
+
+            if (Long.valueOf(1).equals(released)) {
+                log.debug("Lock released: {}", lockKey);
+                meterRegistry.counter("reservation.lock.release", "outcome", "released").increment();
+            } else {
+                log.warn("Lock {} expired before release, it may be held by another owner now", lockKey);
+                meterRegistry.counter("reservation.lock.release", "outcome", "lost").increment();
+            }
         } catch (Exception e) {
             log.error("Failed to release lock: {}", lockKey, e);
+            meterRegistry.counter("reservation.lock.release", "outcome", "error").increment();
         }
     }
 
@@ -72,4 +195,43 @@ public class ReservationLockImpl implements ReservationLockService{
             return false;
         }
     }
+
+    /**
+     * The fence of a lock token, to be checked on the write the lock protects
+     *
+     * @param lockToken The token returned by tryLock
+     * @return the fence, null for the unfenced token of a fail-open acquisition
+     */
+    public Long fenceOf(String lockToken) {
+        if (lockToken == null || UNFENCED_TOKEN.equals(lockToken)) {
+            return null;
+        }
+        return Long.valueOf(lockToken.substring(lockToken.lastIndexOf(':') + 1));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String lockKey = new String(message.getBody(), StandardCharsets.UTF_8);
+        CompletableFuture<Void> released = waiters.remove(lockKey);
+        if (released != null) {
+            released.complete(null);
+        }
+    }
+
+    private long acquire(String lockKey, String owner, Duration leaseTime) {
+        Long result = redisTemplate.execute(ACQUIRE_SCRIPT,
+                List.of(lockKey, lockKey + ":fence"),
+                owner, String.valueOf(leaseTime.toMillis()), String.valueOf(FENCE_TTL.toMillis()));
+
+        if (result == null) {
+            throw new IllegalStateException("No reply from redis for lock: " + lockKey);
+        }
+        return result;
+    }
+
+    private void recordAcquire(String outcome, long startedAt) {
+        meterRegistry.counter("reservation.lock.acquire", "outcome", outcome).increment();
+        meterRegistry.timer("reservation.lock.wait", "outcome", outcome)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
 }
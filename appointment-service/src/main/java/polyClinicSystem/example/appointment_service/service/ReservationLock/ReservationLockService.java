@@ -3,7 +3,8 @@ package polyClinicSystem.example.appointment_service.service.ReservationLock;
 import java.time.Duration;
 
 public interface ReservationLockService {
-    boolean tryLock(String lockKey, Duration timeout);
-    void unlock(String lockKey);
+    String tryLock(String lockKey, Duration leaseTime, Duration waitTime);
+    void unlock(String lockKey, String lockToken);
     boolean isLocked(String lockKey);
+    Long fenceOf(String lockToken);
 }
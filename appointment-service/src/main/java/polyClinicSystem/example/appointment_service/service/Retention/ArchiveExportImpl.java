@@ -0,0 +1,112 @@
+package polyClinicSystem.example.appointment_service.service.Retention;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import polyClinicSystem.example.appointment_service.model.entity.ArchivedAppointment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+public class ArchiveExportImpl implements ArchiveExportService {
+    /*
+    writes each archived batch to <directory>/yyyy-MM/appointments-<firstId>-<lastId>.col.gz
+    the file is column major: one line per column "name<TAB>v1<TAB>v2...", so the values of one column
+    (same doctor ids, same statuses, close dates) sit next to each other and gzip compresses them much better
+    than a row per appointment. null is written as \N, tab/newline/backslash are escaped.
+     */
+
+    private static final Map<String, Function<ArchivedAppointment, Object>> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("id", ArchivedAppointment::getId);
+        COLUMNS.put("doctor_keycloak_id", ArchivedAppointment::getDoctorKeycloakId);
+        COLUMNS.put("nurse_keycloak_id", ArchivedAppointment::getNurseKeycloakId);
+        COLUMNS.put("patient_keycloak_id", ArchivedAppointment::getPatientKeycloakId);
+        COLUMNS.put("room_id", ArchivedAppointment::getRoomId);
+        COLUMNS.put("appointment_date", ArchivedAppointment::getAppointmentDate);
+        COLUMNS.put("period", ArchivedAppointment::getPeriod);
+        COLUMNS.put("status", ArchivedAppointment::getStatus);
+        COLUMNS.put("reason", ArchivedAppointment::getReason);
+        COLUMNS.put("reservation_token", ArchivedAppointment::getReservationToken);
+        COLUMNS.put("payment_id", ArchivedAppointment::getPaymentId);
+        COLUMNS.put("payment_intent_id", ArchivedAppointment::getPaymentIntentId);
+        COLUMNS.put("expires_at", ArchivedAppointment::getExpiresAt);
+        COLUMNS.put("notes", ArchivedAppointment::getNotes);
+        COLUMNS.put("created_at", ArchivedAppointment::getCreatedAt);
+        COLUMNS.put("updated_at", ArchivedAppointment::getUpdatedAt);
+        COLUMNS.put("archived_at", ArchivedAppointment::getArchivedAt);
+    }
+
+    @Value("${appointment.archive.export.enabled:false}")
+    private boolean enabled;
+
+    @Value("${appointment.archive.export.directory:./archive}")
+    private Path directory;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void export(List<ArchivedAppointment> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        ArchivedAppointment first = batch.get(0);
+        ArchivedAppointment last = batch.get(batch.size() - 1);
+        Path monthDirectory = directory.resolve(first.getAppointmentDate().toString().substring(0, 7));
+        Path file = monthDirectory.resolve("appointments-" + first.getId() + "-" + last.getId() + ".col.gz");
+        Path tempFile = monthDirectory.resolve(file.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(monthDirectory);
+
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(tempFile)), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, Function<ArchivedAppointment, Object>> column : COLUMNS.entrySet()) {
+                    writer.write(column.getKey());
+                    for (ArchivedAppointment appointment : batch) {
+                        writer.write('\t');
+                        writer.write(escape(column.getValue().apply(appointment)));
+                    }
+                    writer.write('\n');
+                }
+            }
+
+            // readers never see a half written file
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Exported {} archived appointments to {}", batch.size(), file);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export archive batch to " + file, e);
+        }
+    }
+
+    private String escape(Object value) {
+        if (value == null) {
+            return "\\N";
+        }
+        return value.toString()
+                .replace("\\", "\\\\")
+                .replace("\t", "\\t")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r");
+    }
+}
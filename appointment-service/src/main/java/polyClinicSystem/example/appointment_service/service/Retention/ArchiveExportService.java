@@ -0,0 +1,10 @@
+package polyClinicSystem.example.appointment_service.service.Retention;
+
+import polyClinicSystem.example.appointment_service.model.entity.ArchivedAppointment;
+
+import java.util.List;
+
+public interface ArchiveExportService {
+    boolean isEnabled();
+    void export(List<ArchivedAppointment> batch);
+}
@@ -0,0 +1,239 @@
+package polyClinicSystem.example.appointment_service.service.Retention;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import polyClinicSystem.example.appointment_service.model.entity.ArchivedAppointment;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.repository.AppointmentArchiveRepository;
+import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
+import polyClinicSystem.example.appointment_service.service.Partition.PartitionService;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RetentionImpl implements RetentionService {
+    /*
+    retention works on whole monthly partitions: a month that ended before the cutoff date is detached
+    from appointments (a catalog change, no row deletes, no dead rows to vacuum in the hot table)
+    and then copied to appointments_archive and dropped in a second transaction,
+    so the exclusive lock of the detach isn't held during the copy.
+    the rows of the month that aren't finished (PAID never approved, NULL status...) are moved back into appointments
+    in the transaction of the detach, they land in appointments_default and never keep the month in the hot table.
+    the finished rows of appointments_default are then archived row by row, in batches of batchSize.
+    a partition detached by a run that failed before archiving is archived by the next run.
+    when the export is enabled each archived month is also written to compressed files, batchSize rows per file.
+    the reservation token mappings of the archived appointments (appointment_reservation_tokens) are deleted last,
+    with the reservation lock fences (appointment_slot_fences) of the slots before the cutoff.
+    the detach gives up when its lock isn't granted in time (a long booking transaction), it's tried again
+    a few times and the month is otherwise left for the next run.
+     */
+
+    private static final int DETACH_ATTEMPTS = 5;
+    private static final long DETACH_RETRY_PAUSE_MILLIS = 2000;
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentArchiveRepository archiveRepository;
+    private final ArchiveExportService archiveExportService;
+    private final PartitionService partitionService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong lastRunRowsPerSecond = new AtomicLong();
+
+    @Value("${appointment.retention.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${appointment.retention.pause-millis:200}")
+    private long pauseMillis;
+
+    /**
+     * Archive the appointments with one of these statuses dated before the month of cutoffDate,
+     * whole monthly partitions first, then the rows left in appointments_default
+     *
+     * @return number of archived appointments
+     */
+    @Override
+    public long archive(List<Status> statuses, LocalDate cutoffDate) {
+        long startedAt = System.nanoTime();
+        long archived = 0;
+        YearMonth cutoffMonth = YearMonth.from(cutoffDate);
+
+        for (YearMonth month : partitionService.findPartitionMonths()) {
+            if (!month.isBefore(cutoffMonth)) {
+                break;
+            }
+
+            Boolean detached = detach(month, statuses);
+            if (detached == null) {
+                log.warn("Appointments partition of {} is busy, kept until the next retention run", month);
+                break;
+            }
+
+            archived += archiveMonth(month, detached);
+            pause();
+        }
+
+        archived += archiveDefaultPartition(statuses, cutoffMonth.atDay(1));
+
+        Integer unmapped = transactionTemplate.execute(status ->
+                archiveRepository.deleteArchivedReservationTokens(cutoffMonth.atDay(1)));
+        log.debug("Deleted {} reservation token mappings of archived appointments", unmapped);
+
+        Integer fences = transactionTemplate.execute(status ->
+                archiveRepository.deleteSlotFencesBefore(cutoffMonth.atDay(1)));
+        log.debug("Deleted {} reservation lock fences of past slots", fences);
+
+        double seconds = Math.max((System.nanoTime() - startedAt) / 1_000_000_000.0, 0.001);
+        if (archived > 0) {
+            log.info("Retention archived {} appointments before {} ({} rows/s)",
+                    archived, cutoffMonth, Math.round(archived / seconds));
+        }
+        lastRunRowsPerSecond.set(Math.round(archived / seconds));
+        meterRegistry.gauge("appointment.retention.rows_per_second", lastRunRowsPerSecond);
+
+        return archived;
+    }
+
+    /**
+     * Detach the partition of a month, trying again a few times when the lock on appointments isn't granted
+     * in time (a long booking transaction holds it)
+     *
+     * @return null if the lock was never granted
+     */
+    private Boolean detach(YearMonth month, List<Status> statuses) {
+        for (int attempt = 1; attempt <= DETACH_ATTEMPTS; attempt++) {
+            // the detach time is where the job waits for the booking transactions on appointments
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return partitionService.detach(month, statuses);
+            } catch (PessimisticLockingFailureException e) {
+                log.debug("Appointments partition of {} is busy (attempt {}/{})", month, attempt, DETACH_ATTEMPTS);
+            } finally {
+                sample.stop(meterRegistry.timer("appointment.retention.detach"));
+            }
+
+            if (attempt < DETACH_ATTEMPTS) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(DETACH_RETRY_PAUSE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Retention archiving interrupted", e);
+                }
+            }
+        }
+        return null;
+    }
+
+    private long archiveMonth(YearMonth month, boolean detached) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long archived = partitionService.archiveDetached(month, Instant.now());
+        sample.stop(meterRegistry.timer("appointment.retention.archive"));
+
+        meterRegistry.counter("appointment.retention.archived").increment(archived);
+        log.info("Archived {} appointments of {} (partition {})",
+                archived, month, detached ? "detached now" : "detached by a previous run");
+
+        if (archived > 0 && archiveExportService.isEnabled()) {
+            try {
+                exportMonth(month);
+            } catch (Exception e) {
+                // the rows are safe in the archive table, the files can be exported again later
+                log.error("Failed to export archived appointments of {}", month, e);
+            }
+        }
+
+        return archived;
+    }
+
+    private long archiveDefaultPartition(List<Status> statuses, LocalDate beforeDate) {
+        List<String> statusNames = statuses.stream().map(Status::name).toList();
+        long archived = 0;
+        long afterId = 0L;
+
+        while (true) {
+            List<Long> ids = appointmentRepository.findFinishedIdsInDefaultPartition(
+                    beforeDate, statusNames, afterId, batchSize);
+
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            Integer moved = transactionTemplate.execute(status ->
+                    archiveRepository.moveFinishedToArchive(ids, beforeDate, statusNames, Instant.now()));
+            archived += moved == null ? 0 : moved;
+            afterId = ids.get(ids.size() - 1);
+
+            if (archiveExportService.isEnabled()) {
+                try {
+                    // one file per month, like the partition exports
+                    archiveRepository.findByIdInOrderByIdAsc(ids).stream()
+                            .collect(Collectors.groupingBy(a -> YearMonth.from(a.getAppointmentDate()),
+                                    TreeMap::new, Collectors.toList()))
+                            .values()
+                            .forEach(archiveExportService::export);
+                } catch (Exception e) {
+                    log.error("Failed to export archived appointments {}..{}", ids.get(0), afterId, e);
+                }
+            }
+
+            if (ids.size() < batchSize) {
+                break;
+            }
+            pause();
+        }
+
+        if (archived > 0) {
+            meterRegistry.counter("appointment.retention.archived").increment(archived);
+            log.info("Archived {} appointments left in appointments_default before {}", archived, beforeDate);
+        }
+        return archived;
+    }
+
+    private void exportMonth(YearMonth month) {
+        long afterId = 0L;
+
+        while (true) {
+            List<ArchivedAppointment> batch = archiveRepository.findByAppointmentDateBetweenAndIdGreaterThanOrderByIdAsc(
+                    month.atDay(1), month.atEndOfMonth(), afterId, Limit.of(batchSize));
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            archiveExportService.export(batch);
+            afterId = batch.get(batch.size() - 1).getId();
+
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Retention archiving interrupted", e);
+        }
+    }
+}
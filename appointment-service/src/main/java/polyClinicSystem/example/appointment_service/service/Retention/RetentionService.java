@@ -0,0 +1,10 @@
+package polyClinicSystem.example.appointment_service.service.Retention;
+
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RetentionService {
+    long archive(List<Status> statuses, LocalDate cutoffDate);
+}
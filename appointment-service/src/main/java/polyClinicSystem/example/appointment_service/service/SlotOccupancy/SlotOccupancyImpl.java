@@ -0,0 +1,319 @@
+package polyClinicSystem.example.appointment_service.service.SlotOccupancy;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import polyClinicSystem.example.appointment_service.model.entity.Appointment;
+import polyClinicSystem.example.appointment_service.model.entity.unavailability.VacationUnavailability;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.model.occupancy.SlotHolder;
+import polyClinicSystem.example.appointment_service.model.occupancy.SlotOccupancy;
+import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
+import polyClinicSystem.example.appointment_service.repository.DayUnavailabilityRepository;
+import polyClinicSystem.example.appointment_service.repository.VacationUnavailabilityRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotOccupancyImpl implements SlotOccupancyService {
+    /*
+    write-through occupancy index in redis, so getAvailableSlots doesn't hit postgres on every call:
+    - appointment:occupancy:{doctor}:{date}   hash -> booked (bitmask), unavailable (bitmask), slot:PERIOD (holder)
+    - appointment:occupancy:{doctor}:vacation hash -> days (weekday bitmask)
+    - appointment:occupancy:{doctor}:version  counter bumped by every write of this doctor
+    a miss is loaded from the DB and only cached if the version didn't move while loading,
+    so a reservation committed in the middle of the load can't be overwritten by the stale snapshot.
+    writes run after the transaction commits and only patch keys that are already cached.
+    the doctor is in {} so all keys of one doctor land on the same redis cluster slot (needed by the scripts)
+     */
+
+    private static final String BOOKED_FIELD = "booked";
+    private static final String UNAVAILABLE_FIELD = "unavailable";
+    private static final String VACATION_FIELD = "days";
+    private static final String SLOT_FIELD_PREFIX = "slot:";
+
+    private static final List<Status> ACTIVE_STATUSES = Arrays.asList(Status.PENDING, Status.PAID, Status.SCHEDULED);
+
+    // KEYS: day, version | ARGV: bit, slot field, holder, ttl millis
+    private static final DefaultRedisScript<Long> MARK_SLOT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[4])
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            local mask = tonumber(redis.call('HGET', KEYS[1], 'booked') or '0')
+            redis.call('HSET', KEYS[1], 'booked', bit.bor(mask, tonumber(ARGV[1])), ARGV[2], ARGV[3])
+            return 1
+            """, Long.class);
+
+    // KEYS: day, version | ARGV: bit, slot field, reservation token, ttl millis
+    // a slot already taken over by another reservation is left untouched
+    private static final DefaultRedisScript<Long> RELEASE_SLOT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[4])
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            local holder = redis.call('HGET', KEYS[1], ARGV[2])
+            if holder and ARGV[3] ~= '' and string.sub(holder, 1, string.len(ARGV[3]) + 1) ~= ARGV[3] .. '|' then
+                return 0
+            end
+            local mask = tonumber(redis.call('HGET', KEYS[1], 'booked') or '0')
+            redis.call('HSET', KEYS[1], 'booked', bit.band(mask, bit.bnot(tonumber(ARGV[1]))))
+            redis.call('HDEL', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // KEYS: target, version | ARGV: field, mask, ttl millis
+    private static final DefaultRedisScript<Long> OR_MASK_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[3])
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            local mask = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0')
+            redis.call('HSET', KEYS[1], ARGV[1], bit.bor(mask, tonumber(ARGV[2])))
+            return 1
+            """, Long.class);
+
+    // KEYS: target, version | ARGV: expected version, ttl millis, field1, value1, ...
+    private static final DefaultRedisScript<Long> POPULATE_SCRIPT = new DefaultRedisScript<>("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], unpack(ARGV, 3))
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final AppointmentRepository appointmentRepository;
+    private final DayUnavailabilityRepository dayUnavailabilityRepository;
+    private final VacationUnavailabilityRepository vacationUnavailabilityRepository;
+
+    @Value("${appointment.occupancy.ttl-hours:24}")
+    private long ttlHours;
+
+    /**
+     * Occupancy of the doctor on that date, one redis round trip when cached.
+     * Falls back to the DB (3 queries) on a miss or when redis is down.
+     */
+    @Override
+    public SlotOccupancy getOccupancy(String doctorKeycloakId, LocalDate date) {
+        String dayKey = dayKey(doctorKeycloakId, date);
+        String vacationKey = vacationKey(doctorKeycloakId);
+        String versionKey = versionKey(doctorKeycloakId);
+
+        List<Object> cached;
+        try {
+            cached = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.opsForHash().entries(dayKey);
+                    ops.opsForHash().entries(vacationKey);
+                    ops.opsForValue().get(versionKey);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Occupancy cache unavailable, reading doctor {} on {} from DB", doctorKeycloakId, date, e);
+            return toOccupancy(loadDay(doctorKeycloakId, date), loadVacationDays(doctorKeycloakId), date);
+        }
+
+        Map<String, String> day = asStringMap(cached.get(0));
+        Map<String, String> vacation = asStringMap(cached.get(1));
+        String version = cached.get(2) == null ? "0" : cached.get(2).toString();
+
+        if (day.isEmpty()) {
+            log.debug("Occupancy cache miss: {}", dayKey);
+            day = loadDay(doctorKeycloakId, date);
+            populate(dayKey, versionKey, version, day);
+        }
+
+        int vacationDays;
+        if (vacation.isEmpty()) {
+            vacationDays = loadVacationDays(doctorKeycloakId);
+            populate(vacationKey, versionKey, version, Map.of(VACATION_FIELD, String.valueOf(vacationDays)));
+        } else {
+            vacationDays = parseMask(vacation.get(VACATION_FIELD));
+        }
+
+        return toOccupancy(day, vacationDays, date);
+    }
+
+    @Override
+    public void markBooked(Appointment appointment) {
+        String doctorKeycloakId = appointment.getDoctorKeycloakId();
+        LocalDate date = appointment.getAppointmentDate();
+        Period period = appointment.getPeriod();
+        String holder = SlotHolder.from(appointment).encode();
+
+        afterCommit(() -> redisTemplate.execute(MARK_SLOT_SCRIPT,
+                List.of(dayKey(doctorKeycloakId, date), versionKey(doctorKeycloakId)),
+                String.valueOf(SlotOccupancy.bitOf(period)), slotField(period), holder, ttlMillis()));
+    }
+
+    @Override
+    public void release(Appointment appointment) {
+        release(appointment.getDoctorKeycloakId(), appointment.getAppointmentDate(),
+                appointment.getPeriod(), appointment.getReservationToken());
+    }
+
+    @Override
+    public void release(String doctorKeycloakId, LocalDate date, Period period, String reservationToken) {
+        String token = reservationToken == null ? "" : reservationToken;
+
+        afterCommit(() -> redisTemplate.execute(RELEASE_SLOT_SCRIPT,
+                List.of(dayKey(doctorKeycloakId, date), versionKey(doctorKeycloakId)),
+                String.valueOf(SlotOccupancy.bitOf(period)), slotField(period), token, ttlMillis()));
+    }
+
+    @Override
+    public void markUnavailable(String doctorKeycloakId, LocalDate date, Collection<Period> periods) {
+        int mask = SlotOccupancy.maskOf(periods);
+
+        afterCommit(() -> redisTemplate.execute(OR_MASK_SCRIPT,
+                List.of(dayKey(doctorKeycloakId, date), versionKey(doctorKeycloakId)),
+                UNAVAILABLE_FIELD, String.valueOf(mask), ttlMillis()));
+    }
+
+    @Override
+    public void markVacation(String doctorKeycloakId, Collection<String> daysOfWeek) {
+        int mask = SlotOccupancy.dayMaskOf(daysOfWeek);
+
+        afterCommit(() -> redisTemplate.execute(OR_MASK_SCRIPT,
+                List.of(vacationKey(doctorKeycloakId), versionKey(doctorKeycloakId)),
+                VACATION_FIELD, String.valueOf(mask), ttlMillis()));
+    }
+
+    private Map<String, String> loadDay(String doctorKeycloakId, LocalDate date) {
+        Map<String, String> fields = new HashMap<>();
+        int booked = 0;
+
+        for (Appointment appointment : appointmentRepository
+                .findByDoctorKeycloakIdAndAppointmentDateAndStatusIn(doctorKeycloakId, date, ACTIVE_STATUSES)) {
+            booked |= SlotOccupancy.bitOf(appointment.getPeriod());
+            fields.put(slotField(appointment.getPeriod()), SlotHolder.from(appointment).encode());
+        }
+
+        int unavailable = SlotOccupancy.maskOf(dayUnavailabilityRepository
+                .findByDoctorKeycloakIdAndAppointmentDate(doctorKeycloakId, date)
+                .stream()
+                .flatMap(u -> u.getPeriods().stream())
+                .toList());
+
+        fields.put(BOOKED_FIELD, String.valueOf(booked));
+        fields.put(UNAVAILABLE_FIELD, String.valueOf(unavailable));
+        return fields;
+    }
+
+    private int loadVacationDays(String doctorKeycloakId) {
+        return SlotOccupancy.dayMaskOf(vacationUnavailabilityRepository.findByDoctorKeycloakId(doctorKeycloakId)
+                .stream()
+                .map(VacationUnavailability::getDaysOfWeek)
+                .flatMap(List::stream)
+                .toList());
+    }
+
+    private SlotOccupancy toOccupancy(Map<String, String> day, int vacationDays, LocalDate date) {
+        int occupied = parseMask(day.get(BOOKED_FIELD)) | parseMask(day.get(UNAVAILABLE_FIELD));
+        if ((vacationDays & SlotOccupancy.bitOf(date.getDayOfWeek())) != 0) {
+            occupied |= SlotOccupancy.ALL_PERIODS_MASK;
+        }
+
+        Map<Period, SlotHolder> holders = new EnumMap<>(Period.class);
+        for (Period period : Period.values()) {
+            String value = day.get(slotField(period));
+            SlotHolder holder = value == null ? null : SlotHolder.decode(value);
+            if (holder != null) {
+                holders.put(period, holder);
+            }
+        }
+
+        return new SlotOccupancy(occupied, holders);
+    }
+
+    private void populate(String key, String versionKey, String expectedVersion, Map<String, String> fields) {
+        List<String> args = new ArrayList<>();
+        args.add(expectedVersion);
+        args.add(ttlMillis());
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+
+        try {
+            Long written = redisTemplate.execute(POPULATE_SCRIPT, List.of(key, versionKey), args.toArray());
+            if (!Long.valueOf(1).equals(written)) {
+                log.debug("Skipped caching {}, occupancy changed while loading", key);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to cache occupancy: {}", key, e);
+        }
+    }
+
+    /**
+     * Redis must only see committed state, so the write waits for the surrounding transaction.
+     */
+    private void afterCommit(Runnable write) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runQuietly(write);
+                }
+            });
+        } else {
+            runQuietly(write);
+        }
+    }
+
+    private void runQuietly(Runnable write) {
+        try {
+            write.run();
+        } catch (Exception e) {
+            // the entry will be stale until its ttl, the DB constraint still protects the reservation itself
+            log.error("Failed to update occupancy cache", e);
+        }
+    }
+
+    private Map<String, String> asStringMap(Object value) {
+        Map<String, String> result = new HashMap<>();
+        if (value instanceof Map<?, ?> map) {
+            map.forEach((k, v) -> result.put(String.valueOf(k), String.valueOf(v)));
+        }
+        return result;
+    }
+
+    private int parseMask(String value) {
+        return value == null ? 0 : Integer.parseInt(value);
+    }
+
+    private String ttlMillis() {
+        return String.valueOf(Duration.ofHours(ttlHours).toMillis());
+    }
+
+    private String slotField(Period period) {
+        return SLOT_FIELD_PREFIX + period.name();
+    }
+
+    private String dayKey(String doctorKeycloakId, LocalDate date) {
+        return String.format("appointment:occupancy:{%s}:%s", doctorKeycloakId, date);
+    }
+
+    private String vacationKey(String doctorKeycloakId) {
+        return String.format("appointment:occupancy:{%s}:vacation", doctorKeycloakId);
+    }
+
+    private String versionKey(String doctorKeycloakId) {
+        return String.format("appointment:occupancy:{%s}:version", doctorKeycloakId);
+    }
+}
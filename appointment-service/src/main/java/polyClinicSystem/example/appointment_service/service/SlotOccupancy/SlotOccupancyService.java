@@ -0,0 +1,17 @@
+package polyClinicSystem.example.appointment_service.service.SlotOccupancy;
+
+import polyClinicSystem.example.appointment_service.model.entity.Appointment;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.occupancy.SlotOccupancy;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface SlotOccupancyService {
+    SlotOccupancy getOccupancy(String doctorKeycloakId, LocalDate date);
+    void markBooked(Appointment appointment);
+    void release(Appointment appointment);
+    void release(String doctorKeycloakId, LocalDate date, Period period, String reservationToken);
+    void markUnavailable(String doctorKeycloakId, LocalDate date, Collection<Period> periods);
+    void markVacation(String doctorKeycloakId, Collection<String> daysOfWeek);
+}
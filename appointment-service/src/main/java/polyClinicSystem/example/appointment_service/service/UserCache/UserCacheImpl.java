@@ -0,0 +1,56 @@
+package polyClinicSystem.example.appointment_service.service.UserCache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import polyClinicSystem.example.appointment_service.client.UserClient;
+import polyClinicSystem.example.appointment_service.dto.event.UserChangedEvent;
+import polyClinicSystem.example.appointment_service.dto.response.UserResponse;
+
+import java.time.Duration;
+
+@Service
+@Slf4j
+public class UserCacheImpl implements UserCacheService {
+    /*
+    users by keycloak id, so the access checks of a request don't call user-management (through Eureka) each time.
+    user-management broadcasts a UserChangedEvent on the bus after a user is updated or deleted and the entry is evicted,
+    the ttl bounds how stale an entry gets if such an event is missed (bus down, rabbit restart).
+    failed lookups aren't cached, the next request tries again.
+     */
+
+    private final UserClient userClient;
+    private final Cache<String, UserResponse> users;
+
+    public UserCacheImpl(UserClient userClient,
+                         @Value("${appointment.user-cache.max-size:10000}") long maxSize,
+                         @Value("${appointment.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userClient = userClient;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Get a user from the cache, or from user-management on a miss
+     */
+    @Override
+    public UserResponse getUser(String keycloakId) {
+        return users.get(keycloakId, userClient::getUserByKeycloakId);
+    }
+
+    @Override
+    public void evict(String keycloakId) {
+        users.invalidate(keycloakId);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        log.debug("User {} {}, evicting it from the cache", event.getKeycloakId(), event.getChange());
+        evict(event.getKeycloakId());
+    }
+}
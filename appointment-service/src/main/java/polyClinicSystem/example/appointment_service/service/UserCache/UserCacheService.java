@@ -0,0 +1,8 @@
+package polyClinicSystem.example.appointment_service.service.UserCache;
+
+import polyClinicSystem.example.appointment_service.dto.response.UserResponse;
+
+public interface UserCacheService {
+    UserResponse getUser(String keycloakId);
+    void evict(String keycloakId);
+}
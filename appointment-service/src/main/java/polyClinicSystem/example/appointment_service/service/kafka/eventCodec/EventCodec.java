@@ -0,0 +1,28 @@
+package polyClinicSystem.example.appointment_service.service.kafka.eventCodec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+
+import java.io.IOException;
+
+public interface EventCodec {
+    /*
+    encodes the dto/event classes into the outbox payload bytes that are sent to Kafka as they are.
+    SCHEMA_VERSION is the layout of the dto/event classes: adding a field keeps it (consumers ignore unknown fields),
+    renaming or removing one bumps it so consumers can tell the old and new payloads apart.
+     */
+
+    int SCHEMA_VERSION = 1;
+
+    String CONTENT_TYPE_HEADER = "content-type";
+    String SCHEMA_VERSION_HEADER = "schema-version";
+
+    EventFormat getFormat();
+
+    byte[] encode(Object event) throws JsonProcessingException;
+
+    /**
+     * Render an encoded payload as JSON text, for the admin API
+     */
+    String toJson(byte[] payload) throws IOException;
+}
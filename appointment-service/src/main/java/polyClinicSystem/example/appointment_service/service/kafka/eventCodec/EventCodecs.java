@@ -0,0 +1,40 @@
+package polyClinicSystem.example.appointment_service.service.kafka.eventCodec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class EventCodecs {
+    /*
+    new events are encoded with the configured codec, stored events keep the format they were written with,
+    so switching appointment.outbox.codec never breaks the events already waiting in the outbox
+     */
+
+    private final Map<EventFormat, EventCodec> codecs = new EnumMap<>(EventFormat.class);
+    private final EventFormat writeFormat;
+
+    public EventCodecs(List<EventCodec> codecList, @Value("${appointment.outbox.codec:JSON}") EventFormat writeFormat) {
+        codecList.forEach(codec -> codecs.put(codec.getFormat(), codec));
+        if (!codecs.containsKey(writeFormat)) {
+            throw new IllegalStateException("No event codec for format " + writeFormat);
+        }
+        this.writeFormat = writeFormat;
+    }
+
+    public EventCodec getWriteCodec() {
+        return codecs.get(writeFormat);
+    }
+
+    public EventCodec get(EventFormat format) {
+        EventCodec codec = codecs.get(format);
+        if (codec == null) {
+            throw new IllegalStateException("No event codec for format " + format);
+        }
+        return codec;
+    }
+}
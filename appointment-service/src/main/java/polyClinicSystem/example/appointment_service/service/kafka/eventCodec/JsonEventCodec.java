@@ -0,0 +1,31 @@
+package polyClinicSystem.example.appointment_service.service.kafka.eventCodec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+
+import java.nio.charset.StandardCharsets;
+
+@Component
+@RequiredArgsConstructor
+public class JsonEventCodec implements EventCodec {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public EventFormat getFormat() {
+        return EventFormat.JSON;
+    }
+
+    @Override
+    public byte[] encode(Object event) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    @Override
+    public String toJson(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
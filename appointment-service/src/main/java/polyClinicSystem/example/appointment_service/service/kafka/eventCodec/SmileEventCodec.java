@@ -0,0 +1,35 @@
+package polyClinicSystem.example.appointment_service.service.kafka.eventCodec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.stereotype.Component;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+
+import java.io.IOException;
+
+@Component
+public class SmileEventCodec implements EventCodec {
+
+    private final ObjectMapper smileMapper;
+
+    public SmileEventCodec(ObjectMapper objectMapper) {
+        // same modules and settings as the JSON codec, so both formats decode into the same event classes
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+    }
+
+    @Override
+    public EventFormat getFormat() {
+        return EventFormat.SMILE;
+    }
+
+    @Override
+    public byte[] encode(Object event) throws JsonProcessingException {
+        return smileMapper.writeValueAsBytes(event);
+    }
+
+    @Override
+    public String toJson(byte[] payload) throws IOException {
+        return smileMapper.readTree(payload).toString();
+    }
+}
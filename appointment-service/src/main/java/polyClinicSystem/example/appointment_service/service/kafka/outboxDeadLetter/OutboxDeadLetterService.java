@@ -0,0 +1,12 @@
+package polyClinicSystem.example.appointment_service.service.kafka.outboxDeadLetter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import polyClinicSystem.example.appointment_service.dto.response.DeadLetterResponse;
+
+import java.util.List;
+
+public interface OutboxDeadLetterService {
+    List<DeadLetterResponse> getDeadLetters(Long afterId, Integer size, HttpServletRequest httpRequest);
+    DeadLetterResponse getDeadLetter(Long id, HttpServletRequest httpRequest);
+    void replay(Long id, HttpServletRequest httpRequest);
+}
@@ -0,0 +1,107 @@
+package polyClinicSystem.example.appointment_service.service.kafka.outboxDeadLetter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import polyClinicSystem.example.appointment_service.dto.response.DeadLetterResponse;
+import polyClinicSystem.example.appointment_service.exception.customExceptions.AccessDeniedException;
+import polyClinicSystem.example.appointment_service.exception.customExceptions.BadRequestException;
+import polyClinicSystem.example.appointment_service.exception.customExceptions.NotFoundException;
+import polyClinicSystem.example.appointment_service.model.event.OutboxDeadLetter;
+import polyClinicSystem.example.appointment_service.repository.OutboxDeadLetterRepository;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.EventCodecs;
+import polyClinicSystem.example.appointment_service.service.kafka.outboxPublisher.OutboxPublisher;
+import polyClinicSystem.example.appointment_service.service.token.TokenService;
+
+import java.io.IOException;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxDeadLetterServiceImpl implements OutboxDeadLetterService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final OutboxDeadLetterRepository deadLetterRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final EventCodecs eventCodecs;
+    private final TokenService tokenService;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DeadLetterResponse> getDeadLetters(Long afterId, Integer size, HttpServletRequest httpRequest) {
+        checkAdminAccess(httpRequest);
+
+        int pageSize = size == null ? 20 : size;
+        if (pageSize < 1) {
+            throw new BadRequestException("Page size must be positive");
+        }
+
+        return deadLetterRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId,
+                        Limit.of(Math.min(pageSize, MAX_PAGE_SIZE)))
+                .stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DeadLetterResponse getDeadLetter(Long id, HttpServletRequest httpRequest) {
+        checkAdminAccess(httpRequest);
+
+        return deadLetterRepository.findById(id)
+                .map(this::toResponse)
+                .orElseThrow(() -> new NotFoundException("Dead letter event not found with id: " + id));
+    }
+
+    @Override
+    @Transactional
+    public void replay(Long id, HttpServletRequest httpRequest) {
+        checkAdminAccess(httpRequest);
+
+        if (deadLetterRepository.replay(id) == 0) {
+            throw new NotFoundException("Dead letter event not found with id: " + id);
+        }
+        log.info("Dead letter event replayed: id={}", id);
+
+        // the replayed event is picked up by the next relay round
+        outboxPublisher.wakeUp();
+    }
+
+    private void checkAdminAccess(HttpServletRequest request) {
+        String role = tokenService.extractUserRole(request);
+        if (!"ADMIN".equals(role)) {
+            throw new AccessDeniedException("Admin access required");
+        }
+    }
+
+    private DeadLetterResponse toResponse(OutboxDeadLetter deadLetter) {
+        return DeadLetterResponse.builder()
+                .id(deadLetter.getId())
+                .aggregateType(deadLetter.getAggregateType())
+                .aggregateId(deadLetter.getAggregateId())
+                .eventType(deadLetter.getEventType())
+                .payload(renderPayload(deadLetter))
+                .payloadFormat(deadLetter.getPayloadFormat())
+                .schemaVersion(deadLetter.getSchemaVersion())
+                .createdAt(deadLetter.getCreatedAt())
+                .retryCount(deadLetter.getRetryCount())
+                .lastError(deadLetter.getLastError())
+                .deadAt(deadLetter.getDeadAt())
+                .build();
+    }
+
+    private String renderPayload(OutboxDeadLetter deadLetter) {
+        try {
+            return eventCodecs.get(deadLetter.getPayloadFormat()).toJson(deadLetter.getPayload());
+        } catch (IOException e) {
+            // a payload that can't even be decoded is likely why the event died, still list it
+            log.warn("Failed to decode dead letter payload: id={}", deadLetter.getId(), e);
+            return null;
+        }
+    }
+}
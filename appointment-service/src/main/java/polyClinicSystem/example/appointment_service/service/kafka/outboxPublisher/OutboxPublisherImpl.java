@@ -1,116 +1,420 @@
 package polyClinicSystem.example.appointment_service.service.kafka.outboxPublisher;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import polyClinicSystem.example.appointment_service.model.event.OutboxEvent;
+import polyClinicSystem.example.appointment_service.repository.OutboxDeadLetterRepository;
+import polyClinicSystem.example.appointment_service.repository.OutboxEventJdbcRepository;
 import polyClinicSystem.example.appointment_service.repository.OutboxEventRepository;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.EventCodec;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OutboxPublisherImpl implements OutboxPublisher {
+    /*
+    the relay reads a batch of unsent events, hands all of them to the producer at once
+    (it pipelines them into per partition batches instead of one round trip per event),
+    then waits for all the acks and updates the whole batch with one UPDATE ... WHERE id IN,
+    bounded by the created_at range of the batch so postgres only touches the daily partitions of its events.
+    while batches come back full and nothing failed it goes on with the next one right away,
+    once the backlog is drained (or Kafka is failing) it stops until the next wake up or safety net poll.
+    with several replicas each one claims its batch (claimed_by + claimed_until lease, FOR UPDATE SKIP LOCKED),
+    so the replicas share the backlog instead of all publishing the same oldest events.
+    the lease is longer than the send timeout, a batch is only taken over if its replica died.
+    the relay runs on its own thread: OutboxServiceImpl wakes it up after the transaction that saved an event commits,
+    so events go out within milliseconds, wake ups that come while it runs are coalesced into one more round.
+    the instance that wrote the event relays it, so no cross instance notification is needed,
+    the slow scheduled poll is only a safety net for events left behind (crash, Kafka down, lease expired).
+    a failed event is claimable again only after next_attempt_at (exponential backoff with jitter),
+    and after maxRetries failures it's moved to outbox_dead_letter, so poison events never block the newer ones.
+    a batch holds at most one event per appointment (the oldest unsent one), keyed by appointment id:
+    the producer groups the records into per partition batches and sends the partitions in parallel,
+    while the events of one appointment are sent one round after the other, in creation order.
+    kafka only orders records per key per topic, so every event type goes to the one appointment-events topic
+    and the event-type header tells the consumer which event it is: a consumer sees an appointment's events in order.
+    a failing event holds back only the later events of its own appointment until it's sent or dead lettered.
+    in transactional mode each batch is one Kafka transaction (idempotent producer, fenced transactional.id),
+    and every record carries its outbox id in the outbox-id header so consumers can drop a resend.
+    payloads are sent as the bytes stored in the outbox (ByteArraySerializer), the content-type and schema-version
+    headers tell the consumer how to decode them (see EventCodec).
+     */
+
+    public static final String TOPIC = "appointment-events";
+    public static final String OUTBOX_ID_HEADER = "outbox-id";
+    public static final String EVENT_TYPE_HEADER = "event-type";
+
+    private static final int DROP_ATTEMPTS = 5;
+    private static final long DROP_RETRY_PAUSE_MILLIS = 2000;
+
+    // outbox_events_y2025m03d14, see V12 migration
+    private static final DateTimeFormatter PARTITION_NAME_FORMAT = DateTimeFormatter.ofPattern("'outbox_events_y'yyyy'm'MM'd'dd");
+
     private final OutboxEventRepository outboxRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxEventJdbcRepository outboxJdbcRepository;
+    private final OutboxDeadLetterRepository deadLetterRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${appointment.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${appointment.outbox.send-timeout-millis:30000}")
+    private long sendTimeoutMillis;
+
+    @Value("${appointment.outbox.lease-millis:60000}")
+    private long leaseMillis;
+
+    @Value("${appointment.outbox.transactional:false}")
+    private boolean transactional;
+
+    @Value("${appointment.outbox.max-retries:10}")
+    private int maxRetries;
+
+    @Value("${appointment.outbox.backoff-base-millis:1000}")
+    private long backoffBaseMillis;
+
+    @Value("${appointment.outbox.backoff-max-millis:600000}")
+    private long backoffMaxMillis;
 
-    @Scheduled(fixedDelay = 5000) // Every 5 seconds
-    @Transactional
+    @Value("${appointment.outbox.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${appointment.outbox.partition-days-ahead:7}")
+    private int partitionDaysAhead;
+
+    @Value("${appointment.outbox.drop-lock-wait-millis:500}")
+    private int dropLockWaitMillis;
+
+    @Value("${appointment.outbox.instance-id:#{T(java.util.UUID).randomUUID().toString()}}")
+    private String instanceId;
+
+    private final ExecutorService relayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean relayRequested = new AtomicBoolean();
+
+    @Scheduled(fixedDelayString = "${appointment.outbox.poll-interval-millis:30000}") // Safety net poll
     public void publishPendingEvents() {
-        try {
-            List<OutboxEvent> pendingEvents = outboxRepository.findTop100BySentFalseOrderByCreatedAtAsc();
-
-            if (!pendingEvents.isEmpty()) {
-                log.debug("Publishing {} pending outbox events", pendingEvents.size());
-
-                for (OutboxEvent event : pendingEvents) {
-                    try {
-                        // Determine Kafka topic based on event type
-                        String topic = getTopicForEventType(event.getEventType());
-
-                /**
-                 * don't need this line because it's already object (it built in this service as object (dto) and sent)
-                         Object payload = objectMapper.readValue(event.getPayload(), Object. Class);
-                 **/
-                        // Send to Kafka
-                        kafkaTemplate.send(topic, event.getAggregateId(), event.getPayload())
-                                .whenComplete((result, ex) -> {
-                                    if (ex == null) {
-                                        markEventAsSent(event);
-                                        log.debug("Event published to Kafka: id={}, topic={}", event.getId(), topic);
-                                    } else {
-                                        handlePublishFailure(event, ex);
-                                    }
-                                });
-
-                    } catch (Exception e) {
-                        log.error("Failed to publish event: id={}", event.getId(), e);
-                        event.setRetryCount(event.getRetryCount() + 1);
-                        outboxRepository.save(event);
-                    }
-                }
+        wakeUp();
+    }
+
+    /**
+     * Ask the relay thread to publish the pending events,
+     * calls made while a round is queued are coalesced into it
+     */
+    @Override
+    public void wakeUp() {
+        if (relayRequested.compareAndSet(false, true)) {
+            try {
+                relayExecutor.execute(this::relay);
+            } catch (RejectedExecutionException e) {
+                // shutting down, the next start picks the events up
+                relayRequested.set(false);
             }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relayExecutor.shutdown();
+    }
+
+    private void relay() {
+        // cleared first so a wake up that comes during this round queues another one
+        relayRequested.set(false);
+
+        try {
+            boolean backlog;
+            do {
+                backlog = relayBatch();
+            } while (backlog);
 
         } catch (Exception e) {
             log.error("Error in outbox publisher", e);
         }
     }
 
-    @Transactional
-    public void markEventAsSent(OutboxEvent event) {
-        event.setSent(true);
-        event.setSentAt(Instant.now());
-        outboxRepository.save(event);
+    /**
+     * Publish one batch of pending events
+     *
+     * @return true if the batch was fully published, so there may be more waiting
+     * (a full backlog or later events of the same appointments that were held back)
+     */
+    private boolean relayBatch() {
+        Instant now = Instant.now();
+        List<OutboxEvent> claimedEvents = transactionTemplate.execute(status -> outboxJdbcRepository.claimBatch(
+                instanceId, now, now.plusMillis(leaseMillis), batchSize));
+
+        if (claimedEvents == null || claimedEvents.isEmpty()) {
+            return false;
+        }
+
+        // the claim returns rows unordered, publish oldest first
+        List<OutboxEvent> pendingEvents = new ArrayList<>(claimedEvents);
+        pendingEvents.sort(Comparator.comparing(OutboxEvent::getCreatedAt).thenComparing(OutboxEvent::getId));
+
+        log.debug("Publishing {} pending outbox events", pendingEvents.size());
+
+        List<OutboxEvent> sentEvents = new ArrayList<>();
+        // failed events grouped by error message, so each group is released with one statement
+        Map<String, List<OutboxEvent>> failedEvents = new LinkedHashMap<>();
+
+        if (transactional) {
+            sendInTransaction(pendingEvents, sentEvents, failedEvents);
+        } else {
+            sendPipelined(pendingEvents, sentEvents, failedEvents);
+        }
+
+        int failedCount = failedEvents.values().stream().mapToInt(List::size).sum();
+        Integer deadCount = transactionTemplate.execute(status -> {
+            Instant finishedAt = Instant.now();
+            if (!sentEvents.isEmpty()) {
+                outboxRepository.markSent(idsOf(sentEvents), oldestOf(sentEvents), newestOf(sentEvents),
+                        instanceId, finishedAt);
+            }
+            if (failedEvents.isEmpty()) {
+                return 0;
+            }
+
+            for (Map.Entry<String, List<OutboxEvent>> failure : failedEvents.entrySet()) {
+                List<OutboxEvent> failed = failure.getValue();
+                outboxRepository.releaseFailed(idsOf(failed), oldestOf(failed), newestOf(failed),
+                        instanceId, failure.getKey(), finishedAt, backoffBaseMillis, backoffMaxMillis);
+            }
+            // If retry count reaches the threshold, the event stops being claimed and waits for an admin replay
+            List<OutboxEvent> allFailed = failedEvents.values().stream().flatMap(List::stream).toList();
+            return deadLetterRepository.moveToDeadLetter(idsOf(allFailed), oldestOf(allFailed), newestOf(allFailed),
+                    maxRetries, finishedAt);
+        });
+
+        meterRegistry.counter("outbox.relay.sent").increment(sentEvents.size());
+        meterRegistry.counter("outbox.relay.failed").increment(failedCount);
+
+        if (deadCount != null && deadCount > 0) {
+            meterRegistry.counter("outbox.relay.dead").increment(deadCount);
+            log.error("{} outbox events exceeded {} retries and were moved to outbox_dead_letter", deadCount, maxRetries);
+        }
+        log.debug("Outbox batch done: {} sent, {} failed", sentEvents.size(), failedCount);
+
+        return failedEvents.isEmpty() && !sentEvents.isEmpty();
+    }
+
+    private void sendPipelined(List<OutboxEvent> events, List<OutboxEvent> sentEvents,
+                             Map<String, List<OutboxEvent>> failedEvents) {
+        // Send the whole batch first, the producer batches and pipelines the records
+        Map<OutboxEvent, CompletableFuture<SendResult<String, byte[]>>> sends = new LinkedHashMap<>();
+
+        for (OutboxEvent event : events) {
+            try {
+                sends.put(event, kafkaTemplate.send(toRecord(event)));
+            } catch (Exception e) {
+                log.error("Failed to publish event: id={}", event.getId(), e);
+                addFailure(failedEvents, event, e);
+            }
+        }
+
+        // Then wait for the acks, the deadline is for the whole batch
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+
+        for (Map.Entry<OutboxEvent, CompletableFuture<SendResult<String, byte[]>>> send : sends.entrySet()) {
+            OutboxEvent event = send.getKey();
+            try {
+                send.getValue().get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                sentEvents.add(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                addFailure(failedEvents, event, e);
+            } catch (ExecutionException | TimeoutException e) {
+                log.error("Failed to publish event to Kafka: id={}", event.getId(), e);
+                addFailure(failedEvents, event, e instanceof ExecutionException ? e.getCause() : e);
+            }
+        }
+    }
+
+    private void sendInTransaction(List<OutboxEvent> events, List<OutboxEvent> sentEvents,
+                                 Map<String, List<OutboxEvent>> failedEvents) {
+        // All the records of the batch become visible to read_committed consumers together, or none of them,
+        // the commit waits for the acks of the whole batch
+        try {
+            kafkaTemplate.executeInTransaction(operations -> {
+                for (OutboxEvent event : events) {
+                    operations.send(toRecord(event));
+                }
+                return null;
+            });
+            sentEvents.addAll(events);
+
+        } catch (Exception e) {
+            if (events.size() == 1 || isRetriable(e)) {
+                log.error("Failed to publish outbox transaction of {} events", events.size(), e);
+                events.forEach(event -> addFailure(failedEvents, event, e));
+                return;
+            }
+
+            // a non retriable error (too large, serialization) comes from one record,
+            // one transaction per event keeps it from failing (and dead lettering) the healthy ones
+            log.warn("Outbox transaction of {} events aborted, sending them one by one", events.size(), e);
+            for (OutboxEvent event : events) {
+                sendInTransaction(List.of(event), sentEvents, failedEvents);
+            }
+        }
+    }
+
+    private ProducerRecord<String, byte[]> toRecord(OutboxEvent event) {
+        /**
+         * don't need this line because it's already object (it built in this service as object (dto) and sent)
+         Object payload = objectMapper.readValue(event.getPayload(), Object. Class);
+         **/
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(TOPIC, event.getAggregateId(), event.getPayload());
+
+        // a crash between the Kafka ack and markSent publishes the event again,
+        // consumers drop a record whose outbox id they already handled
+        record.headers().add(OUTBOX_ID_HEADER, String.valueOf(event.getId()).getBytes(StandardCharsets.UTF_8));
+        record.headers().add(EVENT_TYPE_HEADER, event.getEventType().getBytes(StandardCharsets.UTF_8));
+        record.headers().add(EventCodec.CONTENT_TYPE_HEADER,
+                event.getPayloadFormat().getContentType().getBytes(StandardCharsets.UTF_8));
+        record.headers().add(EventCodec.SCHEMA_VERSION_HEADER,
+                String.valueOf(event.getSchemaVersion()).getBytes(StandardCharsets.UTF_8));
+        return record;
     }
 
-    public void handlePublishFailure(OutboxEvent event, Throwable ex) {
-        log.error("Failed to publish event to Kafka: id={}", event.getId(), ex);
-        event.setRetryCount(event.getRetryCount() + 1);
+    private boolean isRetriable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        // If retry count exceeds threshold, mark as failed (or implement dead letter queue)
-        if (event.getRetryCount() > 10) {
-            log.error("Event exceeded max retries: id={}", event.getId());
-            // Optionally: move to dead letter table or alert
+    private void addFailure(Map<String, List<OutboxEvent>> failedEvents, OutboxEvent event, Throwable error) {
+        String message = String.valueOf(error);
+        if (message.length() > 1000) {
+            message = message.substring(0, 1000);
         }
+        failedEvents.computeIfAbsent(message, k -> new ArrayList<>()).add(event);
+    }
+
+    private static List<Long> idsOf(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getId).toList();
+    }
 
-        outboxRepository.save(event);
+    // the created_at range of a batch, so the statements on it only touch the daily partitions of its events
+    private static Instant oldestOf(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getCreatedAt).min(Comparator.naturalOrder()).orElseThrow();
     }
 
-    public String getTopicForEventType(String eventType) {
-        return switch (eventType) {
-            case "appointment.payment.created" -> "appointment-payment-created";
-            case "appointment.scheduled" -> "appointment-scheduled";
-            case "appointment.rejected" -> "appointment-rejected";
-            default -> "appointment-events";
-        };
+    private static Instant newestOf(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getCreatedAt).max(Comparator.naturalOrder()).orElseThrow();
     }
 
     /**
-     * Cleanup old sent events (runs daily at 3 AM)
+     * Maintain the daily outbox partitions (runs daily at 3 AM): create the next partitionDaysAhead days
+     * and drop the days older than retentionDays in one statement each, instead of deleting the events row by row.
+     * A day that still has unsent events (backing off) is kept until they're sent or dead lettered.
      */
     @Scheduled(cron = "0 0 3 * * *")
-    @Transactional
     public void cleanupOldEvents() {
         log.debug("Starting cleanup of old outbox events");
 
         try {
-            Instant cutoffTime = Instant.now().minusSeconds(30 * 24 * 60 * 60); // 30 days ago
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+            for (int i = 0; i <= partitionDaysAhead; i++) {
+                LocalDate day = today.plusDays(i);
+                transactionTemplate.execute(status -> outboxRepository.createDailyPartition(day));
+            }
 
-            List<OutboxEvent> oldEvents = outboxRepository
-                    .findBySentTrueAndSentAtBefore(cutoffTime);
+            LocalDate cutoffDay = today.minusDays(retentionDays);
+            int dropped = 0;
 
-            if (!oldEvents.isEmpty()) {
-                outboxRepository.deleteAll(oldEvents);
-                log.info("Cleaned up {} old outbox events", oldEvents.size());
+            for (String partitionName : outboxRepository.findDailyPartitionNames()) {
+                LocalDate day = LocalDate.parse(partitionName, PARTITION_NAME_FORMAT);
+                if (!day.isBefore(cutoffDay)) {
+                    break; // names are sorted oldest first
+                }
+
+                // each drop is its own short transaction, it locks outbox_events until commit
+                Boolean isDropped = dropPartition(day);
+                if (isDropped == null) {
+                    log.warn("Outbox partition {} is busy, kept until the next cleanup", partitionName);
+                    break;
+                }
+                if (isDropped) {
+                    dropped++;
+                } else {
+                    log.warn("Outbox partition {} still has unsent events, kept", partitionName);
+                }
             }
 
+            Instant cutoffTime = cutoffDay.atStartOfDay(ZoneOffset.UTC).toInstant();
+            Integer deleted = transactionTemplate.execute(status ->
+                    outboxRepository.deleteSentFromDefaultPartition(cutoffTime));
+            transactionTemplate.execute(status -> outboxRepository.deleteEventKeysBefore(cutoffTime));
+
+            log.info("Cleaned up old outbox events: {} daily partitions dropped, {} events deleted from the default partition",
+                    dropped, deleted);
+
         } catch (Exception e) {
             log.error("Error during outbox cleanup", e);
         }
     }
+
+    /**
+     * Drop a daily partition, trying again a few times when the lock on outbox_events isn't granted
+     * within dropLockWaitMillis (a long booking transaction holds it)
+     *
+     * @return null if the lock was never granted
+     */
+    private Boolean dropPartition(LocalDate day) {
+        for (int attempt = 1; attempt <= DROP_ATTEMPTS; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> outboxRepository.dropDailyPartition(day, dropLockWaitMillis));
+            } catch (PessimisticLockingFailureException e) {
+                log.debug("Outbox partition of {} is busy (attempt {}/{})", day, attempt, DROP_ATTEMPTS);
+            }
+
+            try {
+                TimeUnit.MILLISECONDS.sleep(DROP_RETRY_PAUSE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
 }
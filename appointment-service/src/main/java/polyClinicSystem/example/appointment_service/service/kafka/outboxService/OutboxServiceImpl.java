@@ -1,15 +1,19 @@
 package polyClinicSystem.example.appointment_service.service.kafka.outboxService;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import polyClinicSystem.example.appointment_service.dto.event.*;
 import polyClinicSystem.example.appointment_service.model.entity.Appointment;
 import polyClinicSystem.example.appointment_service.model.event.OutboxEvent;
 import polyClinicSystem.example.appointment_service.repository.OutboxEventRepository;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.EventCodec;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.EventCodecs;
+import polyClinicSystem.example.appointment_service.service.kafka.outboxPublisher.OutboxPublisher;
 
 import java.time.Instant;
 
@@ -20,23 +24,13 @@ import java.time.Instant;
 public class OutboxServiceImpl implements OutboxService{
 
     private final OutboxEventRepository outboxRepository;
-    private final ObjectMapper objectMapper;
+    private final EventCodecs eventCodecs;
+    private final OutboxPublisher outboxPublisher;
 
     @Transactional
     public void publishPaymentConfirmedEvent(Appointment appointment) {
         log.debug("Publishing payment confirmed event for appointment: {}", appointment.getId());
 
-        // Check for duplicate events (idempotency)
-        boolean exists = outboxRepository.findByAggregateIdAndEventType(
-                appointment.getReservationToken(),
-                "appointment.payment.created"
-        ).stream().anyMatch(e -> !e.isSent());
-
-        if (exists) {
-            log.info("Payment confirmed event already exists for token: {}", appointment.getReservationToken());
-            return;
-        }
-
         PaymentConfirmedEvent event = PaymentConfirmedEvent.builder()
                 .reservationToken(appointment.getReservationToken())
                 .appointmentId(appointment.getId())
@@ -48,7 +42,7 @@ public class OutboxServiceImpl implements OutboxService{
                 .timestamp(Instant.now())
                 .build();
 
-        saveOutboxEvent("appointment", appointment.getReservationToken(),
+        saveOutboxEvent("appointment", String.valueOf(appointment.getId()),
                 "appointment.payment.created", event);
     }
 
@@ -127,21 +121,38 @@ public class OutboxServiceImpl implements OutboxService{
                 "appointment.completed", event);
     }
 
+    /*
+    aggregateId is always the appointment id: it's the Kafka key, so the events of one appointment go to the same
+    partition of the one appointment-events topic, whatever their type, and the relay sends them in creation order
+    (see OutboxEventJdbcRepository.claimBatch).
+    the payload is encoded once here with the configured codec (appointment.outbox.codec), the relay sends the bytes as they are.
+    an appointment has at most one event of each type: a retried confirm or cancel finds its key already claimed
+    and queues nothing, whether the first event was relayed or not
+     */
     public void saveOutboxEvent(String aggregateType, String aggregateId, String eventType, Object payload) {
         try {
-            String payloadJson = objectMapper.writeValueAsString(payload);
+            Instant createdAt = Instant.now();
+            if (outboxRepository.claimEventKey(aggregateId, eventType, createdAt) == 0) {
+                log.info("Outbox event already exists: type={}, aggregateId={}", eventType, aggregateId);
+                return;
+            }
+
+            EventCodec codec = eventCodecs.getWriteCodec();
 
             OutboxEvent outboxEvent = OutboxEvent.builder()
                     .aggregateType(aggregateType)
                     .aggregateId(aggregateId)
                     .eventType(eventType)
-                    .payload(payloadJson)
+                    .payload(codec.encode(payload))
+                    .payloadFormat(codec.getFormat())
+                    .schemaVersion(EventCodec.SCHEMA_VERSION)
                     .sent(false)
-                    .createdAt(Instant.now())
+                    .createdAt(createdAt)
                     .retryCount(0)
                     .build();
 
             outboxRepository.save(outboxEvent);
+            wakeUpRelayAfterCommit();
 
             log.info("Outbox event saved: type={}, aggregateId={}", eventType, aggregateId);
 
@@ -150,4 +161,19 @@ public class OutboxServiceImpl implements OutboxService{
             throw new RuntimeException("Failed to create outbox event", e);
         }
     }
+
+    private void wakeUpRelayAfterCommit() {
+        // the relay can only see the event once it's committed, instead of waiting for the next poll
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outboxPublisher.wakeUp();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxPublisher.wakeUp();
+            }
+        });
+    }
 }
\ No newline at end of file
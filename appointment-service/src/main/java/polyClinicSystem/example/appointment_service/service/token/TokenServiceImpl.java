@@ -1,59 +1,67 @@
 package polyClinicSystem.example.appointment_service.service.token;
 
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import polyClinicSystem.example.appointment_service.client.UserClient;
 import polyClinicSystem.example.appointment_service.dto.response.UserResponse;
 import polyClinicSystem.example.appointment_service.exception.customExceptions.NotFoundException;
+import polyClinicSystem.example.appointment_service.service.UserCache.UserCacheService;
+import polyClinicSystem.example.common_security.jwt.JwtClaimsResolver;
 
 @RequiredArgsConstructor
 @Service
 public class TokenServiceImpl implements TokenService {
+    /*
+    the user id and the role come from the token (JwtClaimsResolver parses it once per request and caches it until exp),
+    so access checks need no call to user-management. the current user is memoized on the request
+    and fetched at most once (through UserCacheService) by the code that needs more than the id and role.
+     */
 
-    private final UserClient userClient;
+    private static final String CURRENT_USER_ATTRIBUTE = TokenServiceImpl.class.getName() + ".currentUser";
+
+    private final JwtClaimsResolver jwtClaimsResolver;
+    private final UserCacheService userCache;
 
     @Override
     public String extractToken(HttpServletRequest request) {
-        String header = request.getHeader("Authorization");
-
-        if (header == null || !header.startsWith("Bearer ")) {
-            return null;
-        }
-        return header.substring(7); // remove "Bearer "
+        return jwtClaimsResolver.extractToken(request);
     }
 
     @Override
     public String extractUserId(HttpServletRequest request) {
-        String token = extractToken(request);
-        if (token == null) {
-            throw new RuntimeException("Token not found in request");
-        }
-
-        try {
-            SignedJWT signed = SignedJWT.parse(token);
-            JWTClaimsSet claims = signed.getJWTClaimsSet();
-            return claims.getStringClaim("sub");
-        } catch (Exception e) {
-            throw new RuntimeException("Invalid JWT Token", e);
-        }
+        return jwtClaimsResolver.resolve(request).getSubject();
     }
 
     @Override
     public String extractUserRole(HttpServletRequest request) {
+        String role = jwtClaimsResolver.resolve(request).getRole();
+        if (role != null) {
+            return role;
+        }
+
+        // token without an application role (client not mapping realm roles) or not verified, ask user-management
         UserResponse currentUser = getCurrentUser(request);
         return currentUser.getRole().name();
     }
 
     @Override
     public UserResponse getCurrentUser(HttpServletRequest request) throws NotFoundException {
+        if (request.getAttribute(CURRENT_USER_ATTRIBUTE) instanceof UserResponse currentUser) {
+            return currentUser;
+        }
+
         String userId = extractUserId(request);
+        UserResponse currentUser;
         try {
-            return userClient.getUserByKeycloakId(userId);
+            currentUser = userCache.getUser(userId);
         } catch (Exception e) {
             throw new NotFoundException("User not found with id: " + userId);
         }
+        if (currentUser == null) {
+            throw new NotFoundException("User not found with id: " + userId);
+        }
+
+        request.setAttribute(CURRENT_USER_ATTRIBUTE, currentUser);
+        return currentUser;
     }
 }
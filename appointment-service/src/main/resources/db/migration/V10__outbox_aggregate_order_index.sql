@@ -0,0 +1,4 @@
+-- The relay only claims the oldest unsent event of each aggregate (appointment),
+-- this index answers "is there an older unsent event for this aggregate" without scanning the backlog
+
+CREATE INDEX idx_outbox_unsent_aggregate ON outbox_events (aggregate_id, id) WHERE sent = false;
@@ -0,0 +1,11 @@
+-- Outbox payloads are stored as the encoded bytes that go to Kafka (JSON text or binary Smile),
+-- payload_format says how they're encoded and schema_version which layout of the dto/event classes they follow,
+-- both are sent as record headers so consumers pick the right decoder
+
+ALTER TABLE outbox_events ALTER COLUMN payload TYPE BYTEA USING convert_to(payload, 'UTF8');
+ALTER TABLE outbox_events ADD COLUMN payload_format VARCHAR(16) NOT NULL DEFAULT 'JSON';
+ALTER TABLE outbox_events ADD COLUMN schema_version INTEGER NOT NULL DEFAULT 1;
+
+ALTER TABLE outbox_dead_letter ALTER COLUMN payload TYPE BYTEA USING convert_to(payload, 'UTF8');
+ALTER TABLE outbox_dead_letter ADD COLUMN payload_format VARCHAR(16) NOT NULL DEFAULT 'JSON';
+ALTER TABLE outbox_dead_letter ADD COLUMN schema_version INTEGER NOT NULL DEFAULT 1;
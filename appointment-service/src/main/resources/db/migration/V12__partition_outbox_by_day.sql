@@ -0,0 +1,127 @@
+-- outbox_events becomes a range partitioned table with one partition per (UTC) day of created_at,
+-- old events are removed by dropping whole days instead of deleting rows, so the table and its indexes don't bloat.
+-- the primary key of a partitioned table must contain the partition key, it's (id, created_at),
+-- ids still come from one sequence (shared with the dead letters, replayed events keep their id) so id alone stays unique.
+-- the relay only reads unsent rows, its indexes are partial on sent = false: they only hold the backlog,
+-- whatever the number of sent events kept for the retention period.
+
+ALTER TABLE outbox_events RENAME TO outbox_events_unpartitioned;
+
+CREATE SEQUENCE outbox_event_id_seq;
+
+CREATE TABLE outbox_events (
+    id              BIGINT       NOT NULL DEFAULT nextval('outbox_event_id_seq'),
+    aggregate_type  VARCHAR(255) NOT NULL,
+    aggregate_id    VARCHAR(255) NOT NULL,
+    event_type      VARCHAR(255) NOT NULL,
+    payload         BYTEA        NOT NULL,
+    payload_format  VARCHAR(16)  NOT NULL DEFAULT 'JSON',
+    schema_version  INTEGER      NOT NULL DEFAULT 1,
+    sent            BOOLEAN      NOT NULL,
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    sent_at         TIMESTAMP(6) WITH TIME ZONE,
+    retry_count     INTEGER      NOT NULL,
+    claimed_by      VARCHAR(255),
+    claimed_until   TIMESTAMP(6) WITH TIME ZONE,
+    next_attempt_at TIMESTAMP(6) WITH TIME ZONE,
+    last_error      VARCHAR(1000)
+) PARTITION BY RANGE (created_at);
+
+-- catches events of days that have no partition (replayed old events, a missed scheduler run),
+-- create_outbox_partition moves them out
+CREATE TABLE outbox_events_default PARTITION OF outbox_events DEFAULT;
+
+-- Creates the partition outbox_events_yYYYYmMMdDD of a UTC day, returns false if it already exists
+CREATE OR REPLACE FUNCTION create_outbox_partition(event_day DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    day_start      TIMESTAMPTZ := event_day::TIMESTAMP AT TIME ZONE 'UTC';
+    next_day       TIMESTAMPTZ := (event_day + 1)::TIMESTAMP AT TIME ZONE 'UTC';
+    partition_name TEXT := 'outbox_events_' || to_char(event_day, '"y"YYYY"m"MM"d"DD');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM outbox_events_default WHERE created_at >= day_start AND created_at < next_day) THEN
+        -- the day already has rows in the default partition, move them into the new table before attaching it
+        EXECUTE format('CREATE TABLE %I (LIKE outbox_events INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+        EXECUTE format('WITH moved AS (DELETE FROM outbox_events_default WHERE created_at >= $1 AND created_at < $2 RETURNING *) '
+                           || 'INSERT INTO %I SELECT * FROM moved', partition_name)
+            USING day_start, next_day;
+        EXECUTE format('ALTER TABLE outbox_events ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, day_start, next_day);
+    ELSE
+        EXECUTE format('CREATE TABLE %I PARTITION OF outbox_events FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, day_start, next_day);
+    END IF;
+
+    RETURN TRUE;
+END;
+$$;
+
+-- Drops the partition of a UTC day, returns false if it doesn't exist or still has unsent events
+CREATE OR REPLACE FUNCTION drop_outbox_partition(event_day DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_name TEXT := 'outbox_events_' || to_char(event_day, '"y"YYYY"m"MM"d"DD');
+    has_unsent     BOOLEAN;
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    -- held until commit (a few ms), no event of the day can be claimed, marked or replayed between the check and the drop
+    LOCK TABLE outbox_events IN ACCESS EXCLUSIVE MODE;
+
+    EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I WHERE sent = false)', partition_name) INTO has_unsent;
+    IF has_unsent THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('DROP TABLE %I', partition_name);
+    RETURN TRUE;
+END;
+$$;
+
+-- one partition per day from the oldest event to 7 days ahead, the scheduler keeps creating the next ones
+DO
+$$
+DECLARE
+    event_day DATE := LEAST(
+            COALESCE((SELECT MIN(created_at AT TIME ZONE 'UTC')::DATE FROM outbox_events_unpartitioned), CURRENT_DATE),
+            CURRENT_DATE);
+BEGIN
+    WHILE event_day <= CURRENT_DATE + 7 LOOP
+        PERFORM create_outbox_partition(event_day);
+        event_day := event_day + 1;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, payload, payload_format, schema_version,
+                           sent, created_at, sent_at, retry_count, claimed_by, claimed_until, next_attempt_at, last_error)
+SELECT id, aggregate_type, aggregate_id, event_type, payload, payload_format, schema_version,
+       sent, created_at, sent_at, retry_count, claimed_by, claimed_until, next_attempt_at, last_error
+FROM outbox_events_unpartitioned;
+
+-- dead letters keep their outbox id and go back to outbox_events on replay, so start after both tables
+SELECT setval('outbox_event_id_seq', GREATEST(
+        COALESCE((SELECT MAX(id) FROM outbox_events), 0),
+        COALESCE((SELECT MAX(id) FROM outbox_dead_letter), 0)) + 1, FALSE);
+
+DROP TABLE outbox_events_unpartitioned;
+
+ALTER SEQUENCE outbox_event_id_seq OWNED BY outbox_events.id;
+
+ALTER TABLE outbox_events ADD CONSTRAINT outbox_events_pkey PRIMARY KEY (id, created_at);
+
+-- claim: oldest unsent events, the included columns answer the lease and backoff filters from the index
+CREATE INDEX idx_outbox_unsent_created ON outbox_events (created_at, id)
+    INCLUDE (aggregate_id, claimed_until, next_attempt_at)
+    WHERE sent = false;
+
+-- claim: "is there an older unsent event for this aggregate" (V10)
+CREATE INDEX idx_outbox_unsent_aggregate ON outbox_events (aggregate_id, id) WHERE sent = false;
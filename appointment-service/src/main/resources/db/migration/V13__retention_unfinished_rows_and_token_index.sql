@@ -0,0 +1,36 @@
+-- retention no longer skips a month that still has unfinished appointments (a PAID booking nobody approved,
+-- a NULL status): after the detach, those rows are moved back into appointments, where they land in
+-- appointments_default because no partition covers their month anymore, and the rest of the month is archived.
+-- the retention job archives the finished rows of appointments_default row by row afterwards.
+
+-- Moves the rows of a detached monthly partition whose status isn't one of finished_statuses back into appointments,
+-- returns the number of moved rows
+CREATE OR REPLACE FUNCTION move_unfinished_appointments(month_start DATE, finished_statuses TEXT[]) RETURNS BIGINT
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_name TEXT := 'appointments_' || to_char(month_start, '"y"YYYY"m"MM');
+    moved          BIGINT;
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass(partition_name)) THEN
+        RAISE EXCEPTION 'partition % is still attached', partition_name;
+    END IF;
+
+    EXECUTE format('WITH moved AS (DELETE FROM %I WHERE status IS NULL OR NOT (status = ANY ($1)) RETURNING *) '
+                       || 'INSERT INTO appointments SELECT * FROM moved', partition_name)
+        USING finished_statuses;
+    GET DIAGNOSTICS moved = ROW_COUNT;
+
+    RETURN moved;
+END;
+$$;
+
+-- V6 dropped uk_reservation_token because a unique index of a partitioned table must contain the partition key,
+-- the token stays unique per appointment_date and the leading column still serves findByReservationToken
+DROP INDEX idx_reservation_token;
+
+CREATE UNIQUE INDEX uk_reservation_token ON appointments (reservation_token, appointment_date);
@@ -0,0 +1,35 @@
+-- drop_outbox_partition waited for its ACCESS EXCLUSIVE lock on outbox_events for as long as it took, and every
+-- booking transaction that writes an outbox event queued behind it meanwhile.
+-- DETACH PARTITION ... CONCURRENTLY would not block writers, but postgres refuses it on a partitioned table that has
+-- a default partition (outbox_events_default), so the wait is bounded instead: past lock_wait_millis the function
+-- fails with lock_not_available (55P03) and the cleanup job tries again a bit later.
+
+DROP FUNCTION drop_outbox_partition(DATE);
+
+-- Drops the partition of a UTC day, returns false if it doesn't exist or still has unsent events
+CREATE OR REPLACE FUNCTION drop_outbox_partition(event_day DATE, lock_wait_millis INTEGER) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_name TEXT := 'outbox_events_' || to_char(event_day, '"y"YYYY"m"MM"d"DD');
+    has_unsent     BOOLEAN;
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    -- local to the transaction of the call
+    PERFORM set_config('lock_timeout', lock_wait_millis || 'ms', TRUE);
+
+    -- held until commit (a few ms), no event of the day can be claimed, marked or replayed between the check and the drop
+    LOCK TABLE outbox_events IN ACCESS EXCLUSIVE MODE;
+
+    EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I WHERE sent = false)', partition_name) INTO has_unsent;
+    IF has_unsent THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('DROP TABLE %I', partition_name);
+    RETURN TRUE;
+END;
+$$;
@@ -0,0 +1,8 @@
+-- vacation days are matched exactly as english day names ("Monday") by the booking check, the vacation
+-- cancellation and the occupancy cache, new days are normalized on write, this fixes the rows written before
+-- ("monday", " MONDAY "). values that aren't day names are left as they are and never match a date.
+
+UPDATE vacation_day_of_week
+SET day_of_week = initcap(lower(btrim(day_of_week)))
+WHERE lower(btrim(day_of_week)) IN ('monday', 'tuesday', 'wednesday', 'thursday', 'friday', 'saturday', 'sunday')
+  AND day_of_week <> initcap(lower(btrim(day_of_week)));
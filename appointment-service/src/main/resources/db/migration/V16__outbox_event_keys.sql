@@ -0,0 +1,23 @@
+-- an appointment goes through each of its events once (payment.created, scheduled, rejected, cancelled, completed),
+-- a retried confirm or cancel must not queue the same event again, even once the first one was relayed.
+-- the check can't be a unique index on outbox_events: on a partitioned table it has to contain created_at,
+-- and looking the pair up over all rows would probe every daily partition.
+-- the pair is claimed in this small unpartitioned table instead, in the transaction that writes the event:
+-- a concurrent retry waits on the key and inserts nothing once the first commits.
+-- keys are deleted with the events, after the retention period (see OutboxPublisherImpl.cleanupOldEvents).
+
+CREATE TABLE outbox_event_keys (
+    aggregate_id VARCHAR(255) NOT NULL,
+    event_type   VARCHAR(255) NOT NULL,
+    created_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (aggregate_id, event_type)
+);
+
+CREATE INDEX idx_outbox_event_keys_created_at ON outbox_event_keys (created_at);
+
+INSERT INTO outbox_event_keys (aggregate_id, event_type, created_at)
+SELECT aggregate_id, event_type, MIN(created_at)
+FROM (SELECT aggregate_id, event_type, created_at FROM outbox_events
+      UNION ALL
+      SELECT aggregate_id, event_type, created_at FROM outbox_dead_letter) e
+GROUP BY aggregate_id, event_type;
@@ -0,0 +1,26 @@
+-- detach_appointments_partition waited for its ACCESS EXCLUSIVE lock on appointments for as long as it took,
+-- and every booking, payment and slot lookup queued behind it meanwhile (like drop_outbox_partition before V14).
+-- DETACH PARTITION ... CONCURRENTLY isn't allowed with appointments_default, so the wait is bounded instead:
+-- past lock_wait_millis the function fails with lock_not_available (55P03) and the retention job tries again a bit later.
+
+DROP FUNCTION detach_appointments_partition(DATE);
+
+-- Detaches the partition of the month of month_start, returns false if it isn't attached
+CREATE OR REPLACE FUNCTION detach_appointments_partition(month_start DATE, lock_wait_millis INTEGER) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_name TEXT := 'appointments_' || to_char(month_start, '"y"YYYY"m"MM');
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                   WHERE inhrelid = to_regclass(partition_name) AND inhparent = 'appointments'::REGCLASS) THEN
+        RETURN FALSE;
+    END IF;
+
+    -- local to the transaction of the call
+    PERFORM set_config('lock_timeout', lock_wait_millis || 'ms', TRUE);
+
+    EXECUTE format('ALTER TABLE appointments DETACH PARTITION %I', partition_name);
+    RETURN TRUE;
+END;
+$$;
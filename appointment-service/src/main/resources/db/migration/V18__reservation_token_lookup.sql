@@ -0,0 +1,39 @@
+-- uk_reservation_token is (reservation_token, appointment_date) since appointments is partitioned by month,
+-- but the payment confirmation and the admin approval only know the token: the lookup probed the token index
+-- of every monthly partition. this small unpartitioned table maps a token to the (id, appointment_date) key,
+-- so findByReservationToken reads one partition.
+-- it's filled by a trigger on every insert into appointments (a reservation, or a row moved between partitions),
+-- tokens and dates of an appointment never change afterwards.
+-- the mappings of archived appointments are deleted by the retention job.
+
+CREATE TABLE appointment_reservation_tokens (
+    reservation_token VARCHAR(255) NOT NULL,
+    appointment_date  DATE         NOT NULL,
+    appointment_id    BIGINT       NOT NULL,
+    PRIMARY KEY (reservation_token, appointment_date)
+);
+
+CREATE INDEX idx_reservation_tokens_date ON appointment_reservation_tokens (appointment_date);
+
+CREATE OR REPLACE FUNCTION map_reservation_token() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF NEW.reservation_token IS NOT NULL THEN
+        INSERT INTO appointment_reservation_tokens (reservation_token, appointment_date, appointment_id)
+        VALUES (NEW.reservation_token, NEW.appointment_date, NEW.id)
+        ON CONFLICT (reservation_token, appointment_date) DO UPDATE SET appointment_id = EXCLUDED.appointment_id;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+-- cloned onto every partition, the ones created later included
+CREATE TRIGGER trg_map_reservation_token
+    AFTER INSERT ON appointments
+    FOR EACH ROW EXECUTE FUNCTION map_reservation_token();
+
+INSERT INTO appointment_reservation_tokens (reservation_token, appointment_date, appointment_id)
+SELECT reservation_token, appointment_date, id
+FROM appointments
+WHERE reservation_token IS NOT NULL;
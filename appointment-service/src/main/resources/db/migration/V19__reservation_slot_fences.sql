@@ -0,0 +1,16 @@
+-- the LOCK reservation strategy holds a redis lock per slot whose token carries a fence that only goes up.
+-- a holder paused past its lease (gc, network) can still reach the database after the next holder took the lock,
+-- so the write itself checks the fence: the reservation transaction first raises the fence of its slot here,
+-- a fence not above the stored one is rejected. the row stays locked until that transaction ends,
+-- so a stale holder also waits for the current one and then sees its reservation.
+-- the fences of past days are deleted by the retention job.
+
+CREATE TABLE appointment_slot_fences (
+    doctor_keycloak_id VARCHAR(255) NOT NULL,
+    appointment_date   DATE         NOT NULL,
+    period             VARCHAR(255) NOT NULL,
+    fence              BIGINT       NOT NULL,
+    PRIMARY KEY (doctor_keycloak_id, appointment_date, period)
+);
+
+CREATE INDEX idx_slot_fences_date ON appointment_slot_fences (appointment_date);
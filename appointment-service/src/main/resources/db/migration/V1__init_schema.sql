@@ -0,0 +1,69 @@
+-- Baseline: the schema hibernate used to create with ddl-auto
+
+CREATE TABLE appointments (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    doctor_keycloak_id  VARCHAR(255) NOT NULL,
+    nurse_keycloak_id   VARCHAR(255),
+    patient_keycloak_id VARCHAR(255) NOT NULL,
+    room_id             BIGINT,
+    appointment_date    DATE         NOT NULL,
+    reservation_token   VARCHAR(255),
+    payment_id          BIGINT,
+    payment_intent_id   VARCHAR(255),
+    expires_at          TIMESTAMP(6) WITH TIME ZONE,
+    version             BIGINT,
+    notes               VARCHAR(1000),
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    status              VARCHAR(255),
+    reason              VARCHAR(255),
+    period              VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_reservation_token UNIQUE (reservation_token),
+    CONSTRAINT uk_doctor_date_period UNIQUE (doctor_keycloak_id, appointment_date, period)
+);
+
+CREATE INDEX idx_doctor_date_status ON appointments (doctor_keycloak_id, appointment_date, status);
+CREATE INDEX idx_patient_keycloak_id ON appointments (patient_keycloak_id);
+CREATE INDEX idx_reservation_token ON appointments (reservation_token);
+CREATE INDEX idx_status_created_at ON appointments (status, created_at);
+
+CREATE TABLE unavailability (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE specific_unavailabilities (
+    id                 BIGINT       NOT NULL PRIMARY KEY REFERENCES unavailability (id),
+    doctor_keycloak_id VARCHAR(255) NOT NULL,
+    appointment_date   DATE         NOT NULL
+);
+
+CREATE TABLE day_unavailability_periods (
+    day_unavailability_id BIGINT NOT NULL REFERENCES specific_unavailabilities (id),
+    period                VARCHAR(255)
+);
+
+CREATE TABLE vacation_unavailabilities (
+    id                 BIGINT       NOT NULL PRIMARY KEY REFERENCES unavailability (id),
+    doctor_keycloak_id VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE vacation_day_of_week (
+    vacation_unavailability_id BIGINT NOT NULL REFERENCES vacation_unavailabilities (id),
+    day_of_week                VARCHAR(255)
+);
+
+CREATE TABLE outbox_events (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    aggregate_type VARCHAR(255) NOT NULL,
+    aggregate_id   VARCHAR(255) NOT NULL,
+    event_type     VARCHAR(255) NOT NULL,
+    payload        TEXT         NOT NULL,
+    sent           BOOLEAN      NOT NULL,
+    created_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    sent_at        TIMESTAMP(6) WITH TIME ZONE,
+    retry_count    INTEGER      NOT NULL
+);
+
+CREATE INDEX idx_sent_created ON outbox_events (sent, created_at);
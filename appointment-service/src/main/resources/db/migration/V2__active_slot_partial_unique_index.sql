@@ -0,0 +1,8 @@
+-- Only an active appointment (PENDING/PAID/SCHEDULED) holds a slot,
+-- EXPIRED/CANCELLED/REJECTED/COMPLETED rows stay for history and no longer block rebooking it
+
+ALTER TABLE appointments DROP CONSTRAINT uk_doctor_date_period;
+
+CREATE UNIQUE INDEX uk_doctor_date_period_active
+    ON appointments (doctor_keycloak_id, appointment_date, period)
+    WHERE status IN ('PENDING', 'PAID', 'SCHEDULED');
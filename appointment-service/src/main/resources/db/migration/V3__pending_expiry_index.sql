@@ -0,0 +1,3 @@
+-- Lets the cleanup scheduler find expired reservations without scanning all PENDING rows
+
+CREATE INDEX idx_pending_expires_at ON appointments (expires_at) WHERE status = 'PENDING';
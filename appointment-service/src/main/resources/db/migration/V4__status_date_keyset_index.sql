@@ -0,0 +1,4 @@
+-- Keyset index for the batch jobs that walk one status by (appointment_date, id):
+-- retention purge and marking past SCHEDULED appointments as COMPLETED
+
+CREATE INDEX idx_status_date_id ON appointments (status, appointment_date, id);
@@ -0,0 +1,27 @@
+-- Cold tier for finished appointments (COMPLETED/CANCELLED/REJECTED/EXPIRED) older than the retention window,
+-- the retention job moves them here in batches so the hot table and its indexes only hold recent/active rows
+
+CREATE TABLE appointments_archive (
+    id                  BIGINT       NOT NULL PRIMARY KEY,
+    doctor_keycloak_id  VARCHAR(255) NOT NULL,
+    nurse_keycloak_id   VARCHAR(255),
+    patient_keycloak_id VARCHAR(255) NOT NULL,
+    room_id             BIGINT,
+    appointment_date    DATE         NOT NULL,
+    reservation_token   VARCHAR(255),
+    payment_id          BIGINT,
+    payment_intent_id   VARCHAR(255),
+    expires_at          TIMESTAMP(6) WITH TIME ZONE,
+    version             BIGINT,
+    notes               VARCHAR(1000),
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    status              VARCHAR(255),
+    reason              VARCHAR(255),
+    period              VARCHAR(255) NOT NULL,
+    archived_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_archive_patient_date ON appointments_archive (patient_keycloak_id, appointment_date DESC);
+CREATE INDEX idx_archive_doctor_date ON appointments_archive (doctor_keycloak_id, appointment_date DESC);
+CREATE INDEX idx_archive_nurse_date ON appointments_archive (nurse_keycloak_id, appointment_date DESC);
@@ -0,0 +1,155 @@
+-- appointments becomes a range partitioned table with one partition per month of appointment_date,
+-- every hot query filters on appointment_date so postgres only touches the partition (and its small indexes) of that month.
+-- the primary key and unique indexes of a partitioned table must contain the partition key:
+--   * the primary key is (id, appointment_date), ids still come from one sequence so id alone stays unique
+--   * uk_reservation_token is dropped, reservation tokens are random UUIDs and idx_reservation_token keeps the lookup fast
+--   * uk_doctor_date_period_active already contains appointment_date
+
+ALTER TABLE appointments RENAME TO appointments_unpartitioned;
+
+CREATE SEQUENCE appointment_id_seq;
+
+CREATE TABLE appointments (
+    id                  BIGINT       NOT NULL DEFAULT nextval('appointment_id_seq'),
+    doctor_keycloak_id  VARCHAR(255) NOT NULL,
+    nurse_keycloak_id   VARCHAR(255),
+    patient_keycloak_id VARCHAR(255) NOT NULL,
+    room_id             BIGINT,
+    appointment_date    DATE         NOT NULL,
+    reservation_token   VARCHAR(255),
+    payment_id          BIGINT,
+    payment_intent_id   VARCHAR(255),
+    expires_at          TIMESTAMP(6) WITH TIME ZONE,
+    version             BIGINT,
+    notes               VARCHAR(1000),
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    status              VARCHAR(255),
+    reason              VARCHAR(255),
+    period              VARCHAR(255) NOT NULL
+) PARTITION BY RANGE (appointment_date);
+
+-- catches bookings beyond the last created month, create_appointments_partition moves them out
+CREATE TABLE appointments_default PARTITION OF appointments DEFAULT;
+
+-- Creates the partition appointments_yYYYYmMM of the month of month_start, returns false if it already exists
+CREATE OR REPLACE FUNCTION create_appointments_partition(month_start DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    first_day      DATE := date_trunc('month', month_start)::DATE;
+    next_month     DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'appointments_' || to_char(month_start, '"y"YYYY"m"MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM appointments_default WHERE appointment_date >= first_day AND appointment_date < next_month) THEN
+        -- the month already has rows in the default partition, move them into the new table before attaching it
+        EXECUTE format('CREATE TABLE %I (LIKE appointments INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+        EXECUTE format('WITH moved AS (DELETE FROM appointments_default WHERE appointment_date >= $1 AND appointment_date < $2 RETURNING *) '
+                           || 'INSERT INTO %I SELECT * FROM moved', partition_name)
+            USING first_day, next_month;
+        EXECUTE format('ALTER TABLE appointments ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, first_day, next_month);
+    ELSE
+        EXECUTE format('CREATE TABLE %I PARTITION OF appointments FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, first_day, next_month);
+    END IF;
+
+    RETURN TRUE;
+END;
+$$;
+
+-- Detaches the partition of the month of month_start, returns false if it isn't attached (missing or already detached)
+CREATE OR REPLACE FUNCTION detach_appointments_partition(month_start DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_name TEXT := 'appointments_' || to_char(month_start, '"y"YYYY"m"MM');
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                   WHERE inhrelid = to_regclass(partition_name) AND inhparent = 'appointments'::REGCLASS) THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('ALTER TABLE appointments DETACH PARTITION %I', partition_name);
+    RETURN TRUE;
+END;
+$$;
+
+-- Copies a detached partition into appointments_archive and drops it, returns the number of archived rows
+CREATE OR REPLACE FUNCTION archive_appointments_partition(month_start DATE, archived_at TIMESTAMPTZ) RETURNS BIGINT
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_name TEXT := 'appointments_' || to_char(month_start, '"y"YYYY"m"MM');
+    archived       BIGINT;
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass(partition_name)) THEN
+        RAISE EXCEPTION 'partition % is still attached', partition_name;
+    END IF;
+
+    EXECUTE format('INSERT INTO appointments_archive (id, doctor_keycloak_id, nurse_keycloak_id, patient_keycloak_id, '
+                       || 'room_id, appointment_date, reservation_token, payment_id, payment_intent_id, expires_at, version, '
+                       || 'notes, created_at, updated_at, status, reason, period, archived_at) '
+                       || 'SELECT id, doctor_keycloak_id, nurse_keycloak_id, patient_keycloak_id, '
+                       || 'room_id, appointment_date, reservation_token, payment_id, payment_intent_id, expires_at, version, '
+                       || 'notes, created_at, updated_at, status, reason, period, $1 FROM %I', partition_name)
+        USING archived_at;
+    GET DIAGNOSTICS archived = ROW_COUNT;
+
+    EXECUTE format('DROP TABLE %I', partition_name);
+    RETURN archived;
+END;
+$$;
+
+-- one partition per month from the oldest appointment to 12 months ahead, the scheduler keeps creating the next ones
+DO
+$$
+DECLARE
+    month_start DATE := date_trunc('month', LEAST(
+            COALESCE((SELECT MIN(appointment_date) FROM appointments_unpartitioned), CURRENT_DATE),
+            CURRENT_DATE))::DATE;
+BEGIN
+    WHILE month_start <= (date_trunc('month', CURRENT_DATE) + INTERVAL '12 months')::DATE LOOP
+        PERFORM create_appointments_partition(month_start);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO appointments (id, doctor_keycloak_id, nurse_keycloak_id, patient_keycloak_id, room_id, appointment_date,
+                          reservation_token, payment_id, payment_intent_id, expires_at, version, notes,
+                          created_at, updated_at, status, reason, period)
+SELECT id, doctor_keycloak_id, nurse_keycloak_id, patient_keycloak_id, room_id, appointment_date,
+       reservation_token, payment_id, payment_intent_id, expires_at, version, notes,
+       created_at, updated_at, status, reason, period
+FROM appointments_unpartitioned;
+
+-- archived ids come from the same sequence, so start after both tables
+SELECT setval('appointment_id_seq', GREATEST(
+        COALESCE((SELECT MAX(id) FROM appointments), 0),
+        COALESCE((SELECT MAX(id) FROM appointments_archive), 0)) + 1, FALSE);
+
+DROP TABLE appointments_unpartitioned;
+
+ALTER SEQUENCE appointment_id_seq OWNED BY appointments.id;
+
+ALTER TABLE appointments ADD CONSTRAINT appointments_pkey PRIMARY KEY (id, appointment_date);
+
+CREATE UNIQUE INDEX uk_doctor_date_period_active
+    ON appointments (doctor_keycloak_id, appointment_date, period)
+    WHERE status IN ('PENDING', 'PAID', 'SCHEDULED');
+
+CREATE INDEX idx_doctor_date_status ON appointments (doctor_keycloak_id, appointment_date, status);
+CREATE INDEX idx_patient_keycloak_id ON appointments (patient_keycloak_id);
+CREATE INDEX idx_reservation_token ON appointments (reservation_token);
+CREATE INDEX idx_status_created_at ON appointments (status, created_at);
+CREATE INDEX idx_pending_expires_at ON appointments (expires_at) WHERE status = 'PENDING';
+CREATE INDEX idx_status_date_id ON appointments (status, appointment_date, id);
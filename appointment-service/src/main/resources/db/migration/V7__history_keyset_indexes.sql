@@ -0,0 +1,17 @@
+-- "my appointments" walks one user's rows newest first by (appointment_date, id) from a cursor,
+-- one index per role column in that exact order on the hot table and on the archive,
+-- doctor_keycloak_id and nurse_keycloak_id had no index usable for this before
+
+DROP INDEX idx_patient_keycloak_id;
+
+CREATE INDEX idx_patient_date_id ON appointments (patient_keycloak_id, appointment_date DESC, id DESC);
+CREATE INDEX idx_doctor_date_id ON appointments (doctor_keycloak_id, appointment_date DESC, id DESC);
+CREATE INDEX idx_nurse_date_id ON appointments (nurse_keycloak_id, appointment_date DESC, id DESC);
+
+DROP INDEX idx_archive_patient_date;
+DROP INDEX idx_archive_doctor_date;
+DROP INDEX idx_archive_nurse_date;
+
+CREATE INDEX idx_archive_patient_date_id ON appointments_archive (patient_keycloak_id, appointment_date DESC, id DESC);
+CREATE INDEX idx_archive_doctor_date_id ON appointments_archive (doctor_keycloak_id, appointment_date DESC, id DESC);
+CREATE INDEX idx_archive_nurse_date_id ON appointments_archive (nurse_keycloak_id, appointment_date DESC, id DESC);
@@ -0,0 +1,6 @@
+-- Lets several appointment-service replicas relay the outbox in parallel:
+-- a replica claims a batch of unsent events by stamping its id and a lease expiry on them,
+-- other replicas skip claimed rows until the lease runs out (the claiming replica died mid batch)
+
+ALTER TABLE outbox_events ADD COLUMN claimed_by VARCHAR(255);
+ALTER TABLE outbox_events ADD COLUMN claimed_until TIMESTAMP(6) WITH TIME ZONE;
@@ -0,0 +1,17 @@
+-- Failed events wait next_attempt_at (exponential backoff with jitter) before they can be claimed again,
+-- so a few poison events don't hold the head of the queue, and after max retries they move to outbox_dead_letter
+
+ALTER TABLE outbox_events ADD COLUMN next_attempt_at TIMESTAMP(6) WITH TIME ZONE;
+ALTER TABLE outbox_events ADD COLUMN last_error VARCHAR(1000);
+
+CREATE TABLE outbox_dead_letter (
+    id             BIGINT       NOT NULL PRIMARY KEY,
+    aggregate_type VARCHAR(255) NOT NULL,
+    aggregate_id   VARCHAR(255) NOT NULL,
+    event_type     VARCHAR(255) NOT NULL,
+    payload        TEXT         NOT NULL,
+    created_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    retry_count    INTEGER      NOT NULL,
+    last_error     VARCHAR(1000),
+    dead_at        TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,147 @@
+package polyClinicSystem.example.appointment_service.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.dto.response.AppointmentResponse;
+import polyClinicSystem.example.appointment_service.model.entity.Appointment;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Reason;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.cloud.config.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// each read runs in its own transaction, the way a request does
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers
+@Tag("benchmark")
+class AppointmentReadBenchmark {
+    /*
+    a 1k row "my appointments" read served from the AppointmentResponse projection in a read-only transaction
+    (what AppointmentServiceImpl does) against the entity path it replaced: managed Appointment entities
+    in a read-write transaction (dirty checked at commit) copied field by field into AppointmentResponse.
+    latency, CPU time and allocated bytes are per read, measured on the calling thread.
+     */
+
+    private static final int ROWS = 1_000;
+    private static final int WARMUPS = 50;
+    private static final int ITERATIONS = 200;
+    private static final LocalDate HISTORY_START = LocalDate.of(9999, 12, 31);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void oneThousandRowReadByProjectionAndByEntities() throws Exception {
+        String patient = "patient-" + UUID.randomUUID();
+        saveHistory(patient);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        List<AppointmentResponse> projected = readOnly.execute(status -> projection(patient));
+        List<AppointmentResponse> hydrated = readWrite.execute(status -> entities(patient));
+        assertThat(projected).hasSize(ROWS);
+        assertThat(hydrated).extracting(AppointmentResponse::getId)
+                .containsExactlyInAnyOrderElementsOf(projected.stream().map(AppointmentResponse::getId).toList());
+
+        Measurement projection = Measurement.of(WARMUPS, ITERATIONS,
+                () -> readOnly.execute(status -> projection(patient)));
+        Measurement entities = Measurement.of(WARMUPS, ITERATIONS,
+                () -> readWrite.execute(status -> entities(patient)));
+
+        System.out.printf("%n%d-row patient history, %d reads after %d warmups%n", ROWS, ITERATIONS, WARMUPS);
+        System.out.printf("%-32s %10s %10s %10s %10s %14s%n",
+                "read", "mean µs", "p50 µs", "p99 µs", "cpu µs", "bytes/read");
+        print("projection, read-only", projection);
+        print("entities + toResponse, read-write", entities);
+    }
+
+    private List<AppointmentResponse> projection(String patient) {
+        try (Stream<AppointmentResponse> rows =
+                     appointmentRepository.streamPatientHistory(patient, HISTORY_START, Long.MAX_VALUE, Limit.of(ROWS))) {
+            return rows.toList();
+        }
+    }
+
+    private List<AppointmentResponse> entities(String patient) {
+        return appointmentRepository.findByPatientKeycloakIdOrderByAppointmentDateDesc(patient).stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    // the field by field copy of the entity path
+    private AppointmentResponse toResponse(Appointment appointment) {
+        return AppointmentResponse.builder()
+                .id(appointment.getId())
+                .doctorKeycloakId(appointment.getDoctorKeycloakId())
+                .nurseKeycloakId(appointment.getNurseKeycloakId())
+                .patientKeycloakId(appointment.getPatientKeycloakId())
+                .roomId(appointment.getRoomId())
+                .reason(appointment.getReason())
+                .status(appointment.getStatus())
+                .appointmentDate(appointment.getAppointmentDate())
+                .period(appointment.getPeriod())
+                .reservationToken(appointment.getReservationToken())
+                .paymentId(appointment.getPaymentId())
+                .expiresAt(appointment.getExpiresAt())
+                .createdAt(appointment.getCreatedAt())
+                .updatedAt(appointment.getUpdatedAt())
+                .notes(appointment.getNotes())
+                .build();
+    }
+
+    private void saveHistory(String patient) {
+        Period[] periods = Period.values();
+        List<Appointment> history = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            history.add(Appointment.builder()
+                    .doctorKeycloakId("doctor-" + i % 5)
+                    .patientKeycloakId(patient)
+                    .nurseKeycloakId("nurse-1")
+                    .roomId(1L)
+                    .appointmentDate(LocalDate.now().minusDays(1 + i / periods.length))
+                    .period(periods[i % periods.length])
+                    .status(Status.COMPLETED)
+                    .reason(Reason.EXAMINATION)
+                    .reservationToken(UUID.randomUUID().toString())
+                    .notes("benchmark")
+                    .build());
+        }
+        appointmentRepository.saveAll(history);
+    }
+
+    private void print(String read, Measurement measurement) {
+        System.out.printf("%-32s %10.0f %10.0f %10.0f %10.0f %14d%n", read, measurement.meanMicros(),
+                measurement.medianMicros(), measurement.p99Micros(), measurement.cpuMicros(),
+                measurement.allocatedBytes());
+    }
+}
@@ -0,0 +1,141 @@
+package polyClinicSystem.example.appointment_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import polyClinicSystem.example.appointment_service.dto.event.AppointmentCancelledEvent;
+import polyClinicSystem.example.appointment_service.dto.event.AppointmentCompletedEvent;
+import polyClinicSystem.example.appointment_service.dto.event.AppointmentRejectedEvent;
+import polyClinicSystem.example.appointment_service.dto.event.AppointmentScheduledEvent;
+import polyClinicSystem.example.appointment_service.dto.event.PaymentConfirmedEvent;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.EventCodec;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.JsonEventCodec;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.SmileEventCodec;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        classes = {JsonEventCodec.class, SmileEventCodec.class},
+        properties = "spring.cloud.config.enabled=false")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Tag("benchmark")
+class EventCodecBenchmark {
+    /*
+    the outbox payload of each event type encoded by the JSON and the Smile codec (the ObjectMapper of the service),
+    and decoded back into its event class the way notification-service does.
+    size is per payload, encode and decode latency, CPU time and allocated bytes are per batch of all event types.
+     */
+
+    private static final int WARMUPS = 20_000;
+    private static final int ITERATIONS = 50_000;
+
+    @Autowired
+    private JsonEventCodec jsonEventCodec;
+
+    @Autowired
+    private SmileEventCodec smileEventCodec;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void payloadSizeAndCodecCostOfJsonAgainstSmile() throws Exception {
+        List<Object> events = events();
+        ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+
+        System.out.printf("%n%-28s %10s %10s %8s%n", "event", "json B", "smile B", "smile %");
+        List<byte[]> jsonPayloads = new ArrayList<>();
+        List<byte[]> smilePayloads = new ArrayList<>();
+        for (Object event : events) {
+            byte[] json = jsonEventCodec.encode(event);
+            byte[] smile = smileEventCodec.encode(event);
+            jsonPayloads.add(json);
+            smilePayloads.add(smile);
+
+            // both formats decode into the same event
+            assertThat(objectMapper.readValue(json, event.getClass())).isEqualTo(event);
+            assertThat(smileMapper.readValue(smile, event.getClass())).isEqualTo(event);
+            assertThat(smile.length).as("smile payload of %s", event.getClass().getSimpleName())
+                    .isLessThan(json.length);
+
+            System.out.printf("%-28s %10d %10d %8.0f%n", event.getClass().getSimpleName(),
+                    json.length, smile.length, 100.0 * smile.length / json.length);
+        }
+
+        Measurement jsonEncode = Measurement.of(WARMUPS, ITERATIONS, () -> encodeAll(jsonEventCodec, events));
+        Measurement smileEncode = Measurement.of(WARMUPS, ITERATIONS, () -> encodeAll(smileEventCodec, events));
+        Measurement jsonDecode = Measurement.of(WARMUPS, ITERATIONS, () -> decodeAll(objectMapper, jsonPayloads, events));
+        Measurement smileDecode = Measurement.of(WARMUPS, ITERATIONS, () -> decodeAll(smileMapper, smilePayloads, events));
+
+        System.out.printf("%n%d event types per batch, %d batches after %d warmups%n", events.size(), ITERATIONS, WARMUPS);
+        System.out.printf("%-14s %10s %10s %10s %10s %14s%n",
+                "codec", "mean µs", "p50 µs", "p99 µs", "cpu µs", "bytes/batch");
+        print("json encode", jsonEncode);
+        print("smile encode", smileEncode);
+        print("json decode", jsonDecode);
+        print("smile decode", smileDecode);
+    }
+
+    private List<byte[]> encodeAll(EventCodec codec, List<Object> events) throws Exception {
+        List<byte[]> payloads = new ArrayList<>(events.size());
+        for (Object event : events) {
+            payloads.add(codec.encode(event));
+        }
+        return payloads;
+    }
+
+    private List<Object> decodeAll(ObjectMapper mapper, List<byte[]> payloads, List<Object> events) throws Exception {
+        List<Object> decoded = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            decoded.add(mapper.readValue(payloads.get(i), events.get(i).getClass()));
+        }
+        return decoded;
+    }
+
+    // one event of each type, with keycloak ids, tokens and payment intents shaped like the real ones
+    private List<Object> events() {
+        Instant timestamp = Instant.now();
+        LocalDate date = LocalDate.now().plusDays(3);
+        String patient = UUID.randomUUID().toString();
+        String doctor = UUID.randomUUID().toString();
+        String nurse = UUID.randomUUID().toString();
+        String token = UUID.randomUUID().toString();
+        String paymentIntent = "pi_3Q" + UUID.randomUUID().toString().replace("-", "").substring(0, 22);
+
+        return List.of(
+                PaymentConfirmedEvent.builder().reservationToken(token).appointmentId(123_456L)
+                        .patientKeycloakId(patient).doctorKeycloakId(doctor).paymentIntentId(paymentIntent)
+                        .appointmentDate(date).period("H09_10").timestamp(timestamp).build(),
+                AppointmentScheduledEvent.builder().appointmentId(123_456L).doctorKeycloakId(doctor)
+                        .nurseKeycloakId(nurse).patientKeycloakId(patient).departmentId(12L).roomId(104L)
+                        .appointmentDate(date).period("H09_10").timestamp(timestamp).build(),
+                AppointmentRejectedEvent.builder().appointmentId(123_456L).reservationToken(token)
+                        .patientKeycloakId(patient).paymentIntentId(paymentIntent)
+                        .rejectionReason("Doctor unavailable").timestamp(timestamp).build(),
+                AppointmentCancelledEvent.builder().appointmentId(123_456L).reservationToken(token)
+                        .doctorKeycloakId(doctor).patientKeycloakId(patient).paymentIntentId(paymentIntent)
+                        .appointmentDate(date).period("H09_10").cancellationReason("Patient request")
+                        .timestamp(timestamp).build(),
+                AppointmentCompletedEvent.builder().appointmentId(123_456L).doctorKeycloakId(doctor)
+                        .nurseKeycloakId(nurse).patientKeycloakId(patient).departmentId(12L).roomId(104L)
+                        .appointmentDate(date).period("H09_10").timestamp(timestamp).build()
+        );
+    }
+
+    private void print(String codec, Measurement measurement) {
+        System.out.printf("%-14s %10.2f %10.2f %10.2f %10.2f %14d%n", codec, measurement.meanMicros(),
+                measurement.medianMicros(), measurement.p99Micros(), measurement.cpuMicros(),
+                measurement.allocatedBytes());
+    }
+}
@@ -0,0 +1,43 @@
+package polyClinicSystem.example.appointment_service.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Latency, CPU time and allocated bytes of one operation, run on the calling thread
+ * after a warmup, averaged per operation
+ */
+record Measurement(double meanMicros, double medianMicros, double p99Micros, double cpuMicros, long allocatedBytes) {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // keeps the results reachable so the JIT can't drop the measured work
+    private static volatile Object sink;
+
+    static Measurement of(int warmups, int iterations, Callable<?> operation) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            sink = operation.call();
+        }
+
+        long[] nanos = new long[iterations];
+        long cpuBefore = THREADS.getCurrentThreadCpuTime();
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            long startedAt = System.nanoTime();
+            sink = operation.call();
+            nanos[i] = System.nanoTime() - startedAt;
+        }
+        long cpu = THREADS.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        Arrays.sort(nanos);
+        return new Measurement(
+                Arrays.stream(nanos).average().orElse(0) / 1_000,
+                nanos[iterations / 2] / 1_000.0,
+                nanos[Math.min(iterations - 1, (int) Math.ceil(iterations * 0.99) - 1)] / 1_000.0,
+                cpu / 1_000.0 / iterations,
+                allocated / iterations);
+    }
+}
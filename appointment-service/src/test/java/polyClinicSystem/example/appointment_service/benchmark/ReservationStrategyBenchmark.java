@@ -0,0 +1,194 @@
+package polyClinicSystem.example.appointment_service.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.client.PaymentClient;
+import polyClinicSystem.example.appointment_service.config.RedisConfig;
+import polyClinicSystem.example.appointment_service.dto.request.ReserveSlotRequest;
+import polyClinicSystem.example.appointment_service.exception.customExceptions.ConflictException;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Reason;
+import polyClinicSystem.example.appointment_service.model.enums.ReservationStrategy;
+import polyClinicSystem.example.appointment_service.repository.AppointmentJdbcRepository;
+import polyClinicSystem.example.appointment_service.service.Appointment.AppointmentService;
+import polyClinicSystem.example.appointment_service.service.Appointment.AppointmentServiceImpl;
+import polyClinicSystem.example.appointment_service.service.ReservationLock.ReservationLockImpl;
+import polyClinicSystem.example.appointment_service.service.SlotOccupancy.SlotOccupancyService;
+import polyClinicSystem.example.appointment_service.service.kafka.outboxService.OutboxService;
+import polyClinicSystem.example.appointment_service.service.token.TokenService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        // one connection per patient thread, so the pool isn't what's measured
+        "spring.datasource.hikari.maximum-pool-size=" + ReservationStrategyBenchmark.THREADS
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentServiceImpl.class, AppointmentJdbcRepository.class,
+        ReservationLockImpl.class, RedisConfig.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration({RedisAutoConfiguration.class, JacksonAutoConfiguration.class})
+// every reservation commits on its own, like concurrent requests
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers
+@Tag("benchmark")
+class ReservationStrategyBenchmark {
+    /*
+    reserveSlot throughput of the LOCK strategy (redis lock + exists check + insert + release) against the
+    OPTIMISTIC one (one insert-or-conflict statement) at a few contention levels.
+    THREADS patients reserve ATTEMPTS times in total, contention is how many of them click the same slot at once:
+    attempt n goes to slot n / contention, so each slot is reserved once and refused contention - 1 times.
+    the slot occupancy cache, the outbox and the token are mocked, they cost the same with both strategies.
+     */
+
+    static final int THREADS = 16;
+
+    private static final int ATTEMPTS = 1_600;
+    private static final int WARMUP_ATTEMPTS = 320;
+    private static final int[] CONTENTION_LEVELS = {1, 4, 16};
+    private static final String PATIENT = "patient-1";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    @ServiceConnection(name = "redis")
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    @MockitoBean
+    private OutboxService outboxService;
+
+    @MockitoBean
+    private PaymentClient paymentClient;
+
+    @MockitoBean
+    private SlotOccupancyService slotOccupancyService;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    @BeforeEach
+    void authenticatePatient() {
+        when(tokenService.extractUserId(any())).thenReturn(PATIENT);
+    }
+
+    @Test
+    void reservationThroughputByStrategyAndContention() throws Exception {
+        List<String> results = new ArrayList<>();
+
+        for (ReservationStrategy strategy : ReservationStrategy.values()) {
+            use(strategy);
+            run(WARMUP_ATTEMPTS, 1);
+
+            for (int contention : CONTENTION_LEVELS) {
+                Result result = run(ATTEMPTS, contention);
+
+                // whatever the strategy, a slot is reserved exactly once
+                assertThat(result.reserved()).as("%s, %d per slot", strategy, contention)
+                        .isEqualTo(ATTEMPTS / contention);
+                assertThat(result.refused()).isEqualTo(ATTEMPTS - ATTEMPTS / contention);
+
+                results.add(String.format("%-10s %10d %9d %8d %10d %12.0f %12.0f",
+                        strategy, contention, result.reserved(), result.refused(), result.elapsedMillis(),
+                        ATTEMPTS * 1000.0 / result.elapsedMillis(),
+                        result.reserved() * 1000.0 / result.elapsedMillis()));
+            }
+        }
+
+        System.out.printf("%nreserveSlot, %d threads, %d attempts per run%n", THREADS, ATTEMPTS);
+        System.out.printf("%-10s %10s %9s %8s %10s %12s %12s%n",
+                "strategy", "per slot", "reserved", "refused", "ms", "attempts/s", "reserved/s");
+        results.forEach(System.out::println);
+    }
+
+    private void use(ReservationStrategy strategy) {
+        ReflectionTestUtils.setField(AopTestUtils.getUltimateTargetObject(appointmentService),
+                "reservationStrategy", strategy);
+    }
+
+    private Result run(int attempts, int contention) throws Exception {
+        // fresh doctors every run, so no slot is already taken
+        String doctorPrefix = "doctor-" + UUID.randomUUID();
+        LocalDate date = LocalDate.now().plusDays(1);
+        Period[] periods = Period.values();
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        ExecutorService patients = Executors.newFixedThreadPool(THREADS);
+        long startedAt = System.nanoTime();
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                done.add(patients.submit(() -> {
+                    for (int attempt = next.getAndIncrement(); attempt < attempts; attempt = next.getAndIncrement()) {
+                        int slot = attempt / contention;
+                        try {
+                            appointmentService.reserveSlot(ReserveSlotRequest.builder()
+                                    .doctorKeycloakId(doctorPrefix + "-" + slot / periods.length)
+                                    .patientKeycloakId(PATIENT)
+                                    .appointmentDate(date)
+                                    .period(periods[slot % periods.length])
+                                    .reason(Reason.EXAMINATION)
+                                    .notes("benchmark")
+                                    .build(), request);
+                            reserved.incrementAndGet();
+                        } catch (ConflictException e) {
+                            refused.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> thread : done) {
+                thread.get();
+            }
+        } finally {
+            patients.shutdown();
+        }
+
+        long elapsedMillis = Math.max((System.nanoTime() - startedAt) / 1_000_000, 1);
+        return new Result(reserved.get(), refused.get(), elapsedMillis);
+    }
+
+    private record Result(int reserved, int refused, long elapsedMillis) {
+    }
+}
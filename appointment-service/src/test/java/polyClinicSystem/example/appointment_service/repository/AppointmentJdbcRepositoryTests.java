@@ -0,0 +1,160 @@
+package polyClinicSystem.example.appointment_service.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.model.entity.Appointment;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.cloud.config.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AppointmentJdbcRepository.class)
+@Testcontainers
+class AppointmentJdbcRepositoryTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final String DOCTOR = "doctor-1";
+    private static final LocalDate DATE = LocalDate.now().plusDays(3);
+
+    @Autowired
+    private AppointmentJdbcRepository appointmentJdbcRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void insertIfSlotFreeReturnsTheNewIdThenNothingWhileTheSlotIsHeld() {
+        Instant now = Instant.now();
+
+        Optional<Long> first = reserve("patient-1", Period.H09_10, now);
+        Optional<Long> second = reserve("patient-2", Period.H09_10, now);
+
+        assertThat(first).isPresent();
+        assertThat(second).isEmpty();
+        assertThat(appointmentRepository.findById(first.get()))
+                .get()
+                .satisfies(appointment -> {
+                    assertThat(appointment.getPatientKeycloakId()).isEqualTo("patient-1");
+                    assertThat(appointment.getStatus()).isEqualTo(Status.PENDING);
+                    assertThat(appointment.getVersion()).isZero();
+                });
+    }
+
+    @Test
+    void insertIfSlotFreeSeesTheUnflushedEntitiesOfTheTransaction() {
+        Appointment cancelled = appointmentRepository.save(
+                appointment("patient-1", Period.H10_11, Status.CANCELLED, null));
+        // changed in the persistence context only, the insert must still conflict with it
+        cancelled.setStatus(Status.SCHEDULED);
+
+        assertThat(reserve("patient-2", Period.H10_11, Instant.now())).isEmpty();
+    }
+
+    @Test
+    void anInactiveAppointmentDoesNotHoldTheSlot() {
+        appointmentRepository.save(appointment("patient-1", Period.H11_12, Status.CANCELLED, null));
+
+        assertThat(reserve("patient-2", Period.H11_12, Instant.now())).isPresent();
+    }
+
+    @Test
+    void expirePendingBatchExpiresOnlyPendingRowsPastTheCutoffAndFreesTheirSlots() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Long stale = appointmentRepository.save(
+                appointment("patient-1", Period.H12_13, Status.PENDING, now.minusSeconds(60))).getId();
+        Long fresh = appointmentRepository.save(
+                appointment("patient-2", Period.H13_14, Status.PENDING, now.plusSeconds(600))).getId();
+        Long paid = appointmentRepository.save(
+                appointment("patient-3", Period.H14_15, Status.PAID, now.minusSeconds(60))).getId();
+
+        List<Long> expired = appointmentJdbcRepository.expirePendingBatch(now, now, 100);
+        entityManager.clear();
+
+        assertThat(expired).containsExactly(stale);
+        assertThat(statusOf(stale)).isEqualTo("EXPIRED");
+        assertThat(statusOf(fresh)).isEqualTo("PENDING");
+        assertThat(statusOf(paid)).isEqualTo("PAID");
+        assertThat(appointmentRepository.findById(stale)).get()
+                .satisfies(appointment -> assertThat(appointment.getVersion()).isEqualTo(1L));
+
+        assertThat(reserve("patient-4", Period.H12_13, now)).isPresent();
+    }
+
+    @Test
+    void expirePendingBatchTakesTheOldestExpiriesFirstUpToTheBatchSize() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Long oldest = appointmentRepository.save(
+                appointment("patient-1", Period.H08_09, Status.PENDING, now.minusSeconds(300))).getId();
+        Long older = appointmentRepository.save(
+                appointment("patient-2", Period.H15_16, Status.PENDING, now.minusSeconds(200))).getId();
+        Long old = appointmentRepository.save(
+                appointment("patient-3", Period.H16_17, Status.PENDING, now.minusSeconds(100))).getId();
+
+        assertThat(appointmentJdbcRepository.expirePendingBatch(now, now, 2)).containsExactlyInAnyOrder(oldest, older);
+        assertThat(appointmentJdbcRepository.expirePendingBatch(now, now, 2)).containsExactly(old);
+        assertThat(appointmentJdbcRepository.expirePendingBatch(now, now, 2)).isEmpty();
+    }
+
+    @Test
+    void claimSlotFenceRejectsAFenceNotAboveTheStoredOne() {
+        assertThat(appointmentJdbcRepository.claimSlotFence(DOCTOR, DATE, Period.H09_10.name(), 5)).isTrue();
+        // the holder whose lease ran out, after the next holder wrote
+        assertThat(appointmentJdbcRepository.claimSlotFence(DOCTOR, DATE, Period.H09_10.name(), 4)).isFalse();
+        assertThat(appointmentJdbcRepository.claimSlotFence(DOCTOR, DATE, Period.H09_10.name(), 5)).isFalse();
+        assertThat(appointmentJdbcRepository.claimSlotFence(DOCTOR, DATE, Period.H09_10.name(), 6)).isTrue();
+        // another slot has its own fence
+        assertThat(appointmentJdbcRepository.claimSlotFence(DOCTOR, DATE.plusDays(1), Period.H09_10.name(), 1)).isTrue();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT fence FROM appointment_slot_fences " +
+                        "WHERE doctor_keycloak_id = ? AND appointment_date = ? AND period = ?",
+                Long.class, DOCTOR, DATE, Period.H09_10.name())).isEqualTo(6);
+    }
+
+    private Optional<Long> reserve(String patient, Period period, Instant now) {
+        return appointmentJdbcRepository.insertIfSlotFree(DOCTOR, patient, DATE, period.name(),
+                Status.PENDING.name(), null, UUID.randomUUID().toString(), now.plusSeconds(600), null, now);
+    }
+
+    private Appointment appointment(String patient, Period period, Status status, Instant expiresAt) {
+        return Appointment.builder()
+                .doctorKeycloakId(DOCTOR)
+                .patientKeycloakId(patient)
+                .appointmentDate(DATE)
+                .period(period)
+                .status(status)
+                .reservationToken(UUID.randomUUID().toString())
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private String statusOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM appointments WHERE id = ?", String.class, id);
+    }
+}
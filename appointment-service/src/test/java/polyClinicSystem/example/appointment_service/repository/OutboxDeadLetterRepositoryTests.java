@@ -0,0 +1,146 @@
+package polyClinicSystem.example.appointment_service.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+import polyClinicSystem.example.appointment_service.model.event.OutboxEvent;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.cloud.config.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OutboxEventJdbcRepository.class)
+@Testcontainers
+class OutboxDeadLetterRepositoryTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final long BASE_MILLIS = 1_000;
+    private static final long MAX_MILLIS = 60_000;
+
+    @Autowired
+    private OutboxDeadLetterRepository deadLetterRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    @Autowired
+    private OutboxEventJdbcRepository outboxJdbcRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void releaseFailedBacksTheEventOffExponentiallyWithJitter() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Long id = save("1", now.minusSeconds(1)).getId();
+
+        fail(id, now);
+        assertThat(nextAttemptAt(id)).isBetween(now.plusMillis(BASE_MILLIS / 2), now.plusMillis(BASE_MILLIS));
+        assertThat(outboxJdbcRepository.claimBatch("relay-a", now, now.plusSeconds(30), 10)).isEmpty();
+
+        Instant later = now.plusMillis(BASE_MILLIS);
+        fail(id, later);
+        assertThat(nextAttemptAt(id)).isBetween(later.plusMillis(BASE_MILLIS), later.plusMillis(2 * BASE_MILLIS));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT retry_count FROM outbox_events WHERE id = ?", Integer.class, id))
+                .isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM outbox_events WHERE id = ?", String.class, id))
+                .isEqualTo("broker down");
+    }
+
+    @Test
+    void moveToDeadLetterTakesOnlyTheEventsThatReachedMaxRetries() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Long poison = save("2", now.minusSeconds(2)).getId();
+        Long healthy = save("3", now.minusSeconds(1)).getId();
+
+        fail(poison, now);
+        fail(healthy, now);
+        fail(poison, now.plusSeconds(5));
+
+        assertThat(deadLetterRepository.moveToDeadLetter(List.of(poison, healthy),
+                now.minusSeconds(2), now.minusSeconds(1), 2, now.plusSeconds(5))).isEqualTo(1);
+        entityManager.clear();
+
+        assertThat(outboxRepository.existsById(poison)).isFalse();
+        assertThat(outboxRepository.existsById(healthy)).isTrue();
+        assertThat(deadLetterRepository.findById(poison)).get().satisfies(dead -> {
+            assertThat(dead.getRetryCount()).isEqualTo(2);
+            assertThat(dead.getLastError()).isEqualTo("broker down");
+            assertThat(dead.getPayloadFormat()).isEqualTo(EventFormat.SMILE);
+            assertThat(dead.getSchemaVersion()).isEqualTo(2);
+            assertThat(dead.getPayload()).containsExactly(1, 2, 3);
+        });
+    }
+
+    @Test
+    void replayPutsTheDeadEventBackWithItsIdAndAFreshRetryCount() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Long id = save("4", now.minusSeconds(1)).getId();
+        fail(id, now);
+        deadLetterRepository.moveToDeadLetter(List.of(id), now.minusSeconds(1), now.minusSeconds(1), 1, now);
+        entityManager.clear();
+
+        assertThat(deadLetterRepository.replay(id)).isEqualTo(1);
+        assertThat(deadLetterRepository.replay(id)).isZero();
+        entityManager.clear();
+
+        assertThat(deadLetterRepository.existsById(id)).isFalse();
+        assertThat(outboxJdbcRepository.claimBatch("relay-a", now, now.plusSeconds(30), 10))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getId()).isEqualTo(id);
+                    assertThat(event.getCreatedAt()).isEqualTo(now.minusSeconds(1));
+                    assertThat(event.getRetryCount()).isZero();
+                    assertThat(event.getPayloadFormat()).isEqualTo(EventFormat.SMILE);
+                });
+        assertThat(deadLetterRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(10))).isEmpty();
+    }
+
+    // one failed publish attempt the way the relay counts it, the event is claimed by relay-a then released
+    private void fail(Long id, Instant now) {
+        outboxJdbcRepository.claimBatch("relay-a", now, now.plusSeconds(30), 10);
+        Instant createdAt = outboxRepository.findById(id).orElseThrow().getCreatedAt();
+        assertThat(outboxRepository.releaseFailed(List.of(id), createdAt, createdAt, "relay-a", "broker down", now,
+                BASE_MILLIS, MAX_MILLIS))
+                .isEqualTo(1);
+    }
+
+    private Instant nextAttemptAt(Long id) {
+        return jdbcTemplate.queryForObject("SELECT next_attempt_at FROM outbox_events WHERE id = ?",
+                OffsetDateTime.class, id).toInstant();
+    }
+
+    private OutboxEvent save(String aggregateId, Instant createdAt) {
+        return outboxRepository.save(OutboxEvent.builder()
+                .aggregateType("appointment")
+                .aggregateId(aggregateId)
+                .eventType("appointment.payment.created")
+                .payload(new byte[]{1, 2, 3})
+                .payloadFormat(EventFormat.SMILE)
+                .schemaVersion(2)
+                .createdAt(createdAt)
+                .build());
+    }
+}
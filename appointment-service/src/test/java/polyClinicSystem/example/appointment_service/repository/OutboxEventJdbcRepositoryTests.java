@@ -0,0 +1,110 @@
+package polyClinicSystem.example.appointment_service.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+import polyClinicSystem.example.appointment_service.model.event.OutboxEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.cloud.config.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OutboxEventJdbcRepository.class)
+@Testcontainers
+class OutboxEventJdbcRepositoryTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private OutboxEventJdbcRepository outboxJdbcRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    @Test
+    void claimBatchTakesOnlyTheOldestUnsentEventOfEachAggregate() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Long first = save("1", "appointment.payment.created", now.minusSeconds(3)).getId();
+        Long second = save("1", "appointment.scheduled", now.minusSeconds(2)).getId();
+        Long other = save("2", "appointment.payment.created", now.minusSeconds(1)).getId();
+
+        List<OutboxEvent> claimed = outboxJdbcRepository.claimBatch("relay-a", now, now.plusSeconds(30), 10);
+
+        assertThat(claimed).extracting(OutboxEvent::getId).containsExactlyInAnyOrder(first, other);
+        assertThat(claimed).allSatisfy(event -> {
+            assertThat(event.getClaimedBy()).isEqualTo("relay-a");
+            assertThat(event.getClaimedUntil()).isEqualTo(now.plusSeconds(30));
+            assertThat(event.getPayloadFormat()).isEqualTo(EventFormat.JSON);
+        });
+
+        // the next event of the aggregate is claimable once the first one is sent
+        assertThat(outboxRepository.markSent(List.of(first), now.minusSeconds(3), now.minusSeconds(3), "relay-a", now))
+                .isEqualTo(1);
+        assertThat(outboxJdbcRepository.claimBatch("relay-b", now, now.plusSeconds(30), 10))
+                .extracting(OutboxEvent::getId)
+                .containsExactly(second);
+    }
+
+    @Test
+    void claimedEventsAreSkippedUntilTheirLeaseRunsOut() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Long id = save("3", "appointment.payment.created", now.minusSeconds(1)).getId();
+
+        assertThat(outboxJdbcRepository.claimBatch("relay-a", now, now.plusSeconds(30), 10)).hasSize(1);
+        assertThat(outboxJdbcRepository.claimBatch("relay-b", now.plusSeconds(10), now.plusSeconds(40), 10)).isEmpty();
+
+        // relay-a died mid batch, relay-b takes the event over and relay-a can no longer mark it
+        assertThat(outboxJdbcRepository.claimBatch("relay-b", now.plusSeconds(60), now.plusSeconds(90), 10))
+                .extracting(OutboxEvent::getId)
+                .containsExactly(id);
+        Instant createdAt = now.minusSeconds(1);
+        assertThat(outboxRepository.markSent(List.of(id), createdAt, createdAt, "relay-a", now.plusSeconds(61))).isZero();
+        // outside the created_at range of the batch
+        assertThat(outboxRepository.markSent(List.of(id), now, now, "relay-b", now.plusSeconds(61))).isZero();
+        assertThat(outboxRepository.markSent(List.of(id), createdAt, createdAt, "relay-b", now.plusSeconds(61)))
+                .isEqualTo(1);
+
+        assertThat(outboxJdbcRepository.claimBatch("relay-c", now.plusSeconds(120), now.plusSeconds(150), 10)).isEmpty();
+    }
+
+    @Test
+    void claimBatchTakesTheOldestEventsFirstUpToTheBatchSize() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Long oldest = save("4", "appointment.payment.created", now.minusSeconds(3)).getId();
+        Long older = save("5", "appointment.payment.created", now.minusSeconds(2)).getId();
+        Long old = save("6", "appointment.payment.created", now.minusSeconds(1)).getId();
+
+        assertThat(outboxJdbcRepository.claimBatch("relay-a", now, now.plusSeconds(30), 2))
+                .extracting(OutboxEvent::getId)
+                .containsExactlyInAnyOrder(oldest, older);
+        assertThat(outboxJdbcRepository.claimBatch("relay-a", now, now.plusSeconds(30), 2))
+                .extracting(OutboxEvent::getId)
+                .containsExactly(old);
+    }
+
+    private OutboxEvent save(String aggregateId, String eventType, Instant createdAt) {
+        return outboxRepository.save(OutboxEvent.builder()
+                .aggregateType("appointment")
+                .aggregateId(aggregateId)
+                .eventType(eventType)
+                .payload("{}".getBytes(StandardCharsets.UTF_8))
+                .payloadFormat(EventFormat.JSON)
+                .schemaVersion(1)
+                .createdAt(createdAt)
+                .build());
+    }
+}
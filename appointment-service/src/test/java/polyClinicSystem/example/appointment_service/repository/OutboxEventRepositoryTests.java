@@ -0,0 +1,142 @@
+package polyClinicSystem.example.appointment_service.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+import polyClinicSystem.example.appointment_service.model.event.OutboxEvent;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.cloud.config.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+class OutboxEventRepositoryTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void createDailyPartitionMovesTheEventsOfItsDayOutOfTheDefaultPartition() {
+        // past the days created ahead by the migration
+        LocalDate day = LocalDate.now(ZoneOffset.UTC).plusDays(60);
+        Long id = save(day, false).getId();
+
+        assertThat(partitionOf(id)).isEqualTo("outbox_events_default");
+
+        assertThat(outboxRepository.createDailyPartition(day)).isTrue();
+        assertThat(outboxRepository.createDailyPartition(day)).isFalse();
+
+        assertThat(partitionOf(id)).isEqualTo(partitionName(day));
+        assertThat(outboxRepository.findDailyPartitionNames()).contains(partitionName(day));
+    }
+
+    @Test
+    void dropDailyPartitionKeepsADayThatStillHasUnsentEvents() {
+        LocalDate day = LocalDate.now(ZoneOffset.UTC).plusDays(61);
+        outboxRepository.createDailyPartition(day);
+        Long id = save(day, false).getId();
+
+        assertThat(outboxRepository.dropDailyPartition(day, 1_000)).isFalse();
+        assertThat(partitionOf(id)).isEqualTo(partitionName(day));
+
+        jdbcTemplate.update("UPDATE outbox_events SET sent = true, sent_at = now() WHERE id = ?", id);
+
+        assertThat(outboxRepository.dropDailyPartition(day, 1_000)).isTrue();
+        assertThat(outboxRepository.existsById(id)).isFalse();
+        assertThat(outboxRepository.findDailyPartitionNames()).doesNotContain(partitionName(day));
+        assertThat(outboxRepository.dropDailyPartition(day, 1_000)).isFalse();
+    }
+
+    @Test
+    void dropDailyPartitionGivesUpWhenTheLockIsNotGrantedInTime() throws Exception {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+        // a booking transaction that wrote an outbox event and hasn't committed yet
+        try (Connection booking = dataSource.getConnection()) {
+            booking.setAutoCommit(false);
+            try (Statement statement = booking.createStatement()) {
+                statement.execute("LOCK TABLE outbox_events IN ROW EXCLUSIVE MODE");
+
+                assertThatThrownBy(() -> outboxRepository.dropDailyPartition(today, 200))
+                        .isInstanceOf(PessimisticLockingFailureException.class);
+            } finally {
+                booking.rollback();
+            }
+        }
+    }
+
+    @Test
+    void deleteSentFromDefaultPartitionLeavesTheUnsentEvents() {
+        // a day without partition, like a replayed event of a dropped day
+        LocalDate day = LocalDate.now(ZoneOffset.UTC).minusDays(400);
+        Long sent = save(day, true).getId();
+        Long unsent = save(day, false).getId();
+
+        assertThat(outboxRepository.deleteSentFromDefaultPartition(Instant.now())).isEqualTo(1);
+        assertThat(outboxRepository.existsById(sent)).isFalse();
+        assertThat(outboxRepository.existsById(unsent)).isTrue();
+    }
+
+    @Test
+    void anEventKeyIsClaimedOnceUntilItsRetentionEnds() {
+        Instant createdAt = Instant.now();
+
+        assertThat(outboxRepository.claimEventKey("42", "appointment.payment.created", createdAt)).isEqualTo(1);
+        assertThat(outboxRepository.claimEventKey("42", "appointment.payment.created", createdAt)).isZero();
+        assertThat(outboxRepository.claimEventKey("42", "appointment.cancelled", createdAt)).isEqualTo(1);
+
+        assertThat(outboxRepository.deleteEventKeysBefore(createdAt.plusSeconds(1))).isGreaterThanOrEqualTo(2);
+        assertThat(outboxRepository.claimEventKey("42", "appointment.payment.created", Instant.now())).isEqualTo(1);
+    }
+
+    private OutboxEvent save(LocalDate day, boolean sent) {
+        Instant createdAt = day.atTime(12, 0).toInstant(ZoneOffset.UTC);
+        return outboxRepository.saveAndFlush(OutboxEvent.builder()
+                .aggregateType("appointment")
+                .aggregateId("1")
+                .eventType("appointment.scheduled")
+                .payload("{}".getBytes(StandardCharsets.UTF_8))
+                .payloadFormat(EventFormat.JSON)
+                .schemaVersion(1)
+                .sent(sent)
+                .createdAt(createdAt)
+                .sentAt(sent ? createdAt : null)
+                .build());
+    }
+
+    private String partitionOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM outbox_events WHERE id = ?",
+                String.class, id);
+    }
+
+    private String partitionName(LocalDate day) {
+        return String.format("outbox_events_y%04dm%02dd%02d", day.getYear(), day.getMonthValue(), day.getDayOfMonth());
+    }
+}
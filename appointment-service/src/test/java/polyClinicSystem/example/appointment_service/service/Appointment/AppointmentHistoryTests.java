@@ -0,0 +1,218 @@
+package polyClinicSystem.example.appointment_service.service.Appointment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.client.PaymentClient;
+import polyClinicSystem.example.appointment_service.dto.response.AppointmentPageResponse;
+import polyClinicSystem.example.appointment_service.dto.response.AppointmentResponse;
+import polyClinicSystem.example.appointment_service.exception.customExceptions.AccessDeniedException;
+import polyClinicSystem.example.appointment_service.exception.customExceptions.BadRequestException;
+import polyClinicSystem.example.appointment_service.model.entity.Appointment;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.repository.AppointmentArchiveRepository;
+import polyClinicSystem.example.appointment_service.repository.AppointmentJdbcRepository;
+import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
+import polyClinicSystem.example.appointment_service.service.ReservationLock.ReservationLockService;
+import polyClinicSystem.example.appointment_service.service.SlotOccupancy.SlotOccupancyService;
+import polyClinicSystem.example.appointment_service.service.kafka.outboxService.OutboxService;
+import polyClinicSystem.example.appointment_service.service.token.TokenService;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentServiceImpl.class, AppointmentJdbcRepository.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Testcontainers
+class AppointmentHistoryTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final String PATIENT = "patient-1";
+    private static final LocalDate BASE_DATE = LocalDate.now().minusDays(40);
+
+    @MockitoBean
+    private OutboxService outboxService;
+
+    @MockitoBean
+    private PaymentClient paymentClient;
+
+    @MockitoBean
+    private ReservationLockService reservationLockService;
+
+    @MockitoBean
+    private SlotOccupancyService slotOccupancyService;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentArchiveRepository archiveRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    // ids of the patient's appointments, newest first (appointment_date DESC, id DESC)
+    private List<Long> expectedHistory;
+
+    @BeforeEach
+    void createHistory() {
+        when(tokenService.extractUserId(any())).thenReturn(PATIENT);
+
+        List<Appointment> recent = new ArrayList<>();
+        List<Appointment> archived = new ArrayList<>();
+        // two rows on the same date, so the id breaks the tie across a page boundary
+        recent.add(save(PATIENT, BASE_DATE.plusDays(10), Period.H08_09));
+        recent.add(save(PATIENT, BASE_DATE.plusDays(10), Period.H09_10));
+        recent.add(save(PATIENT, BASE_DATE.plusDays(20), Period.H08_09));
+        recent.add(save(PATIENT, BASE_DATE.plusDays(5), Period.H09_10));
+        archived.add(save(PATIENT, BASE_DATE.plusDays(5), Period.H08_09));
+        archived.add(save(PATIENT, BASE_DATE.plusDays(15), Period.H08_09));
+        archived.add(save(PATIENT, BASE_DATE.plusDays(1), Period.H08_09));
+        save("patient-2", BASE_DATE.plusDays(10), Period.H10_11);
+        entityManager.flush();
+
+        archiveRepository.moveFinishedToArchive(archived.stream().map(Appointment::getId).toList(),
+                LocalDate.now(), List.of(Status.COMPLETED.name()), Instant.now());
+        entityManager.clear();
+
+        List<Appointment> history = new ArrayList<>(recent);
+        history.addAll(archived);
+        expectedHistory = history.stream()
+                .sorted(Comparator.comparing(Appointment::getAppointmentDate)
+                        .thenComparing(Appointment::getId)
+                        .reversed())
+                .map(Appointment::getId)
+                .toList();
+    }
+
+    @Test
+    void pagesFollowTheKeysetCursorAcrossTheHotTableAndTheArchive() {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+
+        AppointmentPageResponse page;
+        do {
+            page = appointmentService.getMyAppointments(PATIENT, "PATIENT", cursor, 3, request);
+            assertThat(page.getAppointments()).hasSizeLessThanOrEqualTo(3);
+            page.getAppointments().forEach(appointment -> ids.add(appointment.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (page.isHasNext());
+
+        assertThat(ids).containsExactlyElementsOf(expectedHistory);
+        assertThat(pages).isEqualTo(3);
+        assertThat(cursor).isNull();
+    }
+
+    @Test
+    void aPageIsOneStatementPerTableAndLoadsNoEntity() {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        AppointmentPageResponse page = appointmentService.getMyAppointments(PATIENT, "PATIENT", null, 3, request);
+        appointmentService.getMyAppointments(PATIENT, "PATIENT", page.getNextCursor(), 3, request);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void theStreamWritesOneJsonLinePerAppointmentNewestFirst() throws Exception {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        appointmentService.streamMyAppointments(PATIENT, "PATIENT", request).writeTo(body);
+
+        List<Long> ids = new ArrayList<>();
+        for (String line : body.toString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode appointment = objectMapper.readTree(line);
+            assertThat(appointment.get("patientKeycloakId").asText()).isEqualTo(PATIENT);
+            ids.add(objectMapper.treeToValue(appointment, AppointmentResponse.class).getId());
+        }
+
+        assertThat(body.toString(StandardCharsets.UTF_8)).endsWith("\n");
+        assertThat(ids).containsExactlyElementsOf(expectedHistory);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void aTamperedCursorIsABadRequest() {
+        assertThatThrownBy(() -> appointmentService.getMyAppointments(PATIENT, "PATIENT", "not-a-cursor", 3, request))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void anotherUsersHistoryIsDenied() {
+        assertThatThrownBy(() -> appointmentService.streamMyAppointments("patient-2", "PATIENT", request))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    private Appointment save(String patient, LocalDate date, Period period) {
+        return appointmentRepository.save(Appointment.builder()
+                .doctorKeycloakId("doctor-1")
+                .patientKeycloakId(patient)
+                .appointmentDate(date)
+                .period(period)
+                .status(Status.COMPLETED)
+                .reservationToken(UUID.randomUUID().toString())
+                .build());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,217 @@
+package polyClinicSystem.example.appointment_service.service.Partition;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.model.entity.Appointment;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.repository.AppointmentArchiveRepository;
+import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.cloud.config.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PartitionImpl.class)
+@Testcontainers
+class PartitionTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final List<Status> FINISHED_STATUSES =
+            List.of(Status.CANCELLED, Status.EXPIRED, Status.COMPLETED, Status.REJECTED);
+
+    @Autowired
+    private PartitionService partitionService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentArchiveRepository archiveRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void createMonthlyPartitionMovesTheRowsOfItsMonthOutOfTheDefaultPartition() {
+        // past the months created ahead by the migration
+        YearMonth month = YearMonth.now().plusMonths(24);
+        Long id = appointmentRepository.save(appointment(month.atDay(10), Period.H09_10, Status.PENDING)).getId();
+
+        assertThat(partitionOf(id)).isEqualTo("appointments_default");
+
+        assertThat(appointmentRepository.createMonthlyPartition(month.atDay(1))).isTrue();
+        assertThat(appointmentRepository.createMonthlyPartition(month.atDay(1))).isFalse();
+
+        assertThat(partitionOf(id)).isEqualTo(partitionName(month));
+        assertThat(partitionService.findPartitionMonths()).contains(month);
+    }
+
+    @Test
+    void detachMovesTheUnfinishedRowsBackAndArchivesTheFinishedOnes() {
+        YearMonth month = YearMonth.now().minusMonths(6);
+        assertThat(appointmentRepository.createMonthlyPartition(month.atDay(1))).isTrue();
+
+        Long completed = appointmentRepository.save(appointment(month.atDay(3), Period.H08_09, Status.COMPLETED)).getId();
+        Long paid = appointmentRepository.save(appointment(month.atDay(3), Period.H09_10, Status.PAID)).getId();
+        Long unknown = appointmentRepository.save(appointment(month.atDay(3), Period.H10_11, null)).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(partitionService.detach(month, FINISHED_STATUSES)).isTrue();
+
+        // nothing is out of the hot table but the rows to archive
+        assertThat(partitionOf(paid)).isEqualTo("appointments_default");
+        assertThat(partitionOf(unknown)).isEqualTo("appointments_default");
+        assertThat(appointmentRepository.existsById(completed)).isFalse();
+
+        assertThat(partitionService.archiveDetached(month, Instant.now())).isEqualTo(1);
+        assertThat(archiveRepository.findById(completed)).get()
+                .satisfies(archived -> assertThat(archived.getStatus()).isEqualTo(Status.COMPLETED));
+        assertThat(partitionService.findPartitionMonths()).doesNotContain(month);
+
+        // a second run of the month is a no-op
+        assertThat(partitionService.detach(month, FINISHED_STATUSES)).isFalse();
+        assertThat(partitionService.archiveDetached(month, Instant.now())).isZero();
+
+        // only the token of the archived appointment is unmapped
+        assertThat(archiveRepository.deleteArchivedReservationTokens(month.plusMonths(1).atDay(1))).isEqualTo(1);
+        assertThat(appointmentRepository.findById(paid)).get().satisfies(appointment ->
+                assertThat(appointmentRepository.findByReservationToken(appointment.getReservationToken()))
+                        .get().extracting(Appointment::getId).isEqualTo(paid));
+    }
+
+    @Test
+    void theLeftoversOfADetachedMonthAreArchivedFromTheDefaultPartitionOnceFinished() {
+        YearMonth month = YearMonth.now().minusMonths(7);
+        appointmentRepository.createMonthlyPartition(month.atDay(1));
+        Long paid = appointmentRepository.save(appointment(month.atDay(5), Period.H11_12, Status.PAID)).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        partitionService.detach(month, FINISHED_STATUSES);
+        partitionService.archiveDetached(month, Instant.now());
+
+        LocalDate beforeDate = month.plusMonths(1).atDay(1);
+        List<String> statuses = FINISHED_STATUSES.stream().map(Status::name).toList();
+
+        assertThat(appointmentRepository.findFinishedIdsInDefaultPartition(beforeDate, statuses, 0L, 100)).isEmpty();
+
+        jdbcTemplate.update("UPDATE appointments SET status = 'COMPLETED' WHERE id = ?", paid);
+
+        List<Long> finished = appointmentRepository.findFinishedIdsInDefaultPartition(beforeDate, statuses, 0L, 100);
+        assertThat(finished).containsExactly(paid);
+        assertThat(archiveRepository.moveFinishedToArchive(finished, beforeDate, statuses, Instant.now())).isEqualTo(1);
+        assertThat(appointmentRepository.existsById(paid)).isFalse();
+        assertThat(archiveRepository.existsById(paid)).isTrue();
+    }
+
+    @Test
+    void detachGivesUpWhenTheLockIsNotGrantedInTime() throws Exception {
+        // created by the migration
+        YearMonth month = YearMonth.now().plusMonths(3);
+
+        // a booking transaction on appointments that hasn't committed yet
+        try (Connection booking = dataSource.getConnection()) {
+            booking.setAutoCommit(false);
+            try (Statement statement = booking.createStatement()) {
+                statement.execute("LOCK TABLE appointments IN ROW EXCLUSIVE MODE");
+
+                assertThatThrownBy(() -> partitionService.detach(month, FINISHED_STATUSES))
+                        .isInstanceOf(PessimisticLockingFailureException.class);
+            } finally {
+                booking.rollback();
+            }
+        }
+    }
+
+    @Test
+    void aReservationTokenIsFoundThroughItsMappingAfterItsRowMovedPartition() {
+        // past the months created ahead by the migration, the row lands in appointments_default
+        YearMonth month = YearMonth.now().plusMonths(25);
+        Appointment saved = appointmentRepository.saveAndFlush(appointment(month.atDay(4), Period.H09_10, Status.PENDING));
+        String token = saved.getReservationToken();
+
+        appointmentRepository.createMonthlyPartition(month.atDay(1));
+        entityManager.clear();
+
+        assertThat(partitionOf(saved.getId())).isEqualTo(partitionName(month));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT appointment_id FROM appointment_reservation_tokens WHERE reservation_token = ?", Long.class, token))
+                .isEqualTo(saved.getId());
+        assertThat(appointmentRepository.findByReservationToken(token)).get()
+                .satisfies(appointment -> {
+                    assertThat(appointment.getId()).isEqualTo(saved.getId());
+                    assertThat(appointment.getAppointmentDate()).isEqualTo(month.atDay(4));
+                });
+        assertThat(appointmentRepository.findByReservationToken(UUID.randomUUID().toString())).isEmpty();
+    }
+
+    @Test
+    void reservationTokensAreUniquePerAppointmentDate() {
+        String token = UUID.randomUUID().toString();
+        LocalDate date = LocalDate.now().plusDays(2);
+
+        appointmentRepository.saveAndFlush(withToken(appointment(date, Period.H08_09, Status.PENDING), token));
+        appointmentRepository.saveAndFlush(withToken(appointment(date.plusDays(1), Period.H08_09, Status.PENDING), token));
+
+        assertThatThrownBy(() -> appointmentRepository.saveAndFlush(
+                withToken(appointment(date, Period.H09_10, Status.PENDING), token)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private Appointment appointment(LocalDate date, Period period, Status status) {
+        return Appointment.builder()
+                .doctorKeycloakId("doctor-1")
+                .patientKeycloakId("patient-1")
+                .appointmentDate(date)
+                .period(period)
+                .status(status)
+                .reservationToken(UUID.randomUUID().toString())
+                .build();
+    }
+
+    private Appointment withToken(Appointment appointment, String token) {
+        appointment.setReservationToken(token);
+        return appointment;
+    }
+
+    private String partitionOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM appointments WHERE id = ?",
+                String.class, id);
+    }
+
+    private String partitionName(YearMonth month) {
+        return String.format("appointments_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+}
@@ -0,0 +1,107 @@
+package polyClinicSystem.example.appointment_service.service.ReservationLock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.config.RedisConfig;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        classes = {RedisConfig.class, ReservationLockImpl.class, SimpleMeterRegistry.class},
+        properties = "spring.cloud.config.enabled=false")
+@ImportAutoConfiguration(RedisAutoConfiguration.class)
+@Testcontainers
+class ReservationLockTests {
+
+    @Container
+    @ServiceConnection(name = "redis")
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static final Duration LEASE = Duration.ofSeconds(30);
+
+    @Autowired
+    private ReservationLockService reservationLockService;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final String lockKey = "appointment:lock:{doctor-1:" + UUID.randomUUID() + ":H09_10}";
+
+    @Test
+    void aHeldLockIsNotGrantedToAnotherOwnerWithinTheWaitTime() {
+        String token = reservationLockService.tryLock(lockKey, LEASE, Duration.ZERO);
+
+        assertThat(token).isNotNull();
+        assertThat(reservationLockService.isLocked(lockKey)).isTrue();
+        assertThat(reservationLockService.tryLock(lockKey, LEASE, Duration.ofMillis(200))).isNull();
+        assertThat(redisTemplate.opsForValue().get(lockKey)).isEqualTo(token);
+    }
+
+    @Test
+    void theOwnerOfAnExpiredLockCannotReleaseTheNextOwnersLock() throws InterruptedException {
+        String expired = reservationLockService.tryLock(lockKey, Duration.ofMillis(100), Duration.ZERO);
+        TimeUnit.MILLISECONDS.sleep(300);
+        String current = reservationLockService.tryLock(lockKey, LEASE, Duration.ZERO);
+
+        reservationLockService.unlock(lockKey, expired);
+
+        assertThat(redisTemplate.opsForValue().get(lockKey)).isEqualTo(current);
+        assertThat(fenceOf(current)).isGreaterThan(fenceOf(expired));
+        assertThat(meterRegistry.counter("reservation.lock.release", "outcome", "lost").count()).isEqualTo(1);
+
+        reservationLockService.unlock(lockKey, current);
+        assertThat(reservationLockService.isLocked(lockKey)).isFalse();
+    }
+
+    @Test
+    void aWaiterIsWokenByTheReleaseInsteadOfWaitingForTheLease() throws Exception {
+        String holder = reservationLockService.tryLock(lockKey, LEASE, Duration.ZERO);
+
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() ->
+                reservationLockService.tryLock(lockKey, LEASE, Duration.ofSeconds(10)));
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertThat(waiter).isNotDone();
+
+        reservationLockService.unlock(lockKey, holder);
+
+        // well before both the wait time and the lease of the holder
+        String token = waiter.get(2, TimeUnit.SECONDS);
+        assertThat(token).isNotNull();
+        assertThat(fenceOf(token)).isGreaterThan(fenceOf(holder));
+        assertThat(meterRegistry.counter("reservation.lock.acquire", "outcome", "after_wait").count()).isEqualTo(1);
+    }
+
+    @Test
+    void theFenceKeepsGoingUpWhenItsCounterIsLost() {
+        String before = reservationLockService.tryLock(lockKey, LEASE, Duration.ZERO);
+        reservationLockService.unlock(lockKey, before);
+
+        // expired, or lost with a redis restart
+        redisTemplate.delete(lockKey + ":fence");
+        String after = reservationLockService.tryLock(lockKey, LEASE, Duration.ZERO);
+
+        assertThat(reservationLockService.fenceOf(after)).isGreaterThan(reservationLockService.fenceOf(before));
+    }
+
+    private long fenceOf(String token) {
+        return Long.parseLong(token.substring(token.lastIndexOf(':') + 1));
+    }
+}
@@ -0,0 +1,148 @@
+package polyClinicSystem.example.appointment_service.service.SlotOccupancy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.appointment_service.config.RedisConfig;
+import polyClinicSystem.example.appointment_service.model.entity.Appointment;
+import polyClinicSystem.example.appointment_service.model.enums.Period;
+import polyClinicSystem.example.appointment_service.model.enums.Status;
+import polyClinicSystem.example.appointment_service.model.occupancy.SlotOccupancy;
+import polyClinicSystem.example.appointment_service.repository.AppointmentRepository;
+import polyClinicSystem.example.appointment_service.repository.DayUnavailabilityRepository;
+import polyClinicSystem.example.appointment_service.repository.VacationUnavailabilityRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(
+        classes = {RedisConfig.class, SlotOccupancyImpl.class},
+        properties = "spring.cloud.config.enabled=false")
+@ImportAutoConfiguration(RedisAutoConfiguration.class)
+@Testcontainers
+class SlotOccupancyTests {
+
+    @Container
+    @ServiceConnection(name = "redis")
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static final String DOCTOR = "doctor-1";
+    private static final LocalDate DATE = LocalDate.now().plusDays(3);
+    private static final String DAY_KEY = "appointment:occupancy:{" + DOCTOR + "}:" + DATE;
+
+    @MockitoBean
+    private AppointmentRepository appointmentRepository;
+
+    @MockitoBean
+    private DayUnavailabilityRepository dayUnavailabilityRepository;
+
+    @MockitoBean
+    private VacationUnavailabilityRepository vacationUnavailabilityRepository;
+
+    @Autowired
+    private SlotOccupancyService slotOccupancyService;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @BeforeEach
+    void emptyCache() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void aMissIsLoadedFromTheDatabaseOnceThenServedFromRedis() {
+        Appointment booked = appointment(Period.H09_10, Status.SCHEDULED);
+        when(appointmentRepository.findByDoctorKeycloakIdAndAppointmentDateAndStatusIn(anyString(), any(), anyList()))
+                .thenReturn(List.of(booked));
+
+        SlotOccupancy first = slotOccupancyService.getOccupancy(DOCTOR, DATE);
+        SlotOccupancy second = slotOccupancyService.getOccupancy(DOCTOR, DATE);
+
+        for (SlotOccupancy occupancy : List.of(first, second)) {
+            assertThat(occupancy.isOccupied(Period.H09_10)).isTrue();
+            assertThat(occupancy.isOccupied(Period.H10_11)).isFalse();
+            assertThat(occupancy.getHolders().get(Period.H09_10).getReservationToken())
+                    .isEqualTo(booked.getReservationToken());
+        }
+        verify(appointmentRepository, times(1))
+                .findByDoctorKeycloakIdAndAppointmentDateAndStatusIn(anyString(), any(), anyList());
+        verify(vacationUnavailabilityRepository, times(1)).findByDoctorKeycloakId(DOCTOR);
+    }
+
+    @Test
+    void markBookedAndReleasePatchTheCachedDayAndOnlyTheHolderFreesTheSlot() {
+        slotOccupancyService.getOccupancy(DOCTOR, DATE);
+        Appointment booked = appointment(Period.H10_11, Status.PENDING);
+
+        slotOccupancyService.markBooked(booked);
+        assertThat(slotOccupancyService.getOccupancy(DOCTOR, DATE).isOccupied(Period.H10_11)).isTrue();
+
+        // a late release of an older reservation of the period
+        slotOccupancyService.release(DOCTOR, DATE, Period.H10_11, UUID.randomUUID().toString());
+        assertThat(slotOccupancyService.getOccupancy(DOCTOR, DATE).isOccupied(Period.H10_11)).isTrue();
+
+        slotOccupancyService.release(booked);
+        SlotOccupancy occupancy = slotOccupancyService.getOccupancy(DOCTOR, DATE);
+        assertThat(occupancy.isOccupied(Period.H10_11)).isFalse();
+        assertThat(occupancy.getHolders()).doesNotContainKey(Period.H10_11);
+
+        verify(appointmentRepository, times(1))
+                .findByDoctorKeycloakIdAndAppointmentDateAndStatusIn(anyString(), any(), anyList());
+    }
+
+    @Test
+    void aSnapshotLoadedWhileAReservationCommittedIsNotCached() {
+        Appointment booked = appointment(Period.H11_12, Status.PENDING);
+        when(appointmentRepository.findByDoctorKeycloakIdAndAppointmentDateAndStatusIn(anyString(), any(), anyList()))
+                .thenAnswer(invocation -> {
+                    // committed between the read of the version and the end of the load
+                    slotOccupancyService.markBooked(booked);
+                    return List.of();
+                });
+
+        assertThat(slotOccupancyService.getOccupancy(DOCTOR, DATE).isOccupied(Period.H11_12)).isFalse();
+        assertThat(redisTemplate.hasKey(DAY_KEY)).isFalse();
+
+        doReturn(List.of(booked)).when(appointmentRepository)
+                .findByDoctorKeycloakIdAndAppointmentDateAndStatusIn(anyString(), any(), anyList());
+
+        assertThat(slotOccupancyService.getOccupancy(DOCTOR, DATE).isOccupied(Period.H11_12)).isTrue();
+        assertThat(redisTemplate.hasKey(DAY_KEY)).isTrue();
+    }
+
+    private Appointment appointment(Period period, Status status) {
+        return Appointment.builder()
+                .doctorKeycloakId(DOCTOR)
+                .patientKeycloakId("patient-1")
+                .appointmentDate(DATE)
+                .period(period)
+                .status(status)
+                .reservationToken(UUID.randomUUID().toString())
+                .expiresAt(Instant.now().plusSeconds(600))
+                .build();
+    }
+}
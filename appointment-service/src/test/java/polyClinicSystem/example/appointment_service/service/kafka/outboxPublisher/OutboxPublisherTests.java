@@ -0,0 +1,227 @@
+package polyClinicSystem.example.appointment_service.service.kafka.outboxPublisher;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.KafkaContainer;
+import polyClinicSystem.example.appointment_service.config.KafkaConfig;
+import polyClinicSystem.example.appointment_service.model.enums.EventFormat;
+import polyClinicSystem.example.appointment_service.model.event.OutboxEvent;
+import polyClinicSystem.example.appointment_service.repository.OutboxEventJdbcRepository;
+import polyClinicSystem.example.appointment_service.repository.OutboxEventRepository;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.EventCodec;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.JsonEventCodec;
+import polyClinicSystem.example.appointment_service.service.kafka.eventCodec.SmileEventCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.ByteArraySerializer",
+        "appointment.outbox.transactional=true",
+        "appointment.outbox.instance-id=test"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OutboxPublisherImpl.class, OutboxEventJdbcRepository.class, KafkaConfig.class,
+        JsonEventCodec.class, SmileEventCodec.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration({KafkaAutoConfiguration.class, JacksonAutoConfiguration.class})
+// the relay thread only sees committed events
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers
+class OutboxPublisherTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    @ServiceConnection
+    static KafkaContainer kafka = new KafkaContainer("apache/kafka:3.8.0");
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private JsonEventCodec jsonEventCodec;
+
+    @Autowired
+    private SmileEventCodec smileEventCodec;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void eachEventIsPublishedOnceInATransactionWithItsFormatHeaders() throws Exception {
+        long appointmentId = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+        Long json = save(appointmentId, "appointment.scheduled", jsonEventCodec).getId();
+        Long smile = save(appointmentId + 1, "appointment.scheduled", smileEventCodec).getId();
+
+        outboxPublisher.wakeUp();
+        awaitSent(json);
+        awaitSent(smile);
+
+        List<ConsumerRecord<String, byte[]>> records = consume(OutboxPublisherImpl.TOPIC,
+                received -> outboxIds(received).containsAll(List.of(json, smile)));
+
+        assertThat(outboxIds(records)).filteredOn(id -> id.equals(json) || id.equals(smile))
+                .containsExactlyInAnyOrder(json, smile);
+
+        for (ConsumerRecord<String, byte[]> record : records) {
+            Long outboxId = Long.valueOf(header(record, OutboxPublisherImpl.OUTBOX_ID_HEADER));
+            if (!outboxId.equals(json) && !outboxId.equals(smile)) {
+                continue;
+            }
+            EventFormat format = outboxId.equals(json) ? EventFormat.JSON : EventFormat.SMILE;
+            EventCodec codec = outboxId.equals(json) ? jsonEventCodec : smileEventCodec;
+
+            assertThat(header(record, OutboxPublisherImpl.EVENT_TYPE_HEADER)).isEqualTo("appointment.scheduled");
+            assertThat(header(record, EventCodec.CONTENT_TYPE_HEADER)).isEqualTo(format.getContentType());
+            assertThat(header(record, EventCodec.SCHEMA_VERSION_HEADER)).isEqualTo(String.valueOf(EventCodec.SCHEMA_VERSION));
+            JsonNode payload = objectMapper.readTree(codec.toJson(record.value()));
+            assertThat(payload.get("appointmentId").asText()).isEqualTo(record.key());
+        }
+    }
+
+    @Test
+    void theEventsOfOneAppointmentAreConsumedInCreationOrderWhateverTheirType() throws Exception {
+        long appointmentId = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+        List<String> eventTypes = List.of("appointment.payment.created", "appointment.scheduled", "appointment.cancelled");
+        List<Long> ids = new ArrayList<>();
+        for (String eventType : eventTypes) {
+            ids.add(save(appointmentId, eventType, jsonEventCodec).getId());
+        }
+
+        outboxPublisher.wakeUp();
+        awaitSent(ids.get(ids.size() - 1));
+
+        List<ConsumerRecord<String, byte[]>> records = consume(OutboxPublisherImpl.TOPIC,
+                received -> outboxIds(received).containsAll(ids));
+
+        List<ConsumerRecord<String, byte[]>> ofAppointment = records.stream()
+                .filter(record -> String.valueOf(appointmentId).equals(record.key()))
+                .toList();
+        assertThat(outboxIds(ofAppointment)).containsExactlyElementsOf(ids);
+        assertThat(ofAppointment).extracting(record -> header(record, OutboxPublisherImpl.EVENT_TYPE_HEADER))
+                .containsExactlyElementsOf(eventTypes);
+    }
+
+    @Test
+    void anAbortedTransactionIsNeverSeenByReadCommittedConsumers() {
+        String aborted = "aborted-" + UUID.randomUUID();
+        String committed = "committed-" + UUID.randomUUID();
+
+        assertThatThrownBy(() -> kafkaTemplate.executeInTransaction(operations -> {
+            operations.send(OutboxPublisherImpl.TOPIC, aborted, new byte[]{1});
+            operations.flush();
+            throw new IllegalStateException("rolled back after the send");
+        })).isInstanceOf(IllegalStateException.class);
+
+        kafkaTemplate.executeInTransaction(operations -> operations.send(OutboxPublisherImpl.TOPIC, committed, new byte[]{2}));
+
+        List<ConsumerRecord<String, byte[]>> records = consume(OutboxPublisherImpl.TOPIC,
+                received -> received.stream().anyMatch(record -> committed.equals(record.key())));
+
+        assertThat(records).extracting(ConsumerRecord::key)
+                .contains(committed)
+                .doesNotContain(aborted);
+    }
+
+    private OutboxEvent save(long appointmentId, String eventType, EventCodec codec) throws Exception {
+        return outboxRepository.save(OutboxEvent.builder()
+                .aggregateType("appointment")
+                .aggregateId(String.valueOf(appointmentId))
+                .eventType(eventType)
+                .payload(codec.encode(Map.of("appointmentId", appointmentId)))
+                .payloadFormat(codec.getFormat())
+                .schemaVersion(EventCodec.SCHEMA_VERSION)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    private void awaitSent(Long id) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!outboxRepository.findById(id).map(OutboxEvent::isSent).orElse(false)) {
+            assertThat(System.nanoTime()).as("outbox event %d sent", id).isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+    }
+
+    // reads the topic from the beginning the way the consumers do (read_committed) until done matches
+    private List<ConsumerRecord<String, byte[]>> consume(String topic,
+                                                         Predicate<List<ConsumerRecord<String, byte[]>>> done) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, "test-" + UUID.randomUUID());
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+        try (KafkaConsumer<String, byte[]> consumer =
+                     new KafkaConsumer<>(properties, new StringDeserializer(), new ByteArrayDeserializer())) {
+            consumer.subscribe(List.of(topic));
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (!done.test(records)) {
+                assertThat(System.nanoTime()).as("records of %s consumed", topic).isLessThan(deadline);
+                consumer.poll(Duration.ofMillis(500)).forEach(records::add);
+            }
+            // anything published twice would come right after
+            consumer.poll(Duration.ofSeconds(1)).forEach(records::add);
+        }
+        return records;
+    }
+
+    private List<Long> outboxIds(List<ConsumerRecord<String, byte[]>> records) {
+        return records.stream()
+                .map(record -> header(record, OutboxPublisherImpl.OUTBOX_ID_HEADER))
+                .filter(value -> value != null)
+                .map(Long::valueOf)
+                .toList();
+    }
+
+    private String header(ConsumerRecord<String, byte[]> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,30 @@
+package polyClinicSystem.example.common_security.identity;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "polyclinic.identity", name = "secret")
+@EnableConfigurationProperties(IdentityHeaderProperties.class)
+public class IdentityHeaderAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IdentityHeaderCodec identityHeaderCodec(IdentityHeaderProperties properties) {
+        return new IdentityHeaderCodec(properties.getSecret());
+    }
+
+    /**
+     * Registered as a servlet filter by Spring Boot, before the controllers
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(prefix = "polyclinic.identity", name = "accept", matchIfMissing = true)
+    public IdentityHeaderFilter identityHeaderFilter(IdentityHeaderCodec codec) {
+        return new IdentityHeaderFilter(codec);
+    }
+}
@@ -0,0 +1,102 @@
+package polyClinicSystem.example.common_security.identity;
+
+import polyClinicSystem.example.common_security.jwt.InvalidTokenException;
+import polyClinicSystem.example.common_security.jwt.JwtPrincipal;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class IdentityHeaderCodec {
+    /*
+    the gateway has already validated the JWT, it forwards what the services need from it in one header:
+    base64url("sub \n role,role \n exp") + "." + base64url(hmac-sha256 of that part).
+    the hmac key is shared by the gateway and the services only, so a client can't forge the header,
+    and the header stops being accepted when the token it was built from expires.
+     */
+
+    public static final String HEADER = "X-Identity";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+
+    public IdentityHeaderCodec(String secret) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < 32) {
+            throw new IllegalStateException("polyclinic.identity.secret must be at least 32 bytes");
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+    }
+
+    public String encode(JwtPrincipal principal) {
+        String claims = principal.getSubject() + "\n"
+                + String.join(",", principal.getRoles()) + "\n"
+                + principal.getExpiresAt().getEpochSecond();
+        String encodedClaims = ENCODER.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        return encodedClaims + "." + ENCODER.encodeToString(sign(encodedClaims));
+    }
+
+    /**
+     * @throws InvalidTokenException if the header is malformed, not signed with the shared key or expired
+     */
+    public JwtPrincipal decode(String header) {
+        int dot = header.indexOf('.');
+        if (dot < 0) {
+            throw new InvalidTokenException("Malformed identity header");
+        }
+
+        String encodedClaims = header.substring(0, dot);
+        byte[] signature;
+        String[] claims;
+        try {
+            signature = DECODER.decode(header.substring(dot + 1));
+            claims = new String(DECODER.decode(encodedClaims), StandardCharsets.UTF_8).split("\n", -1);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed identity header", e);
+        }
+
+        if (!MessageDigest.isEqual(sign(encodedClaims), signature)) {
+            throw new InvalidTokenException("Invalid identity header signature");
+        }
+        if (claims.length != 3) {
+            throw new InvalidTokenException("Malformed identity header");
+        }
+
+        Instant expiresAt;
+        try {
+            expiresAt = Instant.ofEpochSecond(Long.parseLong(claims[2]));
+        } catch (NumberFormatException e) {
+            throw new InvalidTokenException("Malformed identity header", e);
+        }
+        if (!expiresAt.isAfter(Instant.now())) {
+            throw new InvalidTokenException("Identity header expired");
+        }
+
+        Set<String> roles = claims[1].isEmpty()
+                ? Set.of()
+                : Arrays.stream(claims[1].split(",")).collect(Collectors.toUnmodifiableSet());
+        // signed by the gateway, which verified the token it was built from
+        return new JwtPrincipal(claims[0], roles, expiresAt, true);
+    }
+
+    private byte[] sign(String encodedClaims) {
+        try {
+            // Mac isn't thread safe, one per call (cheap next to the request)
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(encodedClaims.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
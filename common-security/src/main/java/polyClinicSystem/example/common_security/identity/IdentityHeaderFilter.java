@@ -0,0 +1,40 @@
+package polyClinicSystem.example.common_security.identity;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import polyClinicSystem.example.common_security.jwt.InvalidTokenException;
+import polyClinicSystem.example.common_security.jwt.JwtClaimsResolver;
+
+import java.io.IOException;
+
+@Slf4j
+@RequiredArgsConstructor
+public class IdentityHeaderFilter extends OncePerRequestFilter {
+    /*
+    puts the principal of a valid identity header on the request, where JwtClaimsResolver finds it,
+    so the bearer token of a request routed by the gateway is never parsed here.
+    a missing or invalid header isn't an error: the resolver falls back to the bearer token
+     */
+
+    private final IdentityHeaderCodec codec;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(IdentityHeaderCodec.HEADER);
+        if (header != null) {
+            try {
+                request.setAttribute(JwtClaimsResolver.PRINCIPAL_ATTRIBUTE, codec.decode(header));
+            } catch (InvalidTokenException e) {
+                log.debug("Ignoring identity header: {}", e.getMessage());
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,21 @@
+package polyClinicSystem.example.common_security.identity;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "polyclinic.identity")
+public class IdentityHeaderProperties {
+
+    /**
+     * HMAC key shared by the gateway and the services, at least 32 bytes, the identity header is off when unset
+     */
+    private String secret;
+
+    /**
+     * Accept the identity header on incoming requests, false on the gateway that only signs it
+     */
+    private boolean accept = true;
+}
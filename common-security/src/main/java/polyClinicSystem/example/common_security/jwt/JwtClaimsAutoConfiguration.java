@@ -0,0 +1,17 @@
+package polyClinicSystem.example.common_security.jwt;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+@AutoConfiguration
+@EnableConfigurationProperties(JwtClaimsProperties.class)
+public class JwtClaimsAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JwtClaimsResolver jwtClaimsResolver(JwtClaimsProperties properties) {
+        return new JwtClaimsResolverImpl(properties);
+    }
+}
@@ -0,0 +1,27 @@
+package polyClinicSystem.example.common_security.jwt;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "polyclinic.jwt")
+public class JwtClaimsProperties {
+
+    /**
+     * Keycloak JWK set used to verify token signatures, required unless verify is false
+     */
+    private String jwkSetUri;
+
+    /**
+     * Verify token signatures, false = tokens are only parsed and their roles are ignored
+     * (the role is then read from user-management, or from the gateway's signed identity header)
+     */
+    private boolean verify = true;
+
+    /**
+     * Most parsed tokens kept in the cache
+     */
+    private long cacheMaxSize = 10000;
+}
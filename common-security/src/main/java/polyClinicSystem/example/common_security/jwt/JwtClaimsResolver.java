@@ -0,0 +1,29 @@
+package polyClinicSystem.example.common_security.jwt;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+public interface JwtClaimsResolver {
+    /**
+     * Request attribute holding the resolved principal, also set by IdentityHeaderFilter from the gateway's header
+     */
+    String PRINCIPAL_ATTRIBUTE = JwtClaimsResolver.class.getName() + ".principal";
+
+    /**
+     * @return the bearer token of the request, null if there is none
+     */
+    String extractToken(HttpServletRequest request);
+
+    /**
+     * Principal of the request (gateway identity header, else bearer token), resolved once per request
+     *
+     * @throws InvalidTokenException if the request has no token or it's invalid or expired
+     */
+    JwtPrincipal resolve(HttpServletRequest request);
+
+    /**
+     * Principal of a token, parsed (and verified) once per token until it expires
+     *
+     * @throws InvalidTokenException if the token is invalid or expired
+     */
+    JwtPrincipal resolve(String token);
+}
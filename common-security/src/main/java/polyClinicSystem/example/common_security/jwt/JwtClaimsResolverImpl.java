@@ -0,0 +1,179 @@
+package polyClinicSystem.example.common_security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+public class JwtClaimsResolverImpl implements JwtClaimsResolver {
+    /*
+    a request used to parse its token again for every extractUserId call, and to fetch the user
+    from user-management just to know its role although Keycloak puts the roles in the token.
+    the principal is kept on the request (one parse per request) and in a cache keyed by the sha-256 of the token
+    until the token expires (one parse and one signature check per token).
+    signatures are checked by default, startup fails without polyclinic.jwt.jwk-set-uri. with verify turned off
+    the tokens are only parsed and the principal is marked unverified, its roles aren't used.
+    requests routed by the gateway carry a signed identity header, IdentityHeaderFilter puts its principal
+    on the request first and the token isn't parsed at all.
+     */
+
+    private final Cache<String, JwtPrincipal> principals;
+    private final ConfigurableJWTProcessor<SecurityContext> jwtProcessor; // null = parse only
+
+    public JwtClaimsResolverImpl(JwtClaimsProperties properties) {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaxSize())
+                .expireAfter(Expiry.creating((String tokenHash, JwtPrincipal principal) ->
+                        timeToLive(principal)))
+                .build();
+        this.jwtProcessor = properties.isVerify() ? createProcessor(properties.getJwkSetUri()) : null;
+        if (jwtProcessor == null) {
+            log.warn("JWT signatures are not verified (polyclinic.jwt.verify=false), token roles are ignored");
+        }
+    }
+
+    @Override
+    public String extractToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        return header.substring(7); // remove "Bearer "
+    }
+
+    @Override
+    public JwtPrincipal resolve(HttpServletRequest request) {
+        if (request.getAttribute(PRINCIPAL_ATTRIBUTE) instanceof JwtPrincipal principal) {
+            return principal;
+        }
+
+        String token = extractToken(request);
+        if (token == null) {
+            throw new InvalidTokenException("Token not found in request");
+        }
+
+        JwtPrincipal principal = resolve(token);
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal);
+        return principal;
+    }
+
+    @Override
+    public JwtPrincipal resolve(String token) {
+        String tokenHash = hash(token);
+        JwtPrincipal cached = principals.getIfPresent(tokenHash);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return cached;
+        }
+
+        JwtPrincipal principal = parse(token);
+        principals.put(tokenHash, principal);
+        return principal;
+    }
+
+    private JwtPrincipal parse(String token) {
+        JWTClaimsSet claims;
+        try {
+            claims = jwtProcessor == null
+                    ? SignedJWT.parse(token).getJWTClaimsSet()
+                    : jwtProcessor.process(token, null); // also checks exp and nbf
+        } catch (Exception e) {
+            throw new InvalidTokenException("Invalid JWT Token", e);
+        }
+
+        if (claims.getSubject() == null || claims.getExpirationTime() == null) {
+            throw new InvalidTokenException("Invalid JWT Token: sub and exp are required");
+        }
+        Instant expiresAt = claims.getExpirationTime().toInstant();
+        if (!expiresAt.isAfter(Instant.now())) {
+            throw new InvalidTokenException("JWT Token expired");
+        }
+
+        return new JwtPrincipal(claims.getSubject(), extractRoles(claims), expiresAt, jwtProcessor != null);
+    }
+
+    private Set<String> extractRoles(JWTClaimsSet claims) {
+        Set<String> roles = new HashSet<>();
+        try {
+            // realm_access (realm roles)
+            Map<String, Object> realmAccess = claims.getJSONObjectClaim("realm_access");
+            if (realmAccess != null) {
+                addRoles(roles, realmAccess.get("roles"));
+            }
+
+            // resource_access (client roles): { "<client id>": { "roles": [...] } }
+            Map<String, Object> resourceAccess = claims.getJSONObjectClaim("resource_access");
+            if (resourceAccess != null) {
+                for (Object client : resourceAccess.values()) {
+                    if (client instanceof Map<?, ?> clientAccess) {
+                        addRoles(roles, clientAccess.get("roles"));
+                    }
+                }
+            }
+        } catch (ParseException e) {
+            throw new InvalidTokenException("Invalid JWT Token roles", e);
+        }
+        return Set.copyOf(roles);
+    }
+
+    private void addRoles(Set<String> roles, Object rolesClaim) {
+        if (rolesClaim instanceof Collection<?> values) {
+            values.forEach(role -> roles.add(String.valueOf(role)));
+        }
+    }
+
+    private Duration timeToLive(JwtPrincipal principal) {
+        Duration untilExpiry = Duration.between(Instant.now(), principal.getExpiresAt());
+        return untilExpiry.isNegative() ? Duration.ZERO : untilExpiry;
+    }
+
+    private String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private ConfigurableJWTProcessor<SecurityContext> createProcessor(String jwkSetUri) {
+        if (jwkSetUri == null || jwkSetUri.isBlank()) {
+            throw new IllegalStateException("polyclinic.jwt.jwk-set-uri is required to verify JWT signatures "
+                    + "(set polyclinic.jwt.verify=false to only parse tokens and ignore their roles)");
+        }
+        try {
+            // the jwk set is fetched lazily and cached (with refresh ahead and rate limiting) by nimbus
+            DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+            processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256,
+                    JWKSourceBuilder.create(URI.create(jwkSetUri).toURL()).build()));
+            log.info("JWT signatures are verified against {}", jwkSetUri);
+            return processor;
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Invalid polyclinic.jwt.jwk-set-uri: " + jwkSetUri, e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package polyClinicSystem.example.common_security.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class JwtPrincipal {
+    /*
+    what the services need from a Keycloak access token: the user (sub), its roles
+    (realm_access.roles and resource_access.*.roles, the same ones the gateway authorizes with) and the expiry.
+    the roles of a token that was only parsed (signature not checked) are ignored: anyone can write such a token,
+    the services then ask user-management for the role instead.
+     */
+
+    // the application roles, in precedence order when a token carries several of them
+    private static final List<String> APPLICATION_ROLES = List.of("ADMIN", "DOCTOR", "NURSE", "PATIENT");
+
+    private final String subject;
+    private final Set<String> roles;
+    private final Instant expiresAt;
+    // the signature of the token (or of the gateway's identity header) was checked
+    private final boolean verified;
+
+    public boolean hasRole(String role) {
+        return verified && roles.contains(role);
+    }
+
+    /**
+     * @return the application role of the user (ADMIN, DOCTOR, NURSE or PATIENT),
+     * null if the token has none or its signature wasn't verified
+     */
+    public String getRole() {
+        if (!verified) {
+            return null;
+        }
+        return APPLICATION_ROLES.stream()
+                .filter(roles::contains)
+                .findFirst()
+                .orElse(null);
+    }
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
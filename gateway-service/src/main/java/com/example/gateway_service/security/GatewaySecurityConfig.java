@@ -1,5 +1,6 @@
 package com.example.gateway_service.security;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -7,8 +8,10 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.web.SecurityFilterChain;
+import polyClinicSystem.example.common_security.identity.IdentityHeaderCodec;
 
 import java.util.*;
 
@@ -16,7 +19,8 @@ import java.util.*;
 public class GatewaySecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   ObjectProvider<IdentityHeaderCodec> identityHeaderCodec) throws Exception {
         JwtAuthenticationConverter jwtAuthConverter = new JwtAuthenticationConverter();
         jwtAuthConverter.setJwtGrantedAuthoritiesConverter(this::extractAuthorities);
 
@@ -52,6 +56,10 @@ public class GatewaySecurityConfig {
                         .hasAnyRole("USER_ADMIN", "ADMIN")
                         .requestMatchers(HttpMethod.POST,"/api/users/staff")
                         .hasAnyRole("USER_ADMIN", "ADMIN")
+                        // batch lookup returns contact details of many users, the services call it directly
+                        // through Eureka, from outside only admins
+                        .requestMatchers(HttpMethod.POST,"/api/users/batch")
+                        .hasAnyRole("USER_ADMIN", "ADMIN")
 
 
                         // Notifications
@@ -65,6 +73,10 @@ public class GatewaySecurityConfig {
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthConverter)));
 
+        // signed identity header for the services, only when polyclinic.identity.secret is set
+        identityHeaderCodec.ifAvailable(codec ->
+                http.addFilterAfter(new IdentityPropagationFilter(codec), BearerTokenAuthenticationFilter.class));
+
         return http.build();
     }
 
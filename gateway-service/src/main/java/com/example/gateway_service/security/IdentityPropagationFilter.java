@@ -0,0 +1,92 @@
+package com.example.gateway_service.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+import polyClinicSystem.example.common_security.identity.IdentityHeaderCodec;
+import polyClinicSystem.example.common_security.jwt.JwtPrincipal;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class IdentityPropagationFilter extends OncePerRequestFilter {
+    /*
+    runs after the bearer token is validated: the routed request gets a signed X-Identity header
+    (user id, roles, expiry) built from the validated JWT, so the services read it instead of
+    parsing the token again and asking user-management for the role.
+    an X-Identity header sent by the client is always dropped.
+     */
+
+    private final IdentityHeaderCodec codec;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String identity = null;
+
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication
+                && jwtAuthentication.getToken().getExpiresAt() != null) {
+            Jwt jwt = jwtAuthentication.getToken();
+            Set<String> roles = jwtAuthentication.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .filter(authority -> authority.startsWith("ROLE_"))
+                    .map(authority -> authority.substring("ROLE_".length()))
+                    .collect(Collectors.toSet());
+            identity = codec.encode(new JwtPrincipal(jwt.getSubject(), roles, jwt.getExpiresAt(), true));
+        }
+
+        filterChain.doFilter(new IdentityRequest(request, identity), response);
+    }
+
+    private static class IdentityRequest extends HttpServletRequestWrapper {
+
+        private final String identity; // null = no header
+
+        IdentityRequest(HttpServletRequest request, String identity) {
+            super(request);
+            this.identity = identity;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (IdentityHeaderCodec.HEADER.equalsIgnoreCase(name)) {
+                return identity;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (IdentityHeaderCodec.HEADER.equalsIgnoreCase(name)) {
+                return identity == null ? Collections.emptyEnumeration() : Collections.enumeration(List.of(identity));
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !IdentityHeaderCodec.HEADER.equalsIgnoreCase(name))
+                    .collect(Collectors.toList());
+            if (identity != null) {
+                names.add(IdentityHeaderCodec.HEADER);
+            }
+            return Collections.enumeration(names);
+        }
+    }
+}
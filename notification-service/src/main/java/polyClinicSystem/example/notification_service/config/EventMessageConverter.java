@@ -0,0 +1,79 @@
+package polyClinicSystem.example.notification_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.converter.ByteArrayJsonMessageConverter;
+import org.springframework.kafka.support.converter.RecordMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class EventMessageConverter implements RecordMessageConverter {
+    /*
+    appointment-service sends its outbox payloads as raw bytes, JSON or binary Smile,
+    and says which one in the content-type header (records without it are JSON).
+    all the event types of an appointment come on one topic, the event-type header says which one it is:
+    the bytes are decoded straight into its event class (the listener's parameter type when the header is unknown),
+    unknown fields are ignored so new fields added by the producer (same schema-version) don't break this consumer.
+    the outbox-id header is passed on as a Long message header, the listener drops the records it already handled.
+     */
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String EVENT_TYPE_HEADER = "event-type";
+    public static final String OUTBOX_ID_HEADER = "outbox-id";
+    public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+    private final RecordMessageConverter jsonConverter;
+    private final RecordMessageConverter smileConverter;
+    private final Map<String, Class<?>> eventClasses;
+
+    public EventMessageConverter(ObjectMapper jsonMapper, ObjectMapper smileMapper, Map<String, Class<?>> eventClasses) {
+        this.jsonConverter = new ByteArrayJsonMessageConverter(jsonMapper);
+        this.smileConverter = new ByteArrayJsonMessageConverter(smileMapper);
+        this.eventClasses = Map.copyOf(eventClasses);
+    }
+
+    @Override
+    public Message<?> toMessage(ConsumerRecord<?, ?> record, Acknowledgment acknowledgment,
+                                Consumer<?, ?> consumer, Type payloadType) {
+        Message<?> message = converterFor(record)
+                .toMessage(record, acknowledgment, consumer, eventClassOf(record, payloadType));
+
+        Header outboxId = record.headers().lastHeader(OUTBOX_ID_HEADER);
+        if (outboxId == null) {
+            return message;
+        }
+        return MessageBuilder.fromMessage(message)
+                .setHeader(OUTBOX_ID_HEADER, Long.valueOf(new String(outboxId.value(), StandardCharsets.UTF_8)))
+                .build();
+    }
+
+    @Override
+    public ProducerRecord<?, ?> fromMessage(Message<?> message, String defaultTopic) {
+        return jsonConverter.fromMessage(message, defaultTopic);
+    }
+
+    private Type eventClassOf(ConsumerRecord<?, ?> record, Type payloadType) {
+        Header eventType = record.headers().lastHeader(EVENT_TYPE_HEADER);
+        if (eventType == null) {
+            return payloadType;
+        }
+        Class<?> eventClass = eventClasses.get(new String(eventType.value(), StandardCharsets.UTF_8));
+        return eventClass != null ? eventClass : payloadType;
+    }
+
+    private RecordMessageConverter converterFor(ConsumerRecord<?, ?> record) {
+        Header contentType = record.headers().lastHeader(CONTENT_TYPE_HEADER);
+        if (contentType != null && SMILE_CONTENT_TYPE.equals(new String(contentType.value(), StandardCharsets.UTF_8))) {
+            return smileConverter;
+        }
+        return jsonConverter;
+    }
+}
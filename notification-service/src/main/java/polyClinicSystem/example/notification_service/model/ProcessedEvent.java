@@ -0,0 +1,23 @@
+package polyClinicSystem.example.notification_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "processed_events")
+public class ProcessedEvent {
+
+    @Id
+    @Column(name = "outbox_id")
+    private Long outboxId;
+
+    @Column(name = "processed_at", nullable = false)
+    private Instant processedAt;
+}
@@ -0,0 +1,24 @@
+package polyClinicSystem.example.notification_service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import polyClinicSystem.example.notification_service.model.ProcessedEvent;
+
+import java.time.Instant;
+
+@Repository
+public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, Long> {
+
+    /**
+     * Claim an outbox id in the transaction that handles its event.
+     * A concurrent claim of the same id waits until the first transaction ends.
+     * @return 0 if the event was already handled
+     */
+    @Modifying
+    @Query(value = "INSERT INTO processed_events (outbox_id, processed_at) " +
+            "VALUES (:outboxId, :processedAt) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int claim(Long outboxId, Instant processedAt);
+}
@@ -4,23 +4,79 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import polyClinicSystem.example.notification_service.config.EventMessageConverter;
 import polyClinicSystem.example.notification_service.dto.event.*;
+import polyClinicSystem.example.notification_service.repository.ProcessedEventRepository;
 import polyClinicSystem.example.notification_service.service.notification.NotificationService;
 
+import java.time.Instant;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class AppointmentEventConsumer {
+    /*
+    every event type of an appointment comes on the one appointment-events topic keyed by appointment id,
+    so they're handled in the order they happened (a cancellation is never handled before its scheduling).
+    EventMessageConverter decodes each record into the event class of its event-type header.
+    a record can come more than once: the relay sends an event again when it crashed between the Kafka ack
+    and marking it sent, and a record is redelivered when this service crashed before committing its offset.
+    its outbox id is claimed in processed_events in the transaction of its notifications, a record whose id
+    is already there is only acknowledged, so a crash and restart never sends the same notification twice.
+     */
 
     private final NotificationService notificationService;
+    private final ProcessedEventRepository processedEventRepository;
+    private final TransactionTemplate transactionTemplate;
 
     @KafkaListener(
-            topics = "${kafka.topics.appointment-payment-created}",
+            topics = "${kafka.topics.appointment-events}",
             groupId = "${spring.kafka.consumer.group-id}",
             containerFactory = "kafkaListenerContainerFactory"
     )
-    public void handlePaymentConfirmedEvent(PaymentConfirmedEvent event, Acknowledgment ack) {
+    public void handleAppointmentEvent(
+            Object event,
+            @Header(name = EventMessageConverter.OUTBOX_ID_HEADER, required = false) Long outboxId,
+            Acknowledgment ack
+    ) {
+        // the claim commits with the notifications, the offset is acknowledged after that commit
+        Boolean handled = transactionTemplate.execute(status -> {
+            if (outboxId != null && processedEventRepository.claim(outboxId, Instant.now()) == 0) {
+                log.info("Skipping already processed appointment event: outboxId={}", outboxId);
+                return true;
+            }
+
+            boolean processed = handle(event);
+            if (!processed) {
+                // a redelivery of the record tries again
+                status.setRollbackOnly();
+            }
+            return processed;
+        });
+
+        if (Boolean.TRUE.equals(handled)) {
+            ack.acknowledge();
+        }
+    }
+
+    private boolean handle(Object event) {
+        return switch (event) {
+            case PaymentConfirmedEvent paymentConfirmed -> handlePaymentConfirmedEvent(paymentConfirmed);
+            case AppointmentScheduledEvent scheduled -> handleAppointmentScheduledEvent(scheduled);
+            case AppointmentRejectedEvent rejected -> handleAppointmentRejectedEvent(rejected);
+            case AppointmentCancelledEvent cancelled -> handleAppointmentCancelledEvent(cancelled);
+            case AppointmentCompletedEvent completed -> handleAppointmentCompletedEvent(completed);
+            default -> {
+                log.warn("Skipping appointment event of unknown type: {}", event.getClass().getSimpleName());
+                yield true;
+            }
+        };
+    }
+
+    private boolean handlePaymentConfirmedEvent(PaymentConfirmedEvent event) {
         log.info("Received PaymentConfirmedEvent for appointment: {}", event.getAppointmentId());
 
         try {
@@ -31,21 +87,17 @@ public class AppointmentEventConsumer {
                     event.getPeriod()
             );
 
-            ack.acknowledge();
             log.info("Successfully processed PaymentConfirmedEvent for appointment: {}", event.getAppointmentId());
+            return true;
 
         } catch (Exception e) {
             log.error("Failed to process PaymentConfirmedEvent for appointment: {}", event.getAppointmentId(), e);
             // Don't acknowledge - message will be retried
+            return false;
         }
     }
 
-    @KafkaListener(
-            topics = "${kafka.topics.appointment-scheduled}",
-            groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory"
-    )
-    public void handleAppointmentScheduledEvent(AppointmentScheduledEvent event, Acknowledgment ack) {
+    private boolean handleAppointmentScheduledEvent(AppointmentScheduledEvent event) {
         log.info("Received AppointmentScheduledEvent for appointment: {}", event.getAppointmentId());
 
         try {
@@ -59,20 +111,16 @@ public class AppointmentEventConsumer {
                     event.getRoomId()
             );
 
-            ack.acknowledge();
             log.info("Successfully processed AppointmentScheduledEvent for appointment: {}", event.getAppointmentId());
+            return true;
 
         } catch (Exception e) {
             log.error("Failed to process AppointmentScheduledEvent for appointment: {}", event.getAppointmentId(), e);
+            return false;
         }
     }
 
-    @KafkaListener(
-            topics = "${kafka.topics.appointment-rejected}",
-            groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory"
-    )
-    public void handleAppointmentRejectedEvent(AppointmentRejectedEvent event, Acknowledgment ack) {
+    private boolean handleAppointmentRejectedEvent(AppointmentRejectedEvent event) {
         log.info("Received AppointmentRejectedEvent for appointment: {}", event.getAppointmentId());
 
         try {
@@ -82,20 +130,16 @@ public class AppointmentEventConsumer {
                     event.getRejectionReason()
             );
 
-            ack.acknowledge();
             log.info("Successfully processed AppointmentRejectedEvent for appointment: {}", event.getAppointmentId());
+            return true;
 
         } catch (Exception e) {
             log.error("Failed to process AppointmentRejectedEvent for appointment: {}", event.getAppointmentId(), e);
+            return false;
         }
     }
 
-    @KafkaListener(
-            topics = "${kafka.topics.appointment-cancelled}",
-            groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory"
-    )
-    public void handleAppointmentCancelledEvent(AppointmentCancelledEvent event, Acknowledgment ack) {
+    private boolean handleAppointmentCancelledEvent(AppointmentCancelledEvent event) {
         log.info("Received AppointmentCancelledEvent for appointment: {}", event.getAppointmentId());
 
         try {
@@ -108,20 +152,16 @@ public class AppointmentEventConsumer {
                     event.getCancellationReason()
             );
 
-            ack.acknowledge();
             log.info("Successfully processed AppointmentCancelledEvent for appointment: {}", event.getAppointmentId());
+            return true;
 
         } catch (Exception e) {
             log.error("Failed to process AppointmentCancelledEvent for appointment: {}", event.getAppointmentId(), e);
+            return false;
         }
     }
 
-    @KafkaListener(
-            topics = "${kafka.topics.appointment-completed}",
-            groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory"
-    )
-    public void handleAppointmentCompletedEvent(AppointmentCompletedEvent event, Acknowledgment ack) {
+    private boolean handleAppointmentCompletedEvent(AppointmentCompletedEvent event) {
         log.info("Received AppointmentCompletedEvent for appointment: {}", event.getAppointmentId());
 
         try {
@@ -133,11 +173,12 @@ public class AppointmentEventConsumer {
                     event.getPeriod()
             );
 
-            ack.acknowledge();
             log.info("Successfully processed AppointmentCompletedEvent for appointment: {}", event.getAppointmentId());
+            return true;
 
         } catch (Exception e) {
             log.error("Failed to process AppointmentCompletedEvent for appointment: {}", event.getAppointmentId(), e);
+            return false;
         }
     }
 }
\ No newline at end of file
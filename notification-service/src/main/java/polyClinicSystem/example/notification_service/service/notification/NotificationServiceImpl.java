@@ -16,6 +16,12 @@ import polyClinicSystem.example.notification_service.service.email.EmailService;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -64,9 +70,11 @@ public class NotificationServiceImpl implements NotificationService {
         log.debug("Sending appointment scheduled notification for appointment: {}", appointmentId);
 
         try {
+            Map<String, UserResponse> users = getUsers(patientKeycloakId, doctorKeycloakId, nurseKeycloakId);
+
             // Notify patient
-            UserResponse patient = userClient.getUserByKeycloakId(patientKeycloakId);
-            UserResponse doctor = userClient.getUserByKeycloakId(doctorKeycloakId);
+            UserResponse patient = requireUser(users, patientKeycloakId);
+            UserResponse doctor = requireUser(users, doctorKeycloakId);
 
             String patientSubject = "Appointment Confirmed";
             String patientMessage = buildAppointmentScheduledMessageForPatient(
@@ -111,7 +119,7 @@ public class NotificationServiceImpl implements NotificationService {
 
             // Notify nurse if assigned
             if (nurseKeycloakId != null) {
-                UserResponse nurse = userClient.getUserByKeycloakId(nurseKeycloakId);
+                UserResponse nurse = requireUser(users, nurseKeycloakId);
                 String nurseSubject = "New Appointment Assignment";
                 String nurseMessage = buildAppointmentScheduledMessageForNurse(
                         nurse.getFirstName() + " "+ nurse.getLastName()
@@ -176,8 +184,10 @@ public class NotificationServiceImpl implements NotificationService {
         log.debug("Sending appointment cancelled notification for appointment: {}", appointmentId);
 
         try {
+            Map<String, UserResponse> users = getUsers(patientKeycloakId, doctorKeycloakId);
+
             // Notify patient
-            UserResponse patient = userClient.getUserByKeycloakId(patientKeycloakId);
+            UserResponse patient = requireUser(users, patientKeycloakId);
 
             String patientSubject = "Appointment Cancelled";
             String patientMessage = buildAppointmentCancelledMessage(patient.getFirstName() + " "+ patient.getLastName()
@@ -197,7 +207,7 @@ public class NotificationServiceImpl implements NotificationService {
             sendNotification(patientNotification);
 
             // Notify doctor
-            UserResponse doctor = userClient.getUserByKeycloakId(doctorKeycloakId);
+            UserResponse doctor = requireUser(users, doctorKeycloakId);
 
             String doctorSubject = "Appointment Cancelled";
             String doctorMessage = buildAppointmentCancelledMessageForDoctor(
@@ -231,8 +241,9 @@ public class NotificationServiceImpl implements NotificationService {
         log.debug("Sending appointment completed notification for appointment: {}", appointmentId);
 
         try {
-            UserResponse patient = userClient.getUserByKeycloakId(patientKeycloakId);
-            UserResponse doctor = userClient.getUserByKeycloakId(doctorKeycloakId);
+            Map<String, UserResponse> users = getUsers(patientKeycloakId, doctorKeycloakId);
+            UserResponse patient = requireUser(users, patientKeycloakId);
+            UserResponse doctor = requireUser(users, doctorKeycloakId);
 
             String subject = "Appointment Completed - Thank You";
             String message = buildAppointmentCompletedMessage(patient.getFirstName() + " "+ patient.getLastName()
@@ -259,6 +270,27 @@ public class NotificationServiceImpl implements NotificationService {
 
     // ================ Private Helper Methods ================
 
+    /**
+     * Fetch all the users of an event with one call to user-management, by keycloak id
+     */
+    private Map<String, UserResponse> getUsers(String... keycloakIds) {
+        List<String> ids = Arrays.stream(keycloakIds)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        return userClient.getUsersByKeycloakIds(ids).stream()
+                .collect(Collectors.toMap(UserResponse::getKeycloakID, Function.identity(), (first, second) -> first));
+    }
+
+    private UserResponse requireUser(Map<String, UserResponse> users, String keycloakId) {
+        UserResponse user = users.get(keycloakId);
+        if (user == null) {
+            throw new IllegalStateException("User not found with id: " + keycloakId);
+        }
+        return user;
+    }
+
     private Notification createNotification(String recipientKeycloakId, String email, String phone,
                                             NotificationType type, String subject, String message,
                                             Long appointmentId, String eventType) {
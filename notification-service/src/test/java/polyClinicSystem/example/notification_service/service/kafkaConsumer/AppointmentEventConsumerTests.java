@@ -0,0 +1,191 @@
+package polyClinicSystem.example.notification_service.service.kafkaConsumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.KafkaContainer;
+import polyClinicSystem.example.notification_service.config.EventMessageConverter;
+import polyClinicSystem.example.notification_service.config.KafkaConsumerConfig;
+import polyClinicSystem.example.notification_service.dto.event.AppointmentCompletedEvent;
+import polyClinicSystem.example.notification_service.dto.event.PaymentConfirmedEvent;
+import polyClinicSystem.example.notification_service.repository.ProcessedEventRepository;
+import polyClinicSystem.example.notification_service.service.notification.NotificationService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.kafka.consumer.group-id=" + AppointmentEventConsumerTests.GROUP_ID,
+        "kafka.topics.appointment-events=" + AppointmentEventConsumerTests.TOPIC
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({KafkaConsumerConfig.class, AppointmentEventConsumer.class})
+// the listener thread only sees committed claims
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers
+class AppointmentEventConsumerTests {
+
+    static final String TOPIC = "appointment-events";
+    static final String GROUP_ID = "notification-test";
+
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    static KafkaContainer kafka = new KafkaContainer("apache/kafka:3.8.0");
+
+    // KafkaConsumerConfig builds its consumer factory from this property
+    @DynamicPropertySource
+    static void kafkaProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+    }
+
+    @MockitoBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void anEventSentAgainByTheRelayNotifiesOnce() throws Exception {
+        long appointmentId = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+        long outboxId = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+
+        // the relay crashed between the Kafka ack and marking the event sent, and sent it again
+        send(appointmentId, outboxId, "appointment.payment.created", paymentConfirmed(appointmentId));
+        send(appointmentId, outboxId, "appointment.payment.created", paymentConfirmed(appointmentId));
+        awaitLaterEventOf(appointmentId);
+
+        verify(notificationService, times(1))
+                .sendPaymentConfirmedNotification(eq(appointmentId), any(), any(), any());
+        assertThat(processedEventRepository.existsById(outboxId)).isTrue();
+    }
+
+    @Test
+    void anEventRedeliveredAfterARestartBeforeItsOffsetWasCommittedNotifiesOnce() throws Exception {
+        long appointmentId = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+        long outboxId = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+
+        send(appointmentId, outboxId, "appointment.payment.created", paymentConfirmed(appointmentId));
+        verify(notificationService, timeout(TIMEOUT_MILLIS))
+                .sendPaymentConfirmedNotification(eq(appointmentId), any(), any(), any());
+
+        // the service crashed before the offset commit: once restarted, the group reads the record again
+        listenerRegistry.stop();
+        rewindGroupOffsets();
+        listenerRegistry.start();
+
+        awaitLaterEventOf(appointmentId);
+
+        verify(notificationService, times(1))
+                .sendPaymentConfirmedNotification(eq(appointmentId), any(), any(), any());
+    }
+
+    // a later event of the same appointment (same key, same partition) is handled after every earlier record
+    private void awaitLaterEventOf(long appointmentId) throws Exception {
+        send(appointmentId, ThreadLocalRandom.current().nextLong(1_000_000_000L), "appointment.completed",
+                AppointmentCompletedEvent.builder()
+                        .appointmentId(appointmentId)
+                        .patientKeycloakId("patient-1")
+                        .doctorKeycloakId("doctor-1")
+                        .appointmentDate(LocalDate.now())
+                        .period("H09_10")
+                        .build());
+
+        verify(notificationService, timeout(TIMEOUT_MILLIS))
+                .sendAppointmentCompletedNotification(eq(appointmentId), any(), any(), any(), any());
+    }
+
+    private PaymentConfirmedEvent paymentConfirmed(long appointmentId) {
+        return PaymentConfirmedEvent.builder()
+                .appointmentId(appointmentId)
+                .patientKeycloakId("patient-1")
+                .appointmentDate(LocalDate.now())
+                .period("H09_10")
+                .build();
+    }
+
+    // the record the way the appointment-service relay sends it
+    private void send(long appointmentId, long outboxId, String eventType, Object event) throws Exception {
+        Properties properties = new Properties();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+
+        try (KafkaProducer<String, byte[]> producer =
+                     new KafkaProducer<>(properties, new StringSerializer(), new ByteArraySerializer())) {
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(TOPIC, String.valueOf(appointmentId),
+                    objectMapper.writeValueAsBytes(event));
+            record.headers().add(EventMessageConverter.OUTBOX_ID_HEADER,
+                    String.valueOf(outboxId).getBytes(StandardCharsets.UTF_8));
+            record.headers().add(EventMessageConverter.EVENT_TYPE_HEADER, eventType.getBytes(StandardCharsets.UTF_8));
+            producer.send(record).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rewindGroupOffsets() throws Exception {
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+            Map<TopicPartition, OffsetAndMetadata> offsets = admin.describeTopics(List.of(TOPIC))
+                    .allTopicNames().get().get(TOPIC).partitions().stream()
+                    .collect(Collectors.toMap(
+                            partition -> new TopicPartition(TOPIC, partition.partition()),
+                            partition -> new OffsetAndMetadata(0)));
+
+            // the stopped consumer leaves the group, the broker may still take a moment to see it empty
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+            while (true) {
+                try {
+                    admin.alterConsumerGroupOffsets(GROUP_ID, offsets).all().get();
+                    return;
+                } catch (Exception e) {
+                    assertThat(System.nanoTime()).as("offsets of %s rewound", GROUP_ID).isLessThan(deadline);
+                    TimeUnit.MILLISECONDS.sleep(200);
+                }
+            }
+        }
+    }
+}
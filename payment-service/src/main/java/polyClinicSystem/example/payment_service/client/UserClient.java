@@ -1,10 +1,14 @@
 package polyClinicSystem.example.payment_service.client;
 
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.service.annotation.GetExchange;
 import org.springframework.web.service.annotation.HttpExchange;
+import org.springframework.web.service.annotation.PostExchange;
 import polyClinicSystem.example.payment_service.dto.Response.UserResponse;
 
+import java.util.List;
+
 @HttpExchange
 public interface UserClient {
 
@@ -12,5 +16,7 @@ public interface UserClient {
     UserResponse getUserById(@PathVariable Long id);
     @GetExchange("/api/users/ByKeycloak/{keycloakId}")
     UserResponse getUserByKeycloakId(@PathVariable String keycloakId);
+    @PostExchange("/api/users/batch")
+    List<UserResponse> getUsersByKeycloakIds(@RequestBody List<String> keycloakIds);
 
 }
\ No newline at end of file
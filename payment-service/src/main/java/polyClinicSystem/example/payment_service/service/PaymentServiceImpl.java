@@ -65,9 +65,14 @@ public class PaymentServiceImpl implements PaymentService {
         if (token == null) {
             throw new AccessDeniedException("Token not found");
         }
+
+        // the role comes from the verified token, user-management is only asked when it has none
+        String role = tokenService.extractUserRole(request);
+        if (role != null) {
+            return role;
+        }
         UserResponse currentUser = getCurrentUser(request);
         return currentUser.getRole().name();
-
     }
 
     private void checkPatientAccess(HttpServletRequest request, String patientKeycloakId) {
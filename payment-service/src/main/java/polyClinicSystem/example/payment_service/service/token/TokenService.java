@@ -5,4 +5,5 @@ import jakarta.servlet.http.HttpServletRequest;
 public interface TokenService {
     String extractToken(HttpServletRequest request);
     String extractUserId(HttpServletRequest request);
+    String extractUserRole(HttpServletRequest request);
 }
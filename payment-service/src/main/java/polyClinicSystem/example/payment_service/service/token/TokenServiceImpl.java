@@ -1,36 +1,32 @@
 package polyClinicSystem.example.payment_service.service.token;
 
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import polyClinicSystem.example.common_security.jwt.JwtClaimsResolver;
 
+@RequiredArgsConstructor
 @Service
 public class TokenServiceImpl implements TokenService {
 
+    // parses the token once per request and caches it until exp (common-security)
+    private final JwtClaimsResolver jwtClaimsResolver;
+
     @Override
     public String extractToken(HttpServletRequest request) {
-        String header = request.getHeader("Authorization");
-
-        if (header == null || !header.startsWith("Bearer ")) {
-            return null;
-        }
-        return header.substring(7); // remove "Bearer "
+        return jwtClaimsResolver.extractToken(request);
     }
 
     @Override
     public String extractUserId(HttpServletRequest request) {
-        String token = extractToken(request);
-        if (token == null) {
-            throw new RuntimeException("Token not found in request");
-        }
+        return jwtClaimsResolver.resolve(request).getSubject();
+    }
 
-        try {
-            SignedJWT signed = SignedJWT.parse(token);
-            JWTClaimsSet claims = signed.getJWTClaimsSet();
-            return claims.getStringClaim("sub");
-        } catch (Exception e) {
-            throw new RuntimeException("Invalid JWT Token", e);
-        }
+    /**
+     * @return the application role carried by the token, null if it has none or its signature wasn't verified
+     */
+    @Override
+    public String extractUserRole(HttpServletRequest request) {
+        return jwtClaimsResolver.resolve(request).getRole();
     }
 }
@@ -6,8 +6,10 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.bus.jackson.RemoteApplicationEventScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import polyClinicSystem.example.user_management_service.dto.event.UserChangedEvent;
 import polyClinicSystem.example.user_management_service.model.enums.Gender;
 import polyClinicSystem.example.user_management_service.model.enums.Role;
 import polyClinicSystem.example.user_management_service.model.user.Admin;
@@ -18,6 +20,7 @@ import java.util.Optional;
 
 @SpringBootApplication
 @EnableJpaAuditing
+@RemoteApplicationEventScan(basePackageClasses = UserChangedEvent.class)
 @Slf4j
 public class UserManagementServiceApplication {
 
@@ -54,6 +54,12 @@ public class UserController {
         return ResponseEntity.ok(userService.getUserByKeycloakId(keycloakId));
     }
 
+    // resolve many users in one call, users that don't exist are left out of the response
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserResponse>> getUsersByKeycloakIds(@RequestBody List<String> keycloakIds) {
+        return ResponseEntity.ok(userService.getUsersByKeycloakIds(keycloakIds));
+    }
+
     @PutMapping("/{id}/change-password")
     public ResponseEntity<Void> changePassword(
             @PathVariable Long id,
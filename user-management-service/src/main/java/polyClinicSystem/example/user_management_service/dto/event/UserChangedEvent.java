@@ -0,0 +1,31 @@
+package polyClinicSystem.example.user_management_service.dto.event;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.cloud.bus.event.Destination;
+import org.springframework.cloud.bus.event.RemoteApplicationEvent;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserChangedEvent extends RemoteApplicationEvent {
+    /*
+    broadcast on the Spring Cloud Bus (RabbitMQ) when a user is updated or deleted,
+    services that cache users by keycloak id evict the entry.
+    the bus matches events by simple class name, listening services declare a class with the same name and fields
+     */
+
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+
+    private String keycloakId;
+    private String change; // UPDATED | DELETED
+
+    public UserChangedEvent(Object source, String originService, Destination destination,
+                            String keycloakId, String change) {
+        super(source, originService, destination);
+        this.keycloakId = keycloakId;
+        this.change = change;
+    }
+}
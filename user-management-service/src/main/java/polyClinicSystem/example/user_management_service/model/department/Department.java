@@ -23,16 +23,21 @@ public class Department {
     private String name;
     private String description;
 
+    /*
+    the collections are lazy, listing departments must not load every room and member of staff.
+    code that adds or removes through the helpers below loads the department with the matching
+    DepartmentRepository.findWith...ById entity graph.
+     */
     @OneToMany(mappedBy = "department",
-            fetch = FetchType.EAGER,
+            fetch = FetchType.LAZY,
             cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Room> rooms;
 
-    @OneToMany(mappedBy = "department",fetch = FetchType.EAGER,
+    @OneToMany(mappedBy = "department",fetch = FetchType.LAZY,
             cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Doctor> doctors;
 
-    @OneToMany(mappedBy = "department",fetch = FetchType.EAGER,
+    @OneToMany(mappedBy = "department",fetch = FetchType.LAZY,
             cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Nurse> nurses;
 
@@ -17,7 +17,8 @@ public class Room {
     private Long roomNumber;
     private String type;
 
-    @ManyToOne(fetch = FetchType.EAGER,cascade = CascadeType.ALL)
+    // no cascade, deleting a room must never remove its department
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="departmentId")
     private Department department;
 }
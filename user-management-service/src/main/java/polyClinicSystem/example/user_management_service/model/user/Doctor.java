@@ -16,7 +16,7 @@ public class Doctor extends User {
 
     private int experience_years;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="department_id")
     private Department department;
 }
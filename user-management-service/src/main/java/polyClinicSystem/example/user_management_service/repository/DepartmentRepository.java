@@ -1,5 +1,6 @@
 package polyClinicSystem.example.user_management_service.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import polyClinicSystem.example.user_management_service.model.department.Department;
@@ -9,4 +10,25 @@ import java.util.Optional;
 @Repository
 public interface DepartmentRepository extends JpaRepository<Department, Long> {
     Optional<Department> findByName(String name);
+
+    /**
+     * Find a department with its rooms fetched in the same query.
+     * Used when a room is added to the department.
+     */
+    @EntityGraph(attributePaths = "rooms")
+    Optional<Department> findWithRoomsById(Long id);
+
+    /**
+     * Find a department with its doctors fetched in the same query.
+     * Used when a doctor is added to or moved into the department.
+     */
+    @EntityGraph(attributePaths = "doctors")
+    Optional<Department> findWithDoctorsById(Long id);
+
+    /**
+     * Find a department with its nurses fetched in the same query.
+     * Used when a nurse is added to or moved into the department.
+     */
+    @EntityGraph(attributePaths = "nurses")
+    Optional<Department> findWithNursesById(Long id);
 }
@@ -4,7 +4,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import polyClinicSystem.example.user_management_service.model.user.Nurse;
 
+import java.util.List;
+
 @Repository
 public interface NurseRepository  extends JpaRepository<Nurse, Long>{
-
+    List<Nurse> findByDepartmentId(Long departmentId);
 }
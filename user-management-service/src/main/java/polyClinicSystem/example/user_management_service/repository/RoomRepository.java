@@ -1,10 +1,19 @@
 package polyClinicSystem.example.user_management_service.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import polyClinicSystem.example.user_management_service.model.department.Room;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
     List<Room> findByDepartmentId(Long departmentId);
+
+    /**
+     * Find a room with its department and the department's rooms, in one query.
+     * Used when deleting a room, to unlink it from the department.
+     */
+    @EntityGraph(attributePaths = {"department", "department.rooms"})
+    Optional<Room> findWithDepartmentById(Long id);
 }
@@ -1,14 +1,46 @@
 package polyClinicSystem.example.user_management_service.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import polyClinicSystem.example.user_management_service.dto.response.UserResponse;
 import polyClinicSystem.example.user_management_service.model.user.User;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    // lookups by keycloak id only need the users table, selecting the dto lets hibernate skip the joins
+    // to the subclass tables and the department graph of doctors and nurses
+    String RESPONSE_SELECT = "SELECT new polyClinicSystem.example.user_management_service.dto.response.UserResponse(" +
+            "u.id, u.keycloakID, u.role, u.firstName, u.lastName, u.email, u.username, u.phone, u.address, " +
+            "u.createdAt, u.updatedAt) ";
+
     Optional<User> findByEmail(String email);
 
+    /**
+     * Get every user as a response dto, read from the users table only.
+     * Used by "get all users".
+     */
+    @Query(RESPONSE_SELECT + "FROM User u")
+    List<UserResponse> findAllResponses();
+
     Optional<User> findByKeycloakID(String keycloakId);
+
+    /**
+     * Find a user by keycloak id as a response dto, read from the users table only.
+     * Used by UserCacheImpl on a miss.
+     */
+    @Query(RESPONSE_SELECT + "FROM User u WHERE u.keycloakID = :keycloakId")
+    Optional<UserResponse> findResponseByKeycloakID(String keycloakId);
+
+    /**
+     * Find the users of a set of keycloak ids as response dtos, in one IN (...) query on the users table.
+     * Used by the batch lookup.
+     */
+    @Query(RESPONSE_SELECT + "FROM User u WHERE u.keycloakID IN :keycloakIds")
+    List<UserResponse> findResponsesByKeycloakIDIn(Collection<String> keycloakIds);
 }
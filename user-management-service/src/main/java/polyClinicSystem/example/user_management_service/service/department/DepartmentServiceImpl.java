@@ -111,13 +111,12 @@ public class DepartmentServiceImpl implements DepartmentService {
         log.debug("Fetching doctors for department: {}", departmentId);
 
         // Verify department exists
-        departmentRepository.findById(departmentId)
-                .orElseThrow(() -> new NotFoundException("Department not found with id: " + departmentId));
+        if (!departmentRepository.existsById(departmentId)) {
+            throw new NotFoundException("Department not found with id: " + departmentId);
+        }
 
-        List<UserResponse> doctors = doctorRepository.findAll()
+        List<UserResponse> doctors = doctorRepository.findByDepartmentId(departmentId)
                 .stream()
-                .filter(doctor -> doctor.getDepartment() != null &&
-                        doctor.getDepartment().getId().equals(departmentId))
                 .map(mapperSystem::toUserResponse)
                 .collect(Collectors.toList());
 
@@ -131,13 +130,12 @@ public class DepartmentServiceImpl implements DepartmentService {
         log.debug("Fetching nurses for department: {}", departmentId);
 
         // Verify department exists
-        departmentRepository.findById(departmentId)
-                .orElseThrow(() -> new NotFoundException("Department not found with id: " + departmentId));
+        if (!departmentRepository.existsById(departmentId)) {
+            throw new NotFoundException("Department not found with id: " + departmentId);
+        }
 
-        List<UserResponse> nurses = nurseRepository.findAll()
+        List<UserResponse> nurses = nurseRepository.findByDepartmentId(departmentId)
                 .stream()
-                .filter(nurse -> nurse.getDepartment() != null &&
-                        nurse.getDepartment().getId().equals(departmentId))
                 .map(mapperSystem::toUserResponse)
                 .collect(Collectors.toList());
 
@@ -149,13 +147,12 @@ public class DepartmentServiceImpl implements DepartmentService {
     public List<RoomResponse> getRoomsByDepartment(Long departmentId) {
         log.debug("Fetching nurses for department: {}", departmentId);
 
-        departmentRepository.findById(departmentId)
-                .orElseThrow(() -> new NotFoundException("Department not found with id: " + departmentId));
+        if (!departmentRepository.existsById(departmentId)) {
+            throw new NotFoundException("Department not found with id: " + departmentId);
+        }
 
-        List<RoomResponse> rooms = roomRepository.findAll()
+        List<RoomResponse> rooms = roomRepository.findByDepartmentId(departmentId)
                 .stream()
-                .filter(room -> room.getDepartment() != null &&
-                        room.getDepartment().getId().equals(departmentId))
                 .map(mapperSystem::toRoomResponse)
                 .collect(Collectors.toList());
 
@@ -168,8 +165,9 @@ public class DepartmentServiceImpl implements DepartmentService {
     public List<UserResponse> getAllStaffByDepartment(Long departmentId) {
         log.debug("Fetching all staff for department: {}", departmentId);
 
-        departmentRepository.findById(departmentId)
-                .orElseThrow(() -> new NotFoundException("Department not found with id: " + departmentId));
+        if (!departmentRepository.existsById(departmentId)) {
+            throw new NotFoundException("Department not found with id: " + departmentId);
+        }
 
         List<UserResponse> allStaff = new ArrayList<>();
 
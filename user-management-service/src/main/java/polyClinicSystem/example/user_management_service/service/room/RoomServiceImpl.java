@@ -30,7 +30,7 @@ public class RoomServiceImpl implements RoomService {
     public RoomResponse createRoom(CreateRoomRequest request) {
         log.debug("Creating room with request: {}", request);
 
-        Department department = departmentRepository.findById(request.getDepartmentId())
+        Department department = departmentRepository.findWithRoomsById(request.getDepartmentId())
                 .orElseThrow(() -> new NotFoundException("Department not found with id: " + request.getDepartmentId()));
 
         Room room = mapperSystem.toRoom(request);
@@ -78,7 +78,7 @@ public class RoomServiceImpl implements RoomService {
     public void deleteRoom(Long id) {
         log.debug("Deleting room: {}", id);
 
-        Room room = roomRepository.findById(id)
+        Room room = roomRepository.findWithDepartmentById(id)
                 .orElseThrow(() -> new NotFoundException("Room not found with id: " + id));
 
         // Clean up bidirectional relationship
@@ -105,12 +105,12 @@ public class RoomServiceImpl implements RoomService {
     public List<RoomResponse> getRoomsByDepartment(Long deptId) {
         log.debug("Fetching rooms for department: {}", deptId);
 
-        departmentRepository.findById(deptId)
-                .orElseThrow(() -> new NotFoundException("Department not found with id: " + deptId));
+        if (!departmentRepository.existsById(deptId)) {
+            throw new NotFoundException("Department not found with id: " + deptId);
+        }
 
-        List<RoomResponse> rooms = roomRepository.findAll()
+        List<RoomResponse> rooms = roomRepository.findByDepartmentId(deptId)
                 .stream()
-                .filter(r -> r.getDepartment() != null && r.getDepartment().getId().equals(deptId))
                 .map(mapperSystem::toRoomResponse)
                 .toList();
 
@@ -22,4 +22,6 @@ public interface UserService {
     UserResponse getUserById(Long Id);
 
     UserResponse getUserByKeycloakId(String keycloakId);
+
+    List<UserResponse> getUsersByKeycloakIds(List<String> keycloakIds);
 }
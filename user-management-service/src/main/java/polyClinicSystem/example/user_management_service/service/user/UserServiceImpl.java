@@ -2,9 +2,15 @@ package polyClinicSystem.example.user_management_service.service.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.bus.BusProperties;
+import org.springframework.cloud.bus.event.Destination;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
+import polyClinicSystem.example.user_management_service.dto.event.UserChangedEvent;
 import polyClinicSystem.example.user_management_service.dto.request.create.RegisterStaffRequest;
 import polyClinicSystem.example.user_management_service.dto.response.UserResponse;
 import polyClinicSystem.example.user_management_service.exception.customExceptions.BadRequestException;
@@ -23,10 +29,13 @@ import polyClinicSystem.example.user_management_service.repository.NurseReposito
 import polyClinicSystem.example.user_management_service.repository.PatientRepository;
 import polyClinicSystem.example.user_management_service.repository.UserRepository;
 import polyClinicSystem.example.user_management_service.service.keycloakAdmin.KeycloakAdminService;
+import polyClinicSystem.example.user_management_service.service.userCache.UserCacheService;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,6 +43,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserServiceImpl implements UserService {
 
+    // upper bound of one batch lookup, keeps the IN list (and the response) reasonable
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final PatientRepository patientRepository;
     private final UserRepository userRepository;
     private final KeycloakAdminService keycloakAdminService;
@@ -41,6 +53,10 @@ public class UserServiceImpl implements UserService {
     private final DoctorRepository doctorRepository;
     private final NurseRepository nurseRepository;
     private final DepartmentRepository departmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BusProperties busProperties;
+    private final Destination.Factory destinationFactory;
+    private final UserCacheService userCacheService;
 
     @Override
     @Transactional
@@ -86,10 +102,12 @@ public class UserServiceImpl implements UserService {
             throw new BadRequestException("Password and confirm password do not match");
         }
 
-        // Validate and fetch department if provided
+        // Validate and fetch department if provided, with the staff collection the new member joins
         Department department = null;
         if (request.getDepartmentId() != null) {
-            department = departmentRepository.findById(request.getDepartmentId())
+            department = (role == Role.NURSE
+                    ? departmentRepository.findWithNursesById(request.getDepartmentId())
+                    : departmentRepository.findWithDoctorsById(request.getDepartmentId()))
                     .orElseThrow(() -> new NotFoundException("Department not found with id: " + request.getDepartmentId()));
             log.debug("Assigning staff to department: {}", department.getName());
         }
@@ -175,6 +193,7 @@ public class UserServiceImpl implements UserService {
         }
 
         userRepository.delete(user);
+        publishUserChanged(keycloakId, UserChangedEvent.DELETED);
         log.info("User deleted successfully: {}", id);
     }
 
@@ -254,7 +273,7 @@ public class UserServiceImpl implements UserService {
 
             // Update department if provided
             if (request.getDepartmentId() != null) {
-                Department newDepartment = departmentRepository.findById(request.getDepartmentId())
+                Department newDepartment = departmentRepository.findWithDoctorsById(request.getDepartmentId())
                         .orElseThrow(() -> new NotFoundException("Department not found with id: " + request.getDepartmentId()));
 
                 // Remove from old department
@@ -274,7 +293,7 @@ public class UserServiceImpl implements UserService {
 
             // Update department if provided
             if (request.getDepartmentId() != null) {
-                Department newDepartment = departmentRepository.findById(request.getDepartmentId())
+                Department newDepartment = departmentRepository.findWithNursesById(request.getDepartmentId())
                         .orElseThrow(() -> new NotFoundException("Department not found with id: " + request.getDepartmentId()));
 
                 // Remove from old department
@@ -320,6 +339,7 @@ public class UserServiceImpl implements UserService {
 
         // refresh and return
         User updated = userRepository.findById(id).orElseThrow();
+        publishUserChanged(updated.getKeycloakID(), UserChangedEvent.UPDATED);
         log.info("User updated successfully: {}", id);
 
         if (updated instanceof Doctor) return mapperSystem.toUserResponse(updated);
@@ -349,10 +369,7 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public List<UserResponse> getAllUsers() {
-        return userRepository.findAll()
-                .stream()
-                .map(mapperSystem::toUserResponse)
-                .collect(Collectors.toList());
+        return userRepository.findAllResponses();
     }
 
     @Override
@@ -364,8 +381,46 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public UserResponse getUserByKeycloakId(String keycloakId) {
-        return mapperSystem.toUserResponse(
-                userRepository.findByKeycloakID(keycloakId)
-                        .orElseThrow(() -> new NotFoundException("User not found with id: " + keycloakId)));
+        return userCacheService.getUser(keycloakId);
+    }
+
+    @Override
+    public List<UserResponse> getUsersByKeycloakIds(List<String> keycloakIds) {
+        if (keycloakIds == null || keycloakIds.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> ids = keycloakIds.stream()
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Cannot fetch more than " + MAX_BATCH_SIZE + " users at once");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        return userRepository.findResponsesByKeycloakIDIn(ids);
+    }
+
+    private void publishUserChanged(String keycloakId, String change) {
+        if (!StringUtils.hasText(keycloakId)) {
+            return;
+        }
+
+        // sent after commit, a service that reloads the user right away must see the change
+        UserChangedEvent event = new UserChangedEvent(this, busProperties.getId(),
+                destinationFactory.getDestination(null), keycloakId, change);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventPublisher.publishEvent(event);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventPublisher.publishEvent(event);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package polyClinicSystem.example.user_management_service.service.userCache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import polyClinicSystem.example.user_management_service.dto.event.UserChangedEvent;
+import polyClinicSystem.example.user_management_service.dto.response.UserResponse;
+import polyClinicSystem.example.user_management_service.exception.customExceptions.NotFoundException;
+import polyClinicSystem.example.user_management_service.repository.UserRepository;
+
+import java.time.Duration;
+
+@Service
+@Slf4j
+public class UserCacheImpl implements UserCacheService {
+    /*
+    near-cache of /ByKeycloak lookups, every authenticated request of the other services ends up here.
+    UserServiceImpl publishes a UserChangedEvent after an update or delete commits, it is delivered to this instance
+    directly and to the other instances through the bus, and the entry is evicted.
+    the ttl bounds how stale an entry gets if such an event is missed, unknown ids aren't cached.
+     */
+
+    private final UserRepository userRepository;
+    private final Cache<String, UserResponse> users;
+
+    public UserCacheImpl(UserRepository userRepository,
+                         @Value("${app.user-cache.max-size:10000}") long maxSize,
+                         @Value("${app.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Get a user from the cache, or from the flattened projection query on a miss
+     */
+    @Override
+    public UserResponse getUser(String keycloakId) {
+        return users.get(keycloakId, id -> userRepository.findResponseByKeycloakID(id)
+                .orElseThrow(() -> new NotFoundException("User not found with id: " + id)));
+    }
+
+    @Override
+    public void evict(String keycloakId) {
+        users.invalidate(keycloakId);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        log.debug("User {} {}, evicting it from the cache", event.getKeycloakId(), event.getChange());
+        evict(event.getKeycloakId());
+    }
+}
@@ -0,0 +1,8 @@
+package polyClinicSystem.example.user_management_service.service.userCache;
+
+import polyClinicSystem.example.user_management_service.dto.response.UserResponse;
+
+public interface UserCacheService {
+    UserResponse getUser(String keycloakId);
+    void evict(String keycloakId);
+}
@@ -0,0 +1,172 @@
+package polyClinicSystem.example.user_management_service.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import polyClinicSystem.example.user_management_service.UserManagementServiceApplication;
+import polyClinicSystem.example.user_management_service.dto.response.UserResponse;
+import polyClinicSystem.example.user_management_service.model.department.Department;
+import polyClinicSystem.example.user_management_service.model.department.Room;
+import polyClinicSystem.example.user_management_service.model.enums.Role;
+import polyClinicSystem.example.user_management_service.model.user.Doctor;
+import polyClinicSystem.example.user_management_service.model.user.Nurse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+class DepartmentRepositoryTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    // the entities and repositories of the service without the admin bootstrap runner of the application class
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = UserManagementServiceApplication.class)
+    @EnableJpaAuditing
+    static class JpaConfiguration {
+    }
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private NurseRepository nurseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long departmentId;
+    private Long roomId;
+
+    @BeforeEach
+    void createDepartment() {
+        Department department = Department.builder().name("Cardiology").description("Heart").build();
+        for (long number = 1; number <= 3; number++) {
+            department.AddRoom(Room.builder().roomNumber(number).type("exam").build());
+        }
+        for (int i = 1; i <= 2; i++) {
+            department.AddDoctor(doctor("doctor-" + i));
+            department.AddNurse(nurse("nurse-" + i));
+        }
+        departmentId = departmentRepository.save(department).getId();
+        entityManager.flush();
+        roomId = department.getRooms().iterator().next().getId();
+        entityManager.clear();
+
+        statistics().clear();
+    }
+
+    @Test
+    void listingDepartmentsLoadsNoRoomOrStaff() {
+        List<Department> departments = departmentRepository.findAll();
+
+        assertThat(departments).singleElement().satisfies(department -> {
+            assertThat(Hibernate.isInitialized(department.getRooms())).isFalse();
+            assertThat(Hibernate.isInitialized(department.getDoctors())).isFalse();
+            assertThat(Hibernate.isInitialized(department.getNurses())).isFalse();
+        });
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics().getEntityLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void eachEntityGraphFetchesItsCollectionInTheSameStatement() {
+        Department withRooms = departmentRepository.findWithRoomsById(departmentId).orElseThrow();
+        assertThat(withRooms.getRooms()).hasSize(3);
+        assertThat(Hibernate.isInitialized(withRooms.getDoctors())).isFalse();
+        entityManager.clear();
+
+        Department withDoctors = departmentRepository.findWithDoctorsById(departmentId).orElseThrow();
+        assertThat(withDoctors.getDoctors()).hasSize(2);
+        assertThat(Hibernate.isInitialized(withDoctors.getRooms())).isFalse();
+        entityManager.clear();
+
+        Department withNurses = departmentRepository.findWithNursesById(departmentId).orElseThrow();
+        assertThat(withNurses.getNurses()).hasSize(2);
+
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void aRoomIsLoadedWithItsDepartmentAndTheDepartmentsRoomsInOneStatement() {
+        Room room = roomRepository.findWithDepartmentById(roomId).orElseThrow();
+
+        assertThat(Hibernate.isInitialized(room.getDepartment())).isTrue();
+        assertThat(room.getDepartment().getRooms()).hasSize(3).contains(room);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void staffAndRoomListingsQueryByDepartmentIdWithoutLoadingTheDepartment() {
+        List<Nurse> nurses = nurseRepository.findByDepartmentId(departmentId);
+        List<Room> rooms = roomRepository.findByDepartmentId(departmentId);
+
+        assertThat(nurses).hasSize(2)
+                .allSatisfy(nurse -> assertThat(Hibernate.isInitialized(nurse.getDepartment())).isFalse());
+        assertThat(rooms).hasSize(3)
+                .allSatisfy(room -> assertThat(Hibernate.isInitialized(room.getDepartment())).isFalse());
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void allUsersAreReadAsResponsesWithoutLoadingEntities() {
+        List<UserResponse> users = userRepository.findAllResponses();
+
+        assertThat(users).hasSize(4);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics().getEntityLoadCount()).isZero();
+    }
+
+    private Doctor doctor(String keycloakId) {
+        Doctor doctor = new Doctor();
+        doctor.setKeycloakID(keycloakId);
+        doctor.setFirstName(keycloakId);
+        doctor.setRole(Role.DOCTOR);
+        doctor.setSpecialization("cardiology");
+        return doctor;
+    }
+
+    private Nurse nurse(String keycloakId) {
+        Nurse nurse = new Nurse();
+        nurse.setKeycloakID(keycloakId);
+        nurse.setFirstName(keycloakId);
+        nurse.setRole(Role.NURSE);
+        return nurse;
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}